@@ -0,0 +1,289 @@
+package editor;
+
+import game.DataHandler;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import structures.Level;
+import structures.Point2d;
+import structures.ShotEnding;
+
+/**
+ * Finds the solutions of a level without flying a shot from every launch
+ * point, since they form a few connected regions. The launch points are
+ * sampled on a coarse grid of square cells first. A cell whose corners
+ * agree, and whose neighbours' corners agree as well, is taken to be
+ * uniform and filled with the value of its corners; the others are split
+ * into four and sampled again, down to single pixels. Corners agree when
+ * their shots end the same way (see ShotBatch.shotEndings), crashing into
+ * the same source if they crash, not just when both miss: winning regions
+ * are often thin strips between shots that hit different bodies, which win
+ * or miss alone would step over. The result matches
+ * LevelSolver.getSolutionSet except for regions that fit between the
+ * samples of a uniform cell.
+ * <p>
+ * Levels using an adaptive integrator or the fixed-point mode only tell
+ * wins from misses (see ShotBatch), so on those levels every cell whose
+ * corners all miss is taken to be uniform. That is much less safe: on the
+ * stock levels it lost about a tenth of the solutions. Use
+ * LevelSolver.getSolutionSet for such levels when every solution counts.
+ * <p>
+ * The risk of missing such a region is set by the size of the coarse cells
+ * (smaller is safer and slower; a size of 1 is the brute force) and by the
+ * margin, the number of cells around a cell with disagreeing corners that
+ * are split with it (larger is safer and slower). The main method measures
+ * the agreement with the brute force on a file of levels.
+ */
+public class AdaptiveSolver {
+
+	/**
+	 * The default size of the coarse cells, in pixels.
+	 */
+	public static final int DefaultCellSize = 16;
+
+	/**
+	 * The default number of cells split around a cell with disagreeing
+	 * corners.
+	 */
+	public static final int DefaultMargin = 1;
+
+	private static final int MAX = LevelSolver.MAX;
+
+	private static final int Unknown = 0;
+	private static final int Won = region(ShotEnding.WON, -1);
+	private static final int OffScreen = region(ShotEnding.OFF_SCREEN, -1);
+
+	/**
+	 * Args: [levels file] [cell size] [margin]. Solves every level of the
+	 * file (by default the stock levels) both adaptively and by brute force
+	 * and prints how well they agree and how many shots were saved.
+	 */
+	public static void main(String[] args) throws IOException {
+		String file = (args.length > 0) ? args[0]
+				: "src/resources/levels/levels.txt";
+		int cellSize = (args.length > 1) ? Integer.parseInt(args[1])
+				: DefaultCellSize;
+		int margin = (args.length > 2) ? Integer.parseInt(args[2])
+				: DefaultMargin;
+		List<Level> levels = new DataHandler().getLevelData(file);
+		AgreementReport report = new AgreementReport();
+		for (int i = 0; i < levels.size(); i++) {
+			Level level = levels.get(i);
+			SolutionSet exact = LevelSolver.getSolutionSet(level);
+			AdaptiveSolver solver = new AdaptiveSolver(level, cellSize,
+					margin);
+			SolutionSet found = solver.solve(Runtime.getRuntime()
+					.availableProcessors());
+			report.add("level " + (i + 1), level, exact, found, solver
+					.getShotsFlown());
+		}
+		report.printTotals();
+	}
+
+	private final Level level;
+	private final int cellSize, margin;
+	private final int leftX, bottomY;
+	// lattice points per side; the value of lattice point (i, j), the
+	// launch point (leftX + i, bottomY + j), is at i * side + j
+	private final int side;
+	private int[] values;
+	private int shotsFlown;
+
+	/**
+	 * Creates a solver for a level.
+	 * @param level the level to solve
+	 * @param cellSize the size of the coarse cells, a power of two
+	 * @param margin the number of cells split around a cell with
+	 *        disagreeing corners
+	 */
+	public AdaptiveSolver(Level level, int cellSize, int margin) {
+		if (cellSize < 1 || Integer.bitCount(cellSize) != 1)
+			throw new IllegalArgumentException("The cell size must be a "
+					+ "power of two.");
+		if (margin < 0)
+			throw new IllegalArgumentException("The margin cannot be "
+					+ "negative.");
+		this.level = level;
+		this.cellSize = cellSize;
+		this.margin = margin;
+		leftX = (int) (level.getBall().getCenterX() - MAX);
+		bottomY = (int) (level.getBall().getCenterY() - MAX);
+		int width = (int) (level.getBall().getCenterX() + MAX) - leftX;
+		int height = (int) (level.getBall().getCenterY() + MAX) - bottomY;
+		int cells = (Math.max(width, height) + cellSize - 1) / cellSize;
+		side = cells * cellSize + 1;
+	}
+
+	/**
+	 * Computes the solutions of a level with the default cell size and
+	 * margin.
+	 * @param level the level to solve
+	 * @return the points at which a shot is found to win
+	 */
+	public static SolutionSet getSolutionSet(Level level) {
+		return new AdaptiveSolver(level, DefaultCellSize, DefaultMargin)
+				.solve(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Computes the solutions of the level, in the same order as
+	 * LevelSolver.getSolutionSet.
+	 * @param threads the number of threads to fly the shots with
+	 * @return the points at which a shot is found to win
+	 */
+	public SolutionSet solve(int threads) {
+		values = new int[side * side];
+		shotsFlown = 0;
+		int size = cellSize;
+		int cells = (side - 1) / size;
+		int[] active = new int[cells * cells];
+		for (int ci = 0, k = 0; ci < cells; ci++) {
+			for (int cj = 0; cj < cells; cj++) {
+				active[k++] = ci * size * side + cj * size;
+			}
+		}
+		int count = active.length;
+		// uniform cells, filled once every split cell has been sampled, so
+		// they do not fill the edges those cells share with them
+		List<int[]> fills = new ArrayList<int[]>();
+		evaluateCorners(active, count, size, threads);
+		while (size > 1) {
+			cells = (side - 1) / size;
+			byte[] marks = new byte[cells * cells];
+			for (int k = 0; k < count; k++) {
+				int origin = active[k];
+				int cell = (origin / side / size) * cells + (origin % side)
+						/ size;
+				marks[cell] = isMixed(origin, size) ? (byte) 2 : 1;
+			}
+			int half = size / 2;
+			int[] children = new int[4 * count];
+			int childCount = 0;
+			for (int k = 0; k < count; k++) {
+				int origin = active[k];
+				if (nearMixed(marks, cells, origin / side / size, (origin % side)
+						/ size)) {
+					children[childCount++] = origin;
+					children[childCount++] = origin + half;
+					children[childCount++] = origin + half * side;
+					children[childCount++] = origin + half * side + half;
+				} else {
+					fills.add(new int[] { origin, size });
+				}
+			}
+			active = children;
+			count = childCount;
+			size = half;
+			evaluateCorners(active, count, size, threads);
+		}
+		for (int[] fill : fills) {
+			fill(fill[0], fill[1]);
+		}
+
+		SolutionSet solutions = SolutionSet.forLevel(level);
+		for (int i = 0; i < side; i++) {
+			for (int j = 0; j < side; j++) {
+				if (values[i * side + j] == Won)
+					solutions.add(leftX + i, bottomY + j);
+			}
+		}
+		return solutions;
+	}
+
+	/**
+	 * Returns the number of shots flown by the last call to solve.
+	 * @return the number of shots flown
+	 */
+	public int getShotsFlown() {
+		return shotsFlown;
+	}
+
+	/**
+	 * Finds the value of every corner of the given cells not known yet.
+	 */
+	private void evaluateCorners(int[] origins, int count, int size,
+			int threads) {
+		List<Point2d> shots = new ArrayList<Point2d>();
+		List<Integer> slots = new ArrayList<Integer>();
+		for (int k = 0; k < count; k++) {
+			int origin = origins[k];
+			int[] corners = { origin, origin + size, origin + size * side,
+					origin + size * side + size };
+			for (int c : corners) {
+				if (values[c] != Unknown)
+					continue;
+				// known from now on, so a corner shared by several cells is
+				// flown once
+				values[c] = OffScreen;
+				int x = leftX + c / side;
+				int y = bottomY + c % side;
+				if (LevelSolver.isLaunchPoint(level, x, y)) {
+					shots.add(new Point2d(x, y));
+					slots.add(c);
+				}
+			}
+		}
+		int[] crashed = new int[shots.size()];
+		ShotEnding[] endings = LevelSolver.shotEndings(level, shots, threads,
+				crashed, null);
+		for (int k = 0; k < endings.length; k++) {
+			values[slots.get(k)] = region(endings[k], crashed[k]);
+		}
+		shotsFlown += shots.size();
+	}
+
+	/**
+	 * Returns a positive number standing for the region of outcomes a shot
+	 * lies in: its ending and, for a crash, the source it hit.
+	 * @param ending how the shot ended
+	 * @param crashed the index of the source it hit, or -1
+	 */
+	static int region(ShotEnding ending, int crashed) {
+		return 1 + ending.ordinal() + ShotEnding.values().length
+				* (crashed + 1);
+	}
+
+	private boolean isMixed(int origin, int size) {
+		int v = values[origin];
+		return values[origin + size] != v || values[origin + size * side] != v
+				|| values[origin + size * side + size] != v;
+	}
+
+	/**
+	 * Returns if a cell or one of those within the margin around it has
+	 * disagreeing corners.
+	 */
+	private boolean nearMixed(byte[] marks, int cells, int ci, int cj) {
+		for (int i = Math.max(ci - margin, 0); i <= Math.min(ci + margin,
+				cells - 1); i++) {
+			for (int j = Math.max(cj - margin, 0); j <= Math.min(cj + margin,
+					cells - 1); j++) {
+				if (marks[i * cells + j] == 2)
+					return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gives every launch point of a uniform cell not known yet the value of
+	 * its corners.
+	 */
+	private void fill(int origin, int size) {
+		int v = values[origin];
+		for (int i = 0; i <= size; i++) {
+			for (int j = 0; j <= size; j++) {
+				int c = origin + i * side + j;
+				if (values[c] == Unknown) {
+					int x = leftX + c / side;
+					int y = bottomY + c % side;
+					values[c] = LevelSolver.isLaunchPoint(level, x, y) ? v
+							: OffScreen;
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,47 @@
+package editor;
+
+import structures.Level;
+
+/**
+ * Compares the solutions of a solver with those of the brute force, for the
+ * main methods measuring the solvers: prints a line per solve and the
+ * totals over all of them.
+ */
+class AgreementReport {
+
+	private long points, flown, missed, extra;
+
+	/**
+	 * Prints how the solutions found for a level compare with the exact ones
+	 * and adds them to the totals.
+	 * @param name what was solved, starting the line
+	 * @param level the level solved
+	 * @param exact the solutions found by the brute force
+	 * @param found the solutions found by the solver
+	 * @param shotsFlown the number of shots the solver flew
+	 */
+	void add(String name, Level level, SolutionSet exact, SolutionSet found,
+			int shotsFlown) {
+		int levelPoints = LevelSolver.launchPoints(level).size();
+		int levelMissed = exact.difference(found).size();
+		int levelExtra = found.difference(exact).size();
+		System.out.println(String.format("%s: %d solutions, %d missed, "
+				+ "%d extra, %d of %d shots flown", name, exact.size(),
+				levelMissed, levelExtra, shotsFlown, levelPoints));
+		points += levelPoints;
+		flown += shotsFlown;
+		missed += levelMissed;
+		extra += levelExtra;
+	}
+
+	/**
+	 * Prints the fraction of the launch points on which the solver agreed
+	 * with the brute force, and the fraction it flew.
+	 */
+	void printTotals() {
+		System.out.println(String.format("agreement %.5f, %d missed, "
+				+ "%d extra, %.1f%% of the shots flown", 1 - (missed + extra)
+				/ (double) points, missed, extra, 100.0 * flown / points));
+	}
+
+}
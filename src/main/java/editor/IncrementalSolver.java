@@ -0,0 +1,449 @@
+package editor;
+
+import game.DataHandler;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import structures.Ball;
+import structures.Blockage;
+import structures.Body;
+import structures.GoalPost;
+import structures.Level;
+import structures.Moon;
+import structures.Point2d;
+import structures.ShotEnding;
+import structures.WarpPoint;
+
+/**
+ * Solves the versions of a level as it is edited, flying again only the
+ * shots an edit may have changed. Each solve keeps the ending of every shot
+ * and the box around its path. The next solve compares the objects of the
+ * new version with those of the last one: a shot is flown again if its box
+ * comes within range of an object that was added, removed or changed, and
+ * keeps its ending otherwise. The range of an object is its reach plus the
+ * radius of the ball. Shots that escaped are flown again if the edit
+ * changed a pulling object or the extent of the level, which the escape
+ * test depends on; any change to the ball, the constants or the integration
+ * of the level solves it again from scratch. The result is the same as
+ * LevelSolver.getSolutionSet. The editor solves in the background with
+ * solveAsync, each edit replacing the solve of the one before.
+ * <p>
+ * The pull of a body reaches everywhere, so by default an edit to a body or
+ * moon flies every shot again. A solver can be given a threshold instead,
+ * adding to the range of a pulling object the distance at which its pull
+ * drops below it. Its results then differ for shots sensitive to less pull
+ * than the threshold, which over a long flight can be many: on the stock
+ * levels, a threshold of 0.001 still flies most shots again after moving a
+ * body and gets a few levels noticeably wrong. The main method measures the
+ * agreement with the brute force on edits of a file of levels.
+ */
+public class IncrementalSolver {
+
+	private final double minPull;
+
+	// the last version solved and what its shots did
+	private List<Object> setting;
+	private List<Footprint> footprints;
+	private double[] extent;
+	private List<Point2d> shots;
+	private ShotEnding[] endings;
+	private float[] bounds;
+	private int shotsFlown;
+
+	// the solve running in the background and the edit it solves
+	private SolveHandle running;
+	private Edit pending;
+
+	/**
+	 * Args: [levels file] [threshold]. Solves every level of the file (by
+	 * default the stock levels), then moves its first goal and its first
+	 * body without moons, re-solving after each edit both incrementally and
+	 * by brute force, and prints how well they agree and how many shots were
+	 * flown again.
+	 */
+	public static void main(String[] args) throws IOException {
+		String file = (args.length > 0) ? args[0]
+				: "src/resources/levels/levels.txt";
+		double minPull = (args.length > 1) ? Double.parseDouble(args[1]) : 0;
+		int threads = Runtime.getRuntime().availableProcessors();
+		List<Level> levels = new DataHandler().getLevelData(file);
+		AgreementReport report = new AgreementReport();
+		for (int i = 0; i < levels.size(); i++) {
+			Level level = levels.get(i);
+			IncrementalSolver solver = new IncrementalSolver(minPull);
+			solver.solve(level, threads);
+			List<Level> edits = new ArrayList<Level>();
+			List<GoalPost> goals = new ArrayList<GoalPost>(level
+					.getGoalPosts());
+			if (!goals.isEmpty()) {
+				GoalPost g = goals.get(0);
+				goals.set(0, new GoalPost((int) g.getCenterX() + 12, (int) g
+						.getCenterY() - 9, g.getRadius()));
+				edits.add(edit(level, level.getBodies(), goals));
+			}
+			List<Body> bodies = new ArrayList<Body>(level.getBodies());
+			for (int j = 0; j < bodies.size(); j++) {
+				Body b = bodies.get(j);
+				if (b.getMoons().isEmpty()) {
+					bodies.set(j, new Body((int) b.getCenterX() + 10, (int) b
+							.getCenterY() + 10, b.getRadius(), b.getColor(),
+							b.getMass()));
+					edits.add(edit(level, bodies, level.getGoalPosts()));
+					break;
+				}
+			}
+			for (int e = 0; e < edits.size(); e++) {
+				Level edited = edits.get(e);
+				SolutionSet found = solver.solve(edited, threads);
+				SolutionSet exact = LevelSolver.getSolutionSet(edited, 0,
+						threads);
+				report.add(String.format("level %d, %s moved", i + 1,
+						(e == 0 && !goals.isEmpty()) ? "goal" : "body"),
+						edited, exact, found, solver.getShotsFlown());
+			}
+		}
+		report.printTotals();
+	}
+
+	private static Level edit(Level level, List<Body> bodies,
+			List<GoalPost> goals) {
+		Ball ball = level.getBall();
+		return new Level(new Ball((int) ball.getCenterX(), (int) ball
+				.getCenterY(), ball.getRadius(), ball.getColor()), bodies,
+				level.getWarpPoints(), goals, level.getBlockages(), level
+						.getFollowFactor(), level.getGravityStrength());
+	}
+
+	/**
+	 * Creates a solver whose results match the brute force.
+	 */
+	public IncrementalSolver() {
+		this(0);
+	}
+
+	/**
+	 * Creates a solver ignoring edited bodies whose pull on a shot is below
+	 * the given threshold.
+	 * @param minPull the smallest pull taken into account, in pixels per
+	 *        tick squared, or 0 to take every pull into account
+	 */
+	public IncrementalSolver(double minPull) {
+		if (!(minPull >= 0))
+			throw new IllegalArgumentException("The threshold cannot be "
+					+ "negative.");
+		this.minPull = minPull;
+	}
+
+	/**
+	 * Computes the solutions of a version of the level, reusing the shots of
+	 * the last version solved that the differences cannot have changed. The
+	 * first call flies every shot. A solve still running in the background
+	 * is cancelled.
+	 * @param level the version to solve
+	 * @param threads the number of threads to fly the shots with
+	 * @return the points at which a shot is found to win
+	 */
+	public synchronized SolutionSet solve(Level level, int threads) {
+		cancelRunning();
+		Edit edit = new Edit(level);
+		float[] againBounds = new float[4 * edit.again.size()];
+		ShotEnding[] againEndings = LevelSolver.shotEndings(level,
+				edit.again, threads, null, againBounds);
+		commit(edit, againEndings, againBounds);
+		SolutionSet solutions = SolutionSet.forLevel(level);
+		for (int i = 0; i < shots.size(); i++) {
+			if (endings[i] == ShotEnding.WON)
+				solutions.add(shots.get(i).getIntegerPoint());
+		}
+		return solutions;
+	}
+
+	/**
+	 * Starts solving a version of the level in the background, as solve
+	 * does, cancelling the solve still running, if any. The handle starts
+	 * with the solutions kept from the last version solved, and the
+	 * listener, if any, is told about the ones found by the shots flown
+	 * again. The level is copied first (see Level.newSimulation), so it may
+	 * be changed during the solve. The next solve starts from this version
+	 * only if this one was not cancelled; otherwise it compares its level
+	 * with the last version solved completely.
+	 * @param level the version to solve
+	 * @param threads the number of threads to fly the shots with
+	 * @param listener the listener to report to, or null
+	 * @return the handle of the solve, to follow or cancel it
+	 */
+	public synchronized SolveHandle solveAsync(Level level, int threads,
+			SolveListener listener) {
+		cancelRunning();
+		Level copy = level.newSimulation(level.getTick());
+		final Edit edit = new Edit(copy);
+		SolutionSet kept = SolutionSet.forLevel(copy);
+		if (!edit.full) {
+			for (int i = 0; i < shots.size(); i++) {
+				if (!edit.flyAgain[i] && endings[i] == ShotEnding.WON)
+					kept.add(shots.get(i).getIntegerPoint());
+			}
+		}
+		final ShotEnding[] againEndings = new ShotEnding[edit.again.size()];
+		final float[] againBounds = new float[4 * edit.again.size()];
+		pending = edit;
+		running = LevelSolver.flyAsync(copy, edit.again, kept, againEndings,
+				againBounds, threads, listener, new Runnable() {
+					@Override
+					public void run() {
+						synchronized (IncrementalSolver.this) {
+							if (pending == edit) {
+								commit(edit, againEndings, againBounds);
+								pending = null;
+								running = null;
+							}
+						}
+					}
+				});
+		return running;
+	}
+
+	/**
+	 * Cancels the solve running in the background, if any; its results are
+	 * not kept.
+	 */
+	private void cancelRunning() {
+		if (running != null)
+			running.cancel();
+		running = null;
+		pending = null;
+	}
+
+	/**
+	 * The differences between a version of the level and the last one
+	 * solved: the shots to fly again, and what the version is compared by.
+	 */
+	private class Edit {
+		final List<Object> setting;
+		final List<Footprint> footprints;
+		final double[] extent;
+		final boolean full;
+		// every shot when solving from scratch
+		final List<Point2d> again = new ArrayList<Point2d>();
+		final List<Integer> slots = new ArrayList<Integer>();
+		final boolean[] flyAgain;
+
+		Edit(Level level) {
+			footprints = footprints(level);
+			extent = extent(footprints);
+			setting = setting(level);
+			full = !setting.equals(IncrementalSolver.this.setting)
+					|| !level.getForceField().isBoundedByNewtonian();
+			if (full) {
+				again.addAll(LevelSolver.launchPoints(level));
+				flyAgain = null;
+				return;
+			}
+			List<Footprint> changed = changed(IncrementalSolver.this.footprints,
+					footprints);
+			changed.addAll(changed(footprints,
+					IncrementalSolver.this.footprints));
+			// the warps send balls to each other
+			if (!ofKind(changed, WarpPoint.class).isEmpty()) {
+				changed.addAll(ofKind(IncrementalSolver.this.footprints,
+						WarpPoint.class));
+				changed.addAll(ofKind(footprints, WarpPoint.class));
+			}
+			boolean escapeChanged = !Arrays.equals(
+					IncrementalSolver.this.extent, extent);
+			double ballRadius = level.getBall().getRadius();
+			double[] ranges = new double[changed.size()];
+			for (int k = 0; k < ranges.length; k++) {
+				Footprint f = changed.get(k);
+				ranges[k] = f.reach + ballRadius;
+				if (f.strength != 0) {
+					ranges[k] = (minPull == 0) ? Double.POSITIVE_INFINITY
+							: ranges[k] + Math.sqrt(Math.abs(f.strength)
+									/ minPull);
+					escapeChanged = true;
+				}
+			}
+			flyAgain = new boolean[shots.size()];
+			for (int i = 0; i < shots.size(); i++) {
+				boolean fly = escapeChanged && endings[i] == ShotEnding.ESCAPED;
+				for (int k = 0; k < ranges.length && !fly; k++) {
+					Footprint f = changed.get(k);
+					fly = near(i, f.x, f.y, ranges[k]);
+				}
+				if (fly) {
+					again.add(shots.get(i));
+					slots.add(i);
+					flyAgain[i] = true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Makes the version of an edit the last one solved, given how its shots
+	 * flown again ended.
+	 */
+	private void commit(Edit edit, ShotEnding[] againEndings,
+			float[] againBounds) {
+		if (edit.full) {
+			shots = edit.again;
+			endings = againEndings;
+			bounds = againBounds;
+		} else {
+			for (int k = 0; k < againEndings.length; k++) {
+				int i = edit.slots.get(k);
+				endings[i] = againEndings[k];
+				System.arraycopy(againBounds, 4 * k, bounds, 4 * i, 4);
+			}
+		}
+		shotsFlown = edit.again.size();
+		setting = edit.setting;
+		footprints = edit.footprints;
+		extent = edit.extent;
+	}
+
+	/**
+	 * Returns the number of shots flown by the last solve completed.
+	 * @return the number of shots flown
+	 */
+	public synchronized int getShotsFlown() {
+		return shotsFlown;
+	}
+
+	/**
+	 * Returns if the path of shot i came within a distance of a point.
+	 */
+	private boolean near(int i, double x, double y, double range) {
+		double dx = Math.max(Math.max(bounds[4 * i] - x, 0), x
+				- bounds[4 * i + 2]);
+		double dy = Math.max(Math.max(bounds[4 * i + 1] - y, 0), y
+				- bounds[4 * i + 3]);
+		return dx * dx + dy * dy <= range * range;
+	}
+
+	/**
+	 * Returns what else than its objects decides how a level's shots fly:
+	 * two versions with the same setting only differ in their objects.
+	 */
+	private static List<Object> setting(Level level) {
+		Ball ball = level.getBall();
+		return Arrays.<Object> asList(ball.getCenterX(), ball.getCenterY(),
+				ball.getRadius(), level.getFollowFactor(), level
+						.getGravityStrength(), level.getTickBudget(), level
+						.getTick(), level.getForceField(), level
+						.getIntegrator(), level.isFixedPoint());
+	}
+
+	/**
+	 * An object of a level: the circle it can occupy, its pull, and whatever
+	 * else tells it apart from other objects of its kind.
+	 */
+	private static class Footprint {
+		final Class<?> kind;
+		final double x, y, reach, strength;
+		final double[] details;
+
+		Footprint(Class<?> kind, double x, double y, double reach,
+				double strength, double... details) {
+			this.kind = kind;
+			this.x = x;
+			this.y = y;
+			this.reach = reach;
+			this.strength = strength;
+			this.details = details;
+		}
+
+		boolean sameAs(Footprint other) {
+			return kind == other.kind && x == other.x && y == other.y
+					&& reach == other.reach && strength == other.strength
+					&& Arrays.equals(details, other.details);
+		}
+	}
+
+	/**
+	 * Returns the objects of a level.
+	 */
+	private static List<Footprint> footprints(Level level) {
+		List<Footprint> footprints = new ArrayList<Footprint>();
+		double g = level.getGravityStrength();
+		for (Body b : level.getBodies()) {
+			footprints.add(new Footprint(Body.class, b.getCenterX(), b
+					.getCenterY(), b.getRadius(), g * b.getMass()));
+			for (Moon m : b.getMoons()) {
+				Moon.Orbit orbit = m.getOrbit(g);
+				footprints.add(new Footprint(Moon.class, orbit.getCenterX(),
+						orbit.getCenterY(), orbit.getReach(), g * m.getMass(),
+						m.getRadius(), orbit.getX(0), orbit.getY(0)));
+			}
+		}
+		for (GoalPost p : level.getGoalPosts()) {
+			footprints.add(new Footprint(GoalPost.class, p.getCenterX(), p
+					.getCenterY(), p.getRadius(), 0));
+		}
+		for (WarpPoint w : level.getWarpPoints()) {
+			footprints.add(new Footprint(WarpPoint.class, w.getCenterX(), w
+					.getCenterY(), w.getRadius(), 0));
+		}
+		for (Blockage b : level.getBlockages()) {
+			// to the farthest corner: editor boxes can be a pixel off center
+			double cx = b.getCenterX(), cy = b.getCenterY();
+			double left = b.getDrawX(), top = b.getDrawY();
+			double right = left + b.getDrawXSize();
+			double bottom = top + b.getDrawYSize();
+			double reach = Math.hypot(Math.max(cx - left, right - cx), Math
+					.max(cy - top, bottom - cy));
+			footprints.add(new Footprint(Blockage.class, cx, cy, reach, 0,
+					left, top, right, bottom));
+		}
+		return footprints;
+	}
+
+	/**
+	 * Returns the objects of a that are not in b, counting duplicates.
+	 */
+	private static List<Footprint> changed(List<Footprint> a, List<Footprint> b) {
+		List<Footprint> rest = new ArrayList<Footprint>(b);
+		List<Footprint> changed = new ArrayList<Footprint>();
+		for (Footprint f : a) {
+			boolean found = false;
+			for (int k = 0; k < rest.size() && !found; k++) {
+				if (f.sameAs(rest.get(k))) {
+					rest.remove(k);
+					found = true;
+				}
+			}
+			if (!found)
+				changed.add(f);
+		}
+		return changed;
+	}
+
+	private static List<Footprint> ofKind(List<Footprint> footprints,
+			Class<?> kind) {
+		List<Footprint> matching = new ArrayList<Footprint>();
+		for (Footprint f : footprints) {
+			if (f.kind == kind)
+				matching.add(f);
+		}
+		return matching;
+	}
+
+	/**
+	 * Returns the box {left, top, right, bottom} around every object.
+	 */
+	private static double[] extent(List<Footprint> footprints) {
+		double[] box = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+				Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+		for (Footprint f : footprints) {
+			box[0] = Math.min(box[0], f.x - f.reach);
+			box[1] = Math.min(box[1], f.y - f.reach);
+			box[2] = Math.max(box[2], f.x + f.reach);
+			box[3] = Math.max(box[3], f.y + f.reach);
+		}
+		return box;
+	}
+
+}
@@ -40,6 +40,11 @@ class LevelPanel extends JPanel implements ActionListener, MouseListener,
 	double followFactor = 5.0;
 	double screenXShift, screenYShift;
 
+	// solutions of the level as edited, re-solved in the background after
+	// each edit
+	IncrementalSolver solver = new IncrementalSolver();
+	SolveHandle solving;
+
 	// Menu Components
 	JMenuBar menuBar = new JMenuBar();
 	JMenu controlMenu = new JMenu("Control");
@@ -47,6 +52,7 @@ class LevelPanel extends JPanel implements ActionListener, MouseListener,
 	JRadioButtonMenuItem editItem = new JRadioButtonMenuItem(
 			"Remove objects mode");
 	JMenuItem resetLevelItem = new JMenuItem("Reset level");
+	JCheckBoxMenuItem solutionsItem = new JCheckBoxMenuItem("Show solutions");
 	JMenu levelMenu = new JMenu("Level Constants");
 	JMenuItem gravityItem = new JMenuItem("Edit gravity strength factor");
 	JMenuItem followItem = new JMenuItem("Edit follow factor");
@@ -107,6 +113,9 @@ class LevelPanel extends JPanel implements ActionListener, MouseListener,
 		controlMenu.addSeparator();
 		controlMenu.add(resetLevelItem);
 		resetLevelItem.addActionListener(this);
+		controlMenu.addSeparator();
+		controlMenu.add(solutionsItem);
+		solutionsItem.addActionListener(this);
 
 		menuBar.add(levelMenu);
 		menuBar.add(itemMenu);
@@ -206,7 +215,7 @@ class LevelPanel extends JPanel implements ActionListener, MouseListener,
 					released = false;
 				}
 
-				if (currentLevel.timeToReset() || currentLevel.inGoalPost()) {
+				if (currentLevel.getLastOutcome().endsShot()) {
 					currentLevel.reset();
 					ball = currentLevel.getBall();
 					p1 = null;
@@ -214,6 +223,7 @@ class LevelPanel extends JPanel implements ActionListener, MouseListener,
 				}
 
 				currentLevel.updateLevel();
+				currentLevel.placeMoons();
 				xShift = (int) Math.round(screenXShift);
 				yShift = (int) Math.round(screenYShift);
 
@@ -242,6 +252,10 @@ class LevelPanel extends JPanel implements ActionListener, MouseListener,
 		for (Blockage b : blockages) {
 			b.draw(xShift, yShift, g);
 		}
+		if (solving != null) {
+			g.setColor(Color.GREEN);
+			solving.getSolutions().draw(xShift, yShift, g);
+		}
 		if (ball != null) {
 			g.setColor(ball.getColor());
 			g.fillOval(
@@ -337,10 +351,48 @@ class LevelPanel extends JPanel implements ActionListener, MouseListener,
 		} else if (event.getSource() == resetLevelItem) {
 			reset();
 		}
+		if (event.getSource() == gravityItem
+				|| event.getSource() == followItem
+				|| event.getSource() == solutionsItem)
+			updateSolutions();
 		p1 = null;
 		p2 = null;
 	}
 
+	/**
+	 * Solves the level as it is now in the background if the solutions are
+	 * shown, cancelling the solve of the previous version. Only the shots
+	 * near what changed since the last version solved are flown again, and
+	 * the solutions are drawn as they are found.
+	 */
+	public void updateSolutions() {
+		if (solving != null)
+			solving.cancel();
+		if (!solutionsItem.isSelected() || ball == null) {
+			solving = null;
+			return;
+		}
+		// the lists are copied so that edits do not touch the level solved,
+		// and the ball is put back where it starts in case it is flying
+		Point2d start = ball.getStartingLocation();
+		Ball startBall = new Ball(start.x(), start.y(), ball.getRadius(), ball
+				.getColor());
+		Level level = new Level(startBall, new ArrayList<Body>(bodies),
+				new ArrayList<WarpPoint>(warps), new ArrayList<GoalPost>(
+						goals), new ArrayList<Blockage>(blockages),
+				followFactor, gravityStrength);
+		solving = solver.solveAsync(level, Runtime.getRuntime()
+				.availableProcessors(), new SolveListener() {
+			public void solved(List<Point> wins, SolveHandle handle) {
+				repaint();
+			}
+
+			public void finished(SolveHandle handle) {
+				repaint();
+			}
+		});
+	}
+
 	public void reset() {
 		currentLevel.reset();
 		ball = currentLevel.getBall();
@@ -397,6 +449,7 @@ class LevelPanel extends JPanel implements ActionListener, MouseListener,
 					followFactor, gravityStrength);
 			p1 = null;
 			p2 = null;
+			updateSolutions();
 
 		} catch (Exception e) {
 			// Error occurred; do nothing
@@ -465,6 +518,7 @@ class LevelPanel extends JPanel implements ActionListener, MouseListener,
 					break;
 				}
 			}
+			updateSolutions();
 		}
 	}
 
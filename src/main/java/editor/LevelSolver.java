@@ -12,13 +12,14 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Scanner;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import structures.Ball;
 import structures.Level;
 import structures.Point2d;
+import structures.ShotBatch;
+import structures.ShotEnding;
 
 /**
  * Utility for computing the solutions of levels in parallel. The main method
@@ -52,10 +53,7 @@ public class LevelSolver {
 			List<Level> levels = new DataHandler().getLevelData("levels/levels.txt");	
 			for(int i = 0; i < levels.size(); i++) {
 				System.out.println("Reading level " + (i+1) + ".");
-				File f = new File("levels/data/level" + (i+1) + ".txt");
-				PrintWriter pw = new PrintWriter(f);
-				LevelSolver.printSolutionSet(levels.get(i), pw);
-				pw.close();
+				saveSolutionSet(levels.get(i), "levels/data/level" + (i+1) + ".bin");
 			}
 			
 			
@@ -66,10 +64,7 @@ public class LevelSolver {
 			for(int i = 1; i < args.length; i++) {
 				int level = Integer.parseInt(args[i]);
 				System.out.println("Reading level " + level + ".");
-				File f = new File("levels/data/level" + level + ".txt");
-				PrintWriter pw = new PrintWriter(f);
-				LevelSolver.printSolutionSet(levels.get(level - 1), pw);
-				pw.close();
+				saveSolutionSet(levels.get(level - 1), "levels/data/level" + level + ".bin");
 			}			
 			
 			
@@ -80,10 +75,7 @@ public class LevelSolver {
 			for(int i = 2; i < args.length; i++) {
 				int level = Integer.parseInt(args[i]);
 				System.out.println("Reading level " + level + ".");
-				File f = new File(outDir + "/level" + level + ".txt");
-				PrintWriter pw = new PrintWriter(f);
-				LevelSolver.printSolutionSet(levels.get(i), pw);
-				pw.close();
+				saveSolutionSet(levels.get(i), outDir + "/level" + level + ".bin");
 			}		
 			
 		}
@@ -91,91 +83,308 @@ public class LevelSolver {
 		
 	}
 
-	private static final int MAX = GamePanel.MaxInitialMagnitude;	
+	static final int MAX = GamePanel.MaxInitialMagnitude;	
 	
 	/**
-	 * Computes all solutions to the level and returns in the points in a List.
+	 * Computes all solutions to the level and returns the points in a set.
 	 * @param level the level to solve
 	 * @return all points such that level.possibleWin(p) returns true
 	 */
-	public static Collection<java.awt.Point> getSolutionSet(Level level) {
-		Ball ball = level.getBall();
-		List<Task> tasks = new ArrayList<Task>();
-		
-		// iterate over all possible x values
-		int leftX = (int) (ball.getCenter().x() - MAX);
-		int rightX = (int) (ball.getCenter().x() + MAX);
-		for (int x = leftX; x <= rightX; x++) {
-			if (xOutOfBounds(level, x)) {
-				continue;
-			}
+	public static SolutionSet getSolutionSet(Level level) {
+		return getSolutionSet(level, 0);
+	}
 
-			// iterate over all possible y values
-			int bottomY = (int) (ball.getCenter().y() - MAX);
-			int topY = (int) (ball.getCenter().y() + MAX);
-			List<Point2d> points = new ArrayList<Point2d>();
-			for (int y = bottomY; y <= topY; y++) {
-				points.add(new Point2d(x, y));
-			}
-			tasks.add(new LevelSolver().new Task(level, points));
+	/**
+	 * Computes all solutions to the level, summing the gravity of the bodies
+	 * through a precomputed grid. Shots that pass close to the edge of a body
+	 * or goal may be classified differently than with the exact field. The
+	 * grid is built for a copy of the level, so the level itself keeps its
+	 * gravity.
+	 * @param level the level to solve
+	 * @param gridError the error bound of the gravity grid, or 0 to use the
+	 *        level as it is
+	 * @return all points such that level.possibleWin(p) returns true
+	 */
+	public static SolutionSet getSolutionSet(Level level,
+			double gridError) {
+		return getSolutionSet(level, gridError, Runtime.getRuntime()
+				.availableProcessors());
+	}
+
+	/**
+	 * Computes all solutions to the level with a given number of threads.
+	 * The launch points are split in halves until the pieces are small enough
+	 * to be flown in a few batches; idle threads steal the pieces not yet
+	 * started, so the work spreads evenly however it is distributed over the
+	 * disc. Each thread flies all of its pieces in the same ShotBatch. The
+	 * solutions are the same for any number of threads, in the same order.
+	 * @param level the level to solve
+	 * @param gridError the error bound of the gravity grid, or 0 to use the
+	 *        level as it is
+	 * @param threads the number of threads to solve with
+	 * @return all points such that level.possibleWin(p) returns true
+	 */
+	public static SolutionSet getSolutionSet(Level level,
+			double gridError, int threads) {
+		if (gridError > 0) {
+			level = level.newSimulation(level.getTick());
+			level.buildGravityGrid(gridError);
+		}
+		List<Point2d> shots = launchPoints(level);
+		boolean[] wins = possibleWins(level, shots, threads);
+		SolutionSet solutions = SolutionSet.forLevel(level);
+		for (int i = 0; i < wins.length; i++) {
+			if (wins[i])
+				solutions.add(shots.get(i).getIntegerPoint());
 		}
+		return solutions;
+	}
+
+	/**
+	 * Returns, for each launch point, if level.possibleWin returns true for
+	 * it, flying the shots on a pool of the given number of threads.
+	 */
+	static boolean[] possibleWins(Level level, List<Point2d> shots,
+			int threads) {
+		ShotEnding[] endings = shotEndings(level, shots, threads);
+		boolean[] wins = new boolean[endings.length];
+		for (int i = 0; i < endings.length; i++) {
+			wins[i] = endings[i] == ShotEnding.WON;
+		}
+		return wins;
+	}
+
+	/**
+	 * Returns how the shot from each launch point ends (see
+	 * ShotBatch.shotEndings), flying the shots on a pool of the given number
+	 * of threads.
+	 */
+	static ShotEnding[] shotEndings(Level level, List<Point2d> shots,
+			int threads) {
+		return shotEndings(level, shots, threads, null, null);
+	}
+
+	/**
+	 * Returns how the shot from each launch point ends, storing the source
+	 * hit by each shot in crashed and the box around its path in bounds if
+	 * they are not null (see ShotBatch.shotEndings).
+	 */
+	static ShotEnding[] shotEndings(final Level level, List<Point2d> shots,
+			int threads, int[] crashed, float[] bounds) {
+		if (threads < 1)
+			throw new IllegalArgumentException("At least one thread is "
+					+ "needed.");
+		ShotEnding[] endings = new ShotEnding[shots.size()];
+		ThreadLocal<ShotBatch> batches = new ThreadLocal<ShotBatch>() {
+			@Override
+			protected ShotBatch initialValue() {
+				return new ShotBatch(level, MAX);
+			}
+		};
 
 		// parallel computations:
-		ExecutorService executor = Executors.newCachedThreadPool();  
-		for (Task t : tasks)
-			executor.execute(t);
-		executor.shutdown();
-		
+		ForkJoinPool pool = new ForkJoinPool(threads);
 		try {
-			executor.awaitTermination(1, TimeUnit.HOURS);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
+			pool.invoke(new Task(batches, shots, endings, crashed, bounds,
+					null, 0, shots.size()));
+		} finally {
+			pool.shutdown();
 		}
-  		
-  		List<java.awt.Point> solutions = new ArrayList<java.awt.Point>();
-  		for(Task t : tasks)
-  			solutions.addAll(t.getSolutions());
-		return solutions;
+		return endings;
 	}
-	
+
+	/**
+	 * Starts computing all solutions to the level in the background, on a
+	 * pool of the given number of threads. The launch points are flown in
+	 * the same pieces as by getSolutionSet; the listener, if any, is told
+	 * about the solutions in each piece as soon as it is done. The level is
+	 * copied first (see Level.newSimulation), so it may be played or changed
+	 * during the solve.
+	 * @param level the level to solve
+	 * @param threads the number of threads to solve with
+	 * @param listener the listener to report to, or null
+	 * @return the handle of the solve, to follow or cancel it
+	 */
+	public static SolveHandle solveAsync(Level level, int threads,
+			SolveListener listener) {
+		Level copy = level.newSimulation(level.getTick());
+		List<Point2d> shots = launchPoints(copy);
+		return flyAsync(copy, shots, SolutionSet.forLevel(copy),
+				new ShotEnding[shots.size()], null, threads, listener, null);
+	}
+
+	/**
+	 * Starts flying launch points of a level in the background, as
+	 * solveAsync does, adding the winning ones to the given solutions. How
+	 * each shot ends and the box around its path are stored in endings and
+	 * bounds (which may be null). Once every shot is flown, done, if not
+	 * null, is run before the solve ends, unless it was cancelled. Nothing
+	 * may change the level during the solve.
+	 */
+	static SolveHandle flyAsync(final Level level, List<Point2d> shots,
+			SolutionSet solutions, ShotEnding[] endings, float[] bounds,
+			int threads, SolveListener listener, Runnable done) {
+		if (threads < 1)
+			throw new IllegalArgumentException("At least one thread is "
+					+ "needed.");
+		SolveHandle handle = new SolveHandle(solutions, shots, listener);
+		ThreadLocal<ShotBatch> batches = new ThreadLocal<ShotBatch>() {
+			@Override
+			protected ShotBatch initialValue() {
+				return new ShotBatch(level, MAX);
+			}
+		};
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		pool.execute(new Solve(pool, handle, new Task(batches, shots,
+				endings, null, bounds, handle, 0, shots.size()), done));
+		return handle;
+	}
+
 	/*
-	 * Inner class for computing a list of test points.
+	 * Runs the tasks of a background solve and what is to be done after
+	 * them, then ends it, shutting its pool down.
 	 */
-	private class Task implements Runnable {
-		private static final double sqr = MAX * MAX;
-		private List<Point2d> inputPoints;
-		private List<Point> solutionPoints;
-		private Level level;
-		
-		public Task(Level level, List<Point2d> inputPoints) {
-			this.level = level;
-			this.inputPoints = inputPoints;
-			solutionPoints = new ArrayList<Point>();
+	private static class Solve extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final ForkJoinPool pool;
+		private final SolveHandle handle;
+		private final Task task;
+		private final Runnable done;
+
+		public Solve(ForkJoinPool pool, SolveHandle handle, Task task,
+				Runnable done) {
+			this.pool = pool;
+			this.handle = handle;
+			this.task = task;
+			this.done = done;
 		}
 
-		public void run() {
-			Ball ball = level.getBall();
+		@Override
+		protected void compute() {
+			Throwable failure = null;
+			try {
+				task.invoke();
+				if (done != null && !handle.isCancelled())
+					done.run();
+			} catch (Throwable e) {
+				// errors too, so that await does not pass a partial result
+				// off as complete
+				failure = e;
+			} finally {
+				pool.shutdown();
+				handle.finish(failure);
+			}
+		}
 
-			for (Point2d point : inputPoints) {
-				double x = point.x();
-				double y = point.y();
+	}
 
-				boolean outOfBounds = yOutOfBounds(level, y)
-						|| isOutOfBounds(level, ball.getCenter());
+	/**
+	 * Returns every on-screen point within reach of the ball, column by
+	 * column.
+	 */
+	static List<Point2d> launchPoints(Level level) {
+		Ball ball = level.getBall();
+		return launchPoints(level, (int) (ball.getCenterX() - MAX),
+				(int) (ball.getCenterX() + MAX) + 1);
+	}
 
-				boolean inShotRange = Math.pow(x - ball.getCenter().x(), 2)
-						+ Math.pow(y - ball.getCenter().y(), 2) <= sqr;
+	/**
+	 * Returns the launch points in the columns from fromX (inclusive) to toX
+	 * (exclusive), column by column.
+	 */
+	static List<Point2d> launchPoints(Level level, int fromX, int toX) {
+		Ball ball = level.getBall();
+		List<Point2d> shots = new ArrayList<Point2d>();
+
+		// iterate over all possible x values
+		int leftX = Math.max(fromX, (int) (ball.getCenterX() - MAX));
+		int rightX = Math.min(toX - 1, (int) (ball.getCenterX() + MAX));
+		for (int x = leftX; x <= rightX; x++) {
+			if (xOutOfBounds(level, x)) {
+				continue;
+			}
 
-				if (!outOfBounds && inShotRange) {
-					if (level.possibleWin(point, MAX)) {
-						solutionPoints.add(point.getIntegerPoint());
-					}
+			// iterate over all possible y values
+			int bottomY = (int) (ball.getCenterY() - MAX);
+			int topY = (int) (ball.getCenterY() + MAX);
+			for (int y = bottomY; y <= topY; y++) {
+				if (isLaunchPoint(level, x, y)) {
+					shots.add(new Point2d(x, y));
 				}
-			}			
+			}
 		}
-		
-		public Collection<Point> getSolutions() {
-			return solutionPoints;
+		return shots;
+	}
+
+	/**
+	 * Returns if a point is on screen and within reach of the ball, with the
+	 * ball itself on screen.
+	 */
+	static boolean isLaunchPoint(Level level, int x, int y) {
+		Ball ball = level.getBall();
+		double ballX = ball.getCenterX();
+		double ballY = ball.getCenterY();
+		if (xOutOfBounds(level, ballX) || yOutOfBounds(level, ballY))
+			return false;
+		double dx = x - ballX;
+		double dy = y - ballY;
+		return !xOutOfBounds(level, x) && !yOutOfBounds(level, y)
+				&& dx * dx + dy * dy <= MAX * MAX;
+	}
+
+	/*
+	 * Task for solving a range of launch points, split in half until it is
+	 * small enough.
+	 */
+	private static class Task extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private static final int Threshold = 4 * ShotBatch.DefaultLanes;
+		private final ThreadLocal<ShotBatch> batches;
+		private final List<Point2d> shots;
+		private final ShotEnding[] endings;
+		private final int[] crashed;
+		private final float[] bounds;
+		// the background solve to report to, or null
+		private final SolveHandle handle;
+		private final int from, to;
+
+		public Task(ThreadLocal<ShotBatch> batches, List<Point2d> shots,
+				ShotEnding[] endings, int[] crashed, float[] bounds,
+				SolveHandle handle, int from, int to) {
+			this.batches = batches;
+			this.shots = shots;
+			this.endings = endings;
+			this.crashed = crashed;
+			this.bounds = bounds;
+			this.handle = handle;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (handle != null && handle.isCancelled())
+				return;
+			if (to - from <= Threshold) {
+				ShotEnding[] found = new ShotEnding[to - from];
+				int[] sources = (crashed == null) ? null : new int[to - from];
+				float[] boxes = (bounds == null) ? null : new float[4 * (to
+						- from)];
+				batches.get().shotEndings(shots.subList(from, to), found,
+						sources, boxes);
+				System.arraycopy(found, 0, endings, from, found.length);
+				if (sources != null)
+					System.arraycopy(sources, 0, crashed, from, sources.length);
+				if (boxes != null)
+					System.arraycopy(boxes, 0, bounds, 4 * from, boxes.length);
+				if (handle != null)
+					handle.completed(from, found);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new Task(batches, shots, endings, crashed, bounds,
+					handle, from, middle), new Task(batches, shots, endings,
+					crashed, bounds, handle, middle, to));
 		}
 
 	}
@@ -202,6 +411,34 @@ public class LevelSolver {
 		printSolutionSet(getSolutionSet(level), pw);
 	}
 
+	/**
+	 * Computes the level data and writes it to a solution bitmap file (see
+	 * SolutionBitmap).
+	 * @param level the Level to solve
+	 * @param fileName the name of the file, by convention ending in .bin
+	 * @throws IOException if the file could not be written
+	 */
+	public static void saveSolutionSet(Level level, String fileName)
+			throws IOException {
+		SolutionBitmap.write(getSolutionSet(level), new File(fileName));
+	}
+
+	/**
+	 * Loads a solution set from a solution bitmap file if its name ends in
+	 * .bin, and from a text file, as written by printSolutionSet, otherwise.
+	 * A bitmap file is mapped, not read: the set answers queries from the
+	 * file until it is first changed.
+	 * @param fileName the name of the file
+	 * @return the solution points for the level
+	 * @throws IOException if the file could not be read
+	 */
+	public static SolutionSet loadSolutionSet(String fileName)
+			throws IOException {
+		if (fileName.endsWith(".bin"))
+			return new SolutionSet(SolutionBitmap.map(new File(fileName)));
+		return new SolutionSet(readSolutionSet(fileName));
+	}
+
 	/**
 	 * Reads in a solution set from a file.
 	 * @param fileName the file to read from
@@ -234,9 +471,4 @@ public class LevelSolver {
 		return  onTop || onBottom;
 	}
 
-	private static boolean isOutOfBounds(Level level, Point2d center) {
-		return xOutOfBounds(level, center.x())
-			|| yOutOfBounds(level, center.y());
-	}
-
 }
\ No newline at end of file
@@ -0,0 +1,230 @@
+package editor;
+
+import game.DataHandler;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import structures.Ball;
+import structures.Level;
+import structures.Point2d;
+import structures.ShotEnding;
+
+/**
+ * Solves a level by sampling launches instead of launch pixels. Every shot
+ * leaves from the same point, so a launch is only an angle and a magnitude
+ * of at most the maximum. The solver flies one shot per point of a polar
+ * grid of angles and magnitudes. A launch pixel in a cell of the grid whose
+ * four samples end the same way (see ShotBatch.shotEndings), with the cells
+ * within the margin around it agreeing as well, takes their result; the
+ * other pixels, near the edges of the regions of outcomes, are flown
+ * themselves, as in AdaptiveSolver. The result is a set of pixels, in the
+ * same order as LevelSolver.getSolutionSet, so it can be printed with
+ * printSolutionSet and read with readSolutionSet as before.
+ * <p>
+ * The angular resolution sets the spacing of the samples along the rim of
+ * the launch disc (pixels near the ball are sampled more densely than
+ * that), the radial one their spacing in magnitude. Coarser grids fly fewer
+ * samples but leave more pixels to fly, and may step over regions narrower
+ * than a cell of the grid; a larger margin flies more pixels around the
+ * cells that disagree and steps over fewer. The main method measures the
+ * agreement with the brute force on a file of levels.
+ * <p>
+ * This solver is dominated by AdaptiveSolver. On stock levels 1, 2, 9, 26
+ * and 36 the defaults got 19 of 16,768 solutions wrong while flying about
+ * a third more shots than AdaptiveSolver, which got 16 wrong; with no
+ * margin it got 456 wrong. It is kept for comparison and is not used by the
+ * game or the editor.
+ */
+public class PolarSolver {
+
+	/**
+	 * The default number of angles sampled.
+	 */
+	public static final int DefaultAngles = 512;
+
+	/**
+	 * The default number of magnitudes sampled.
+	 */
+	public static final int DefaultMagnitudes = 75;
+
+	/**
+	 * The default number of grid cells, in angle and in magnitude, around a
+	 * cell with disagreeing samples whose pixels are flown with it.
+	 */
+	public static final int DefaultMargin = 1;
+
+	private static final int MAX = LevelSolver.MAX;
+
+	/**
+	 * Args: [levels file] [angles] [magnitudes] [margin]. Solves every level of the
+	 * file (by default the stock levels) both on a polar grid and by brute
+	 * force and prints how well they agree and how many shots were saved.
+	 */
+	public static void main(String[] args) throws IOException {
+		String file = (args.length > 0) ? args[0]
+				: "src/resources/levels/levels.txt";
+		int angles = (args.length > 1) ? Integer.parseInt(args[1])
+				: DefaultAngles;
+		int magnitudes = (args.length > 2) ? Integer.parseInt(args[2])
+				: DefaultMagnitudes;
+		int margin = (args.length > 3) ? Integer.parseInt(args[3])
+				: DefaultMargin;
+		int threads = Runtime.getRuntime().availableProcessors();
+		List<Level> levels = new DataHandler().getLevelData(file);
+		AgreementReport report = new AgreementReport();
+		for (int i = 0; i < levels.size(); i++) {
+			Level level = levels.get(i);
+			SolutionSet exact = LevelSolver.getSolutionSet(level, 0, threads);
+			PolarSolver solver = new PolarSolver(level, angles, magnitudes,
+					margin);
+			SolutionSet found = solver.solve(threads);
+			report.add("level " + (i + 1), level, exact, found, solver
+					.getShotsFlown());
+		}
+		report.printTotals();
+	}
+
+	private final Level level;
+	private final int angles, magnitudes, margin;
+	private int shotsFlown;
+
+	/**
+	 * Creates a solver for a level, sampling the angles 2 pi k / angles and
+	 * the magnitudes max (j + 1) / magnitudes.
+	 * @param level the level to solve
+	 * @param angles the number of angles sampled
+	 * @param magnitudes the number of magnitudes sampled
+	 * @param margin the number of cells around a cell with disagreeing
+	 *        samples whose pixels are flown with it
+	 */
+	public PolarSolver(Level level, int angles, int magnitudes, int margin) {
+		if (angles < 1 || magnitudes < 2)
+			throw new IllegalArgumentException("At least one angle and two "
+					+ "magnitudes must be sampled.");
+		if (margin < 0)
+			throw new IllegalArgumentException("The margin cannot be "
+					+ "negative.");
+		this.level = level;
+		this.angles = angles;
+		this.magnitudes = magnitudes;
+		this.margin = margin;
+	}
+
+	/**
+	 * Computes the solutions of a level with the default resolution.
+	 * @param level the level to solve
+	 * @return the points at which a shot is found to win
+	 */
+	public static SolutionSet getSolutionSet(Level level) {
+		return new PolarSolver(level, DefaultAngles, DefaultMagnitudes,
+				DefaultMargin).solve(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Computes the solutions of the level, in the same order as
+	 * LevelSolver.getSolutionSet.
+	 * @param threads the number of threads to fly the shots with
+	 * @return the points at which a shot is found to win
+	 */
+	public SolutionSet solve(int threads) {
+		Ball ball = level.getBall();
+		double ballX = ball.getCenterX();
+		double ballY = ball.getCenterY();
+		List<Point2d> shots = new ArrayList<Point2d>(angles * magnitudes);
+		for (int k = 0; k < angles; k++) {
+			double angle = 2 * Math.PI * k / angles;
+			double cos = Math.cos(angle);
+			double sin = Math.sin(angle);
+			for (int j = 0; j < magnitudes; j++) {
+				double r = MAX * (j + 1.0) / magnitudes;
+				// screen y points down, as in CalcHelp.getAngle
+				shots.add(new Point2d(ballX + r * cos, ballY - r * sin));
+			}
+		}
+		int[] crashed = new int[shots.size()];
+		ShotEnding[] endings = LevelSolver.shotEndings(level, shots, threads,
+				crashed, null);
+		int[] regions = new int[shots.size()];
+		for (int i = 0; i < regions.length; i++) {
+			regions[i] = AdaptiveSolver.region(endings[i], crashed[i]);
+		}
+		int won = AdaptiveSolver.region(ShotEnding.WON, -1);
+		// cell (k, j) lies between angles k and k + 1 and magnitudes j and
+		// j + 1; the cells of the last magnitude only span an angle
+		boolean[] mixed = new boolean[angles * magnitudes];
+		for (int k = 0; k < angles; k++) {
+			int k1 = (k + 1) % angles;
+			for (int j = 0; j < magnitudes; j++) {
+				int j1 = Math.min(j + 1, magnitudes - 1);
+				int region = regions[k * magnitudes + j];
+				mixed[k * magnitudes + j] = regions[k * magnitudes + j1]
+						!= region || regions[k1 * magnitudes + j] != region
+						|| regions[k1 * magnitudes + j1] != region;
+			}
+		}
+
+		// pixels in or near cells whose samples end differently are flown
+		// exactly
+		List<Point2d> pixels = LevelSolver.launchPoints(level);
+		boolean[] wins = new boolean[pixels.size()];
+		List<Point2d> exact = new ArrayList<Point2d>();
+		List<Integer> slots = new ArrayList<Integer>();
+		for (int i = 0; i < pixels.size(); i++) {
+			Point2d p = pixels.get(i);
+			double dx = p.x() - ballX;
+			double dy = p.y() - ballY;
+			double angle = Math.atan2(-dy, dx) * angles / (2 * Math.PI);
+			double ring = Math.hypot(dx, dy) * magnitudes / MAX - 1;
+			int k0 = (int) Math.floor(angle);
+			k0 = ((k0 % angles) + angles) % angles;
+			int j0 = Math.max(0, Math.min((int) Math.floor(ring),
+					magnitudes - 1));
+			if (!nearMixed(mixed, k0, j0)) {
+				wins[i] = regions[k0 * magnitudes + j0] == won;
+			} else {
+				exact.add(p);
+				slots.add(i);
+			}
+		}
+		boolean[] exactWins = LevelSolver.possibleWins(level, exact, threads);
+		for (int i = 0; i < exactWins.length; i++) {
+			wins[slots.get(i)] = exactWins[i];
+		}
+		shotsFlown = shots.size() + exact.size();
+
+		SolutionSet solutions = SolutionSet.forLevel(level);
+		for (int i = 0; i < pixels.size(); i++) {
+			if (wins[i])
+				solutions.add(pixels.get(i).getIntegerPoint());
+		}
+		return solutions;
+	}
+
+	/**
+	 * Returns if a cell or one of those within the margin around it has
+	 * disagreeing samples.
+	 */
+	private boolean nearMixed(boolean[] mixed, int k, int j) {
+		for (int a = -Math.min(margin, angles / 2); a <= Math.min(margin,
+				(angles - 1) / 2); a++) {
+			int ka = ((k + a) % angles + angles) % angles;
+			for (int b = Math.max(j - margin, 0); b <= Math.min(j + margin,
+					magnitudes - 1); b++) {
+				if (mixed[ka * magnitudes + b])
+					return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the number of shots flown by the last call to solve.
+	 * @return the number of shots flown
+	 */
+	public int getShotsFlown() {
+		return shotsFlown;
+	}
+
+}
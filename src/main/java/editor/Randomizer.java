@@ -11,6 +11,11 @@ import java.awt.Color;
  */
 public final class Randomizer {
 
+	/**
+	 * The closest a random goal may be to the edge of the screen, in pixels.
+	 */
+	public static final int GoalEdgeDistance = 100;
+
 	/**
 	 * Returns a random Level. It is guaranteed that this level will be possible
 	 * to solve.
@@ -25,19 +30,21 @@ public final class Randomizer {
 		double gravityStrength = CalcHelp.gaussianDoubleInRange(1.5, 0.5, 0.75,
 				2.0);
 
-		ArrayList<GoalPost> goals = new ArrayList<GoalPost>();
-		GoalPost goal = placeGoal(ball, bodies, followFactor, gravityStrength);
-		if (goal == null) // no good spot for goal, try again
-			return randomLevel();
-
-		goals.add(goal);
-		return new Level(ball, bodies, warps, goals, blockages, followFactor,
+		Level level = placeGoal(ball, bodies, warps, blockages, followFactor,
 				gravityStrength);
+		if (level == null) // no good spot for goal, try again
+			return randomLevel();
+		return level;
 	}
 
-	/** Returns an intelligent place for the goal to go */
-	private static GoalPost placeGoal(Ball ball, ArrayList<Body> bodies, double ff,
-			double g) {
+	/**
+	 * Returns the level with an intelligent place for the goal to go, or null
+	 * if there is none. The trial shots fly exactly like the game's, and the
+	 * chosen goal is checked with possibleWin.
+	 */
+	private static Level placeGoal(Ball ball, ArrayList<Body> bodies,
+			ArrayList<WarpPoint> warps, ArrayList<Blockage> blockages,
+			double ff, double g) {
 
 		final int Radius = 15;
 		/*
@@ -45,15 +52,26 @@ public final class Randomizer {
 		 * Simulate the launching and track the ball - If a point the ball is at
 		 * is far enough, add it to a master list - Once enough level ticks have
 		 * been done or the ball crashes, stop - After all points tested, pick a
-		 * random point from the list
+		 * random point from the list whose shot wins
 		 */
 
 		List<Point2d> possibleGoalPoints = new ArrayList<Point2d>();
+		// the launch point of the shot that passed each goal point
+		List<Point2d> goalLaunchPoints = new ArrayList<Point2d>();
+		// scratch point for the per-tick checks; only accepted points are
+		// copied into the list
+		MutablePoint2d curPoint = new MutablePoint2d();
+		double minDist = Math.hypot(0.5 * GamePanel.Width,
+				0.5 * GamePanel.Height);
 
 		int toCheck = 1000;
 		for (int i = 0; i < toCheck; i++) {
 			int r = GamePanel.MaxInitialMagnitude;
 			Level tempLevel = new Level(ball, bodies, null, null, null, ff, g);
+			// stop once the ball cannot come back to where goals may go
+			tempLevel.setEscapeBox(GoalEdgeDistance, GoalEdgeDistance,
+					GamePanel.Width - GoalEdgeDistance, GamePanel.Height
+							- GoalEdgeDistance);
 
 			Point2d launchPoint = null;
 			do {
@@ -61,8 +79,8 @@ public final class Randomizer {
 			} while (!tempLevel.onScreen(launchPoint));
 
 			// compute launch parameters
-			Point2d ballStart = new Point2d(ball.getCenter().x(),
-					ball.getCenter().y());
+			double ballStartX = ball.getCenterX();
+			double ballStartY = ball.getCenterY();
 			double launchMagnitude = ball.getCenter().distance(launchPoint);
 			double launchAngle = CalcHelp.getAngle(ball.getCenter(),
 					launchPoint);
@@ -75,50 +93,59 @@ public final class Randomizer {
 			ball.setLaunched(true);
 
 			// simulate game-play
-			int ticks = 0;
-			while (ticks < 10000 && !tempLevel.timeToReset()) {
+			TickOutcome outcome = TickOutcome.FLYING;
+			while (tempLevel.getTime() < 10000 && !outcome.requiresReset()
+					&& !tempLevel.hasEscaped()) {
 
-				tempLevel.updateLevel();
+				outcome = tempLevel.advance();
 
 				// check distance from start:
-				double minDist = Math.hypot(0.5 * GamePanel.Width,
-						0.5 * GamePanel.Height);
-				boolean tooClose = ball.getCenter().withinDistance(ballStart,
-						minDist);
+				curPoint.set(ball.getCenterX(), ball.getCenterY());
+				boolean tooClose = curPoint.withinDistance(ballStartX,
+						ballStartY, minDist);
 				if (!tooClose) {
 
 					// check if on screen:
-					Point2d curPoint = new Point2d(ball.getCenter().x(),
-							ball.getCenter().y());
-					if (validGoalLocation(curPoint, tempLevel)) {
+					if (validGoalLocation(curPoint.x(), curPoint.y(),
+							tempLevel)) {
 
 						// check if overlapping a planet:
 						boolean planetOverlap = false;
-						for (Body b : bodies) {
-							if (b.getCenter().withinDistance(curPoint,
-									Radius + 10)) {
+						for (int j = 0; j < bodies.size(); j++) {
+							Body b = bodies.get(j);
+							if (curPoint.withinDistance(b.getCenterX(),
+									b.getCenterY(), Radius + 10)) {
 								planetOverlap = true;
 							}
 						}
 						// If all good- add the point to the master list
-						if (!planetOverlap)
-							possibleGoalPoints.add(curPoint);
+						if (!planetOverlap) {
+							possibleGoalPoints.add(curPoint.toPoint());
+							goalLaunchPoints.add(launchPoint);
+						}
 					}
 				}
 
-				ticks += 1;
 			} // end simulation loop
 
 			tempLevel.reset();
 		} // end potential point loop
 
-		int length = possibleGoalPoints.size();
-		if (length == 0) // i.e. no good points found, bad level design!
-			return null;
-
-		int randIndex = CalcHelp.randomInteger(0, possibleGoalPoints.size());
-		Point2d pick = possibleGoalPoints.get(randIndex);
-		return new GoalPost((int) pick.x(), (int) pick.y(), Radius);
+		// if no good points are found, bad level design!
+		while (!possibleGoalPoints.isEmpty()) {
+			int randIndex = CalcHelp.randomInteger(0,
+					possibleGoalPoints.size() - 1);
+			Point2d pick = possibleGoalPoints.remove(randIndex);
+			Point2d launchPoint = goalLaunchPoints.remove(randIndex);
+			ArrayList<GoalPost> goals = new ArrayList<GoalPost>();
+			goals.add(new GoalPost((int) pick.x(), (int) pick.y(), Radius));
+			Level level = new Level(ball, bodies, warps, goals, blockages, ff,
+					g);
+			if (level.possibleWin(launchPoint, GamePanel.MaxInitialMagnitude,
+					0))
+				return level;
+		}
+		return null;
 	}
 
 	private static Point2d randPointInCircle(Point2d center, double radius) {
@@ -134,13 +161,12 @@ public final class Randomizer {
 		return new Point2d(randX, randY);
 	}
 
-	private static boolean validGoalLocation(Point2d p, Level level) {
-		int edgeDist = 100;
-		boolean xInBounds = p.x() >= edgeDist
-				&& p.x() <= GamePanel.Width - edgeDist;
-		boolean yInBounds = p.y() >= edgeDist
-				&& p.y() <= GamePanel.Height - edgeDist;
-		return xInBounds && yInBounds && level.onScreen(p);
+	private static boolean validGoalLocation(double x, double y, Level level) {
+		boolean xInBounds = x >= GoalEdgeDistance
+				&& x <= GamePanel.Width - GoalEdgeDistance;
+		boolean yInBounds = y >= GoalEdgeDistance
+				&& y <= GamePanel.Height - GoalEdgeDistance;
+		return xInBounds && yInBounds && level.onScreen(x, y);
 	}
 
 	/** Returns a random Ball. */
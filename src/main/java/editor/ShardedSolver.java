@@ -0,0 +1,220 @@
+package editor;
+
+import game.DataHandler;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import structures.Level;
+import structures.Point2d;
+import structures.ShotEnding;
+
+/**
+ * Solves a file of levels in several processes, resuming where an earlier
+ * run stopped. Each level's launch disc is cut into tiles of TileColumns
+ * columns. Workers take tiles one at a time, each claiming its tile with a
+ * lock file in the output directory, and write the solutions of every tile
+ * they finish to its own bitmap file (see SolutionBitmap), under a
+ * temporary name renamed once complete. A tile with a file is never flown
+ * again, so a run that crashed or was stopped picks up from its finished
+ * tiles, and the workers can run on any machines sharing the directory.
+ * A lock older than StaleLockMillis is taken to belong to a worker that
+ * died and is claimed again; at worst a tile is flown twice. Once every
+ * tile of a level is done, its solutions are written as levelN.bin, as by
+ * LevelSolver.main.
+ */
+public class ShardedSolver {
+
+	/**
+	 * The number of columns of launch points in a tile.
+	 */
+	public static final int TileColumns = 64;
+
+	/**
+	 * How long a tile stays claimed by a worker that has not finished it, in
+	 * milliseconds; far longer than a tile takes to fly.
+	 */
+	public static final long StaleLockMillis = 60 * 1000;
+
+	/**
+	 * Args input syntax:
+	 *  - [levels file] [output directory] [workers] [levels...]
+	 *    - starts the given number of worker processes on this machine,
+	 *      waits for them and writes the solutions of every level solved
+	 *    - the levels are numbered from 1; by default all are solved
+	 *    - ex: levels/levels.txt levels/data 4 1 2 3
+	 *
+	 *  - put "WORK" first to run a single worker instead, e.g. on another
+	 *    machine sharing the output directory:
+	 *    - WORK [levels file] [output directory] [threads] [levels...]
+	 */
+	public static void main(String[] args) throws IOException,
+			InterruptedException {
+		boolean worker = args[0].equals("WORK");
+		int first = worker ? 1 : 0;
+		String levelsFile = args[first];
+		File dir = new File(args[first + 1]);
+		int count = Integer.parseInt(args[first + 2]);
+		List<Level> levels = new DataHandler().getLevelData(levelsFile);
+		List<Integer> numbers = new ArrayList<Integer>();
+		for (int i = first + 3; i < args.length; i++) {
+			numbers.add(Integer.parseInt(args[i]));
+		}
+		if (numbers.isEmpty()) {
+			for (int i = 1; i <= levels.size(); i++) {
+				numbers.add(i);
+			}
+		}
+		dir.mkdirs();
+
+		if (worker) {
+			int tiles = work(levels, numbers, dir, count);
+			System.out.println("Worker finished " + tiles + " tiles.");
+			return;
+		}
+		int threads = Math.max(1, Runtime.getRuntime().availableProcessors()
+				/ count);
+		List<Process> processes = new ArrayList<Process>();
+		for (int w = 0; w < count; w++) {
+			List<String> command = new ArrayList<String>();
+			command.add(System.getProperty("java.home") + File.separator
+					+ "bin" + File.separator + "java");
+			command.add("-cp");
+			command.add(System.getProperty("java.class.path"));
+			command.add(ShardedSolver.class.getName());
+			command.add("WORK");
+			command.add(levelsFile);
+			command.add(dir.getPath());
+			command.add(Integer.toString(threads));
+			for (int n : numbers) {
+				command.add(Integer.toString(n));
+			}
+			ProcessBuilder builder = new ProcessBuilder(command);
+			builder.redirectErrorStream(true);
+			builder.redirectOutput(ProcessBuilder.Redirect.INHERIT);
+			processes.add(builder.start());
+		}
+		for (Process p : processes) {
+			p.waitFor();
+		}
+		for (int n : numbers) {
+			if (merge(levels.get(n - 1), n, dir) == null)
+				System.out.println("Level " + n + " is not finished.");
+			else
+				System.out.println("Level " + n + " written.");
+		}
+		System.out.println("Finished.");
+	}
+
+	/**
+	 * Returns the number of tiles the launch disc of a level is cut into.
+	 * @param level the level
+	 * @return the number of tiles
+	 */
+	public static int tileCount(Level level) {
+		SolutionSet box = SolutionSet.forLevel(level);
+		return (box.getWidth() + TileColumns - 1) / TileColumns;
+	}
+
+	/**
+	 * Flies every tile of the given levels that is neither done nor claimed
+	 * by another worker, writing the results to the directory.
+	 * @param levels all levels of the file
+	 * @param numbers the numbers of the levels to solve, from 1
+	 * @param dir the output directory
+	 * @param threads the number of threads to fly each tile with
+	 * @return the number of tiles this worker finished
+	 * @throws IOException if a tile could not be written
+	 */
+	public static int work(List<Level> levels, List<Integer> numbers,
+			File dir, int threads) throws IOException {
+		int finished = 0;
+		for (int n : numbers) {
+			Level level = levels.get(n - 1);
+			File tiles = tileDirectory(dir, n);
+			tiles.mkdirs();
+			int leftX = SolutionSet.forLevel(level).getLeftX();
+			for (int t = 0; t < tileCount(level); t++) {
+				File tile = tileFile(dir, n, t);
+				File lock = new File(tiles, "tile" + t + ".lock");
+				if (tile.exists() || !claim(lock))
+					continue;
+				try {
+					if (tile.exists())
+						continue; // finished since it was checked
+					int fromX = leftX + t * TileColumns;
+					List<Point2d> shots = LevelSolver.launchPoints(level,
+							fromX, fromX + TileColumns);
+					ShotEnding[] endings = LevelSolver.shotEndings(level,
+							shots, threads);
+					SolutionSet solutions = SolutionSet.forLevel(level);
+					for (int i = 0; i < endings.length; i++) {
+						if (endings[i] == ShotEnding.WON)
+							solutions.add(shots.get(i).getIntegerPoint());
+					}
+					File partial = new File(tiles, "tile" + t + ".tmp");
+					SolutionBitmap.write(solutions, partial);
+					if (!partial.renameTo(tile))
+						throw new IOException("Unable to write " + tile + ".");
+					finished++;
+					System.out.println("Level " + n + ", tile " + (t + 1)
+							+ " of " + tileCount(level) + ": "
+							+ solutions.size() + " solutions.");
+				} finally {
+					lock.delete();
+				}
+			}
+		}
+		return finished;
+	}
+
+	/**
+	 * Combines the tiles of a level into its solution set and writes it to
+	 * levelN.bin in the directory, if every tile is done.
+	 * @param level the level
+	 * @param number the number of the level, from 1
+	 * @param dir the output directory
+	 * @return the solutions of the level, or null if a tile is missing
+	 * @throws IOException if a tile could not be read or the solutions could
+	 *         not be written
+	 */
+	public static SolutionSet merge(Level level, int number, File dir)
+			throws IOException {
+		SolutionSet solutions = SolutionSet.forLevel(level);
+		for (int t = 0; t < tileCount(level); t++) {
+			File tile = tileFile(dir, number, t);
+			if (!tile.exists())
+				return null;
+			solutions.addAll(SolutionBitmap.map(tile));
+		}
+		SolutionBitmap.write(solutions, new File(dir, "level" + number
+				+ ".bin"));
+		return solutions;
+	}
+
+	private static File tileDirectory(File dir, int number) {
+		return new File(dir, "level" + number + ".tiles");
+	}
+
+	private static File tileFile(File dir, int number, int tile) {
+		return new File(tileDirectory(dir, number), "tile" + tile + ".bin");
+	}
+
+	/**
+	 * Creates a lock file, replacing it if it is stale, and returns if this
+	 * worker now holds it.
+	 */
+	private static boolean claim(File lock) throws IOException {
+		if (lock.createNewFile())
+			return true;
+		long age = System.currentTimeMillis() - lock.lastModified();
+		if (lock.exists() && age > StaleLockMillis) {
+			lock.delete();
+			return lock.createNewFile();
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,339 @@
+package editor;
+
+import java.awt.Point;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A solution set stored as runs of solutions down each column of the
+ * bounding box of its points. The file is a header of eight ints (the magic
+ * number, the version, the left x, the top y, the width, the height, the
+ * number of points and the number of runs), then the index of the first run
+ * of each column followed by the total number of runs, then the runs, each
+ * two chars: its first row from the top of the box and its length. The
+ * solutions of a level form a few connected regions, so a file takes a few
+ * kilobytes, about a third of the size of the text format. A set is read by mapping
+ * its file into memory, so loading it does not depend on its size; a point
+ * is looked up by a binary search of the runs of its column, and the
+ * points are decoded as they are iterated over, in the same order as
+ * LevelSolver.getSolutionSet.
+ * <p>
+ * The main method converts text solution files, as written by
+ * LevelSolver.printSolutionSet, to this format.
+ */
+public class SolutionBitmap extends AbstractCollection<Point> {
+
+	/**
+	 * The first int of every solution bitmap file.
+	 */
+	public static final int Magic = 0x47475342; // "GGSB"
+
+	/**
+	 * The version of the format written.
+	 */
+	public static final int Version = 2;
+
+	private static final int HeaderBytes = 32;
+
+	private final int leftX, topY, width, height, size;
+	// the first run of each column, then the number of runs
+	private final IntBuffer columns;
+	// the first row and the length of each run
+	private final CharBuffer runs;
+
+	/**
+	 * Args: files... Converts each text solution file to a bitmap file of
+	 * the same name with the extension .bin.
+	 */
+	public static void main(String[] args) throws IOException {
+		for (String name : args) {
+			Collection<Point> solutions = LevelSolver.readSolutionSet(name);
+			File out = new File(binaryName(name));
+			write(solutions, out);
+			System.out.println(name + " -> " + out + ": " + solutions.size()
+					+ " points");
+		}
+	}
+
+	/**
+	 * Returns the name of the bitmap file for a text solution file, the name
+	 * with its extension replaced by .bin.
+	 * @param fileName the name of the text file
+	 * @return the name of the bitmap file
+	 */
+	public static String binaryName(String fileName) {
+		int dot = fileName.lastIndexOf('.');
+		if (dot <= fileName.lastIndexOf('/'))
+			return fileName + ".bin";
+		return fileName.substring(0, dot) + ".bin";
+	}
+
+	/**
+	 * Writes a solution set to a file.
+	 * @param solutions the solution set, with no point twice
+	 * @param file the file to write to
+	 * @throws IllegalArgumentException if the points span more than
+	 *         Character.MAX_VALUE rows
+	 * @throws IOException if the file could not be written
+	 */
+	public static void write(Collection<Point> solutions, File file)
+			throws IOException {
+		SolutionSet set = new SolutionSet(solutions);
+		if (set.getHeight() > Character.MAX_VALUE)
+			throw new IllegalArgumentException("The solutions span too many "
+					+ "rows.");
+		int left = set.getLeftX();
+		int top = set.getTopY();
+		int end = top + set.getHeight();
+		int[] columns = new int[set.getWidth() + 1];
+		List<Integer> runs = new ArrayList<Integer>();
+		for (int i = 0; i < set.getWidth(); i++) {
+			columns[i] = runs.size() / 2;
+			for (int y = set.nextInColumn(left + i, top); y < end; y = set
+					.nextInColumn(left + i, y)) {
+				int gap = set.nextGapInColumn(left + i, y);
+				runs.add(y - top);
+				runs.add(gap - y);
+				y = gap;
+			}
+		}
+		columns[set.getWidth()] = runs.size() / 2;
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file)));
+		try {
+			out.writeInt(Magic);
+			out.writeInt(Version);
+			out.writeInt(left);
+			out.writeInt(top);
+			out.writeInt(set.getWidth());
+			out.writeInt(set.getHeight());
+			out.writeInt(set.size());
+			out.writeInt(runs.size() / 2);
+			for (int first : columns) {
+				out.writeInt(first);
+			}
+			for (int value : runs) {
+				out.writeChar(value);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Maps a solution bitmap file into memory.
+	 * @param file the file to read
+	 * @return the solution set in the file
+	 * @throws FileNotFoundException if the file was not found
+	 * @throws IOException if the file could not be mapped or is not a
+	 *         solution bitmap
+	 */
+	public static SolutionBitmap map(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			// the mapping stays valid after the channel is closed
+			return new SolutionBitmap(channel.map(FileChannel.MapMode.READ_ONLY,
+					0, channel.size()));
+		} finally {
+			raf.close();
+		}
+	}
+
+	private SolutionBitmap(MappedByteBuffer buffer) throws IOException {
+		if (buffer.capacity() < HeaderBytes || buffer.getInt(0) != Magic)
+			throw new IOException("Not a solution bitmap.");
+		if (buffer.getInt(4) != Version)
+			throw new IOException("Unknown solution bitmap version "
+					+ buffer.getInt(4) + ".");
+		leftX = buffer.getInt(8);
+		topY = buffer.getInt(12);
+		width = buffer.getInt(16);
+		height = buffer.getInt(20);
+		size = buffer.getInt(24);
+		int runCount = buffer.getInt(28);
+		if (width < 0 || height < 0 || runCount < 0
+				|| buffer.capacity() != HeaderBytes + 4L * (width + 1) + 4L
+						* runCount)
+			throw new IOException("Truncated solution bitmap.");
+		buffer.position(HeaderBytes);
+		columns = buffer.slice().asIntBuffer();
+		buffer.position(HeaderBytes + 4 * (width + 1));
+		runs = buffer.slice().asCharBuffer();
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (!(o instanceof Point))
+			return false;
+		Point p = (Point) o;
+		return contains(p.x, p.y);
+	}
+
+	/**
+	 * Returns if a point is in the set.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @return if (x, y) is a solution
+	 */
+	public boolean contains(int x, int y) {
+		int i = x - leftX;
+		int j = y - topY;
+		if (i < 0 || i >= width || j < 0 || j >= height)
+			return false;
+		int r = runAt(i, j);
+		return r >= columns.get(i) && j < start(r) + length(r);
+	}
+
+	/**
+	 * Returns the first solution in a column at or below a row, as
+	 * SolutionSet.nextInColumn.
+	 * @param x the x coordinate of the column
+	 * @param y the y coordinate to start at
+	 * @return the y coordinate of the solution, or getTopY() + getHeight()
+	 *         if there is none
+	 */
+	public int nextInColumn(int x, int y) {
+		int end = topY + height;
+		int i = x - leftX;
+		if (i < 0 || i >= width || y >= end)
+			return end;
+		int j = Math.max(y, topY) - topY;
+		int r = runAt(i, j);
+		if (r >= columns.get(i) && j < start(r) + length(r))
+			return topY + j;
+		return (r + 1 < columns.get(i + 1)) ? topY + start(r + 1) : end;
+	}
+
+	/**
+	 * Returns the first point that is not a solution in a column at or below
+	 * a row, as SolutionSet.nextGapInColumn.
+	 * @param x the x coordinate of the column
+	 * @param y the y coordinate to start at
+	 * @return the y coordinate of the point, at most getTopY() + getHeight()
+	 */
+	public int nextGapInColumn(int x, int y) {
+		int i = x - leftX;
+		int j = y - topY;
+		if (i < 0 || i >= width || j < 0 || j >= height)
+			return Math.min(y, topY + height);
+		int r = runAt(i, j);
+		if (r >= columns.get(i) && j < start(r) + length(r))
+			return topY + start(r) + length(r);
+		return y;
+	}
+
+	/**
+	 * Returns the smallest x coordinate of the box.
+	 * @return the left edge of the box
+	 */
+	public int getLeftX() {
+		return leftX;
+	}
+
+	/**
+	 * Returns the smallest y coordinate of the box.
+	 * @return the top edge of the box
+	 */
+	public int getTopY() {
+		return topY;
+	}
+
+	/**
+	 * Returns the number of columns of the box.
+	 * @return the width of the box
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the number of rows of the box.
+	 * @return the height of the box
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the last run of column i starting at or above row j, or the
+	 * run before the column's first if there is none.
+	 */
+	private int runAt(int i, int j) {
+		int low = columns.get(i);
+		int high = columns.get(i + 1) - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			if (start(middle) <= j)
+				low = middle + 1;
+			else
+				high = middle - 1;
+		}
+		return high;
+	}
+
+	private int start(int run) {
+		return runs.get(2 * run);
+	}
+
+	private int length(int run) {
+		return runs.get(2 * run + 1);
+	}
+
+	@Override
+	public Iterator<Point> iterator() {
+		return new Iterator<Point>() {
+
+			private int column = 0;
+			private int run = 0;
+			// the next row of the current run, relative to the top
+			private int row = (runs.limit() > 0) ? start(0) : 0;
+
+			public boolean hasNext() {
+				return run < columns.get(width);
+			}
+
+			public Point next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				while (columns.get(column + 1) <= run) {
+					column++;
+				}
+				Point p = new Point(leftX + column, topY + row);
+				row++;
+				if (row == start(run) + length(run)) {
+					run++;
+					if (hasNext())
+						row = start(run);
+				}
+				return p;
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+
+		};
+	}
+
+}
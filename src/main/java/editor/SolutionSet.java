@@ -0,0 +1,488 @@
+package editor;
+
+import java.awt.Graphics;
+import java.awt.Point;
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import structures.Ball;
+import structures.Level;
+
+/**
+ * A set of launch points, stored as a bitmap over a fixed box, one column of
+ * bits per x coordinate. Membership, adding and removing take constant
+ * time; the size is a count of bits; and the whole set takes one bit per
+ * pixel of its box, about 45 KB for a full launch disc. The points are
+ * iterated over column by column from the left, each from the top, the
+ * order of LevelSolver.getSolutionSet. For drawing, a column can be walked
+ * by runs with nextInColumn and nextGapInColumn without creating a Point
+ * per pixel, as draw does.
+ * <p>
+ * A set loaded from a solution bitmap file (see LevelSolver.loadSolutionSet)
+ * answers every query from the mapped file itself, so loading it does not
+ * depend on its size. Its points are copied into a bitmap the first time
+ * the set is changed; the file is never written to.
+ */
+public class SolutionSet extends AbstractSet<Point> {
+
+	private final int leftX, topY, width, height;
+	// bits per column, a whole number of longs
+	private final int stride;
+	// null while the set reads a mapped file
+	private BitSet bits;
+	// the mapped file, until the set is first changed
+	private SolutionBitmap mapped;
+
+	/**
+	 * Creates an empty set that can hold the points of a box.
+	 * @param leftX the smallest x coordinate of the box
+	 * @param topY the smallest y coordinate of the box
+	 * @param width the number of columns in the box
+	 * @param height the number of rows in the box
+	 */
+	public SolutionSet(int leftX, int topY, int width, int height) {
+		this(leftX, topY, width, height, new BitSet());
+	}
+
+	/**
+	 * Creates a set of the given points, over their bounding box.
+	 * @param points the points of the set
+	 */
+	public SolutionSet(Collection<Point> points) {
+		this(boundingBox(points));
+		addAll(points);
+	}
+
+	private SolutionSet(int[] box) {
+		this(box[0], box[1], box[2], box[3]);
+	}
+
+	/**
+	 * Creates a set over the given bits, one column of stride bits per x
+	 * coordinate.
+	 */
+	private SolutionSet(int leftX, int topY, int width, int height,
+			BitSet bits) {
+		if (width < 0 || height < 0)
+			throw new IllegalArgumentException("The box cannot have a "
+					+ "negative size.");
+		this.leftX = leftX;
+		this.topY = topY;
+		this.width = width;
+		this.height = height;
+		stride = (height + 63) / 64 * 64;
+		this.bits = bits;
+	}
+
+	/**
+	 * Creates a set reading the points of a mapped file, over its box.
+	 */
+	SolutionSet(SolutionBitmap mapped) {
+		this(mapped.getLeftX(), mapped.getTopY(), mapped.getWidth(), mapped
+				.getHeight(), null);
+		this.mapped = mapped;
+	}
+
+	/**
+	 * Creates an empty set that can hold every launch point of a level.
+	 * @param level the level
+	 * @return an empty set over the box around the level's launch disc
+	 */
+	public static SolutionSet forLevel(Level level) {
+		Ball ball = level.getBall();
+		int leftX = (int) (ball.getCenterX() - LevelSolver.MAX);
+		int rightX = (int) (ball.getCenterX() + LevelSolver.MAX);
+		int topY = (int) (ball.getCenterY() - LevelSolver.MAX);
+		int bottomY = (int) (ball.getCenterY() + LevelSolver.MAX);
+		return new SolutionSet(leftX, topY, rightX - leftX + 1, bottomY - topY
+				+ 1);
+	}
+
+	private static int[] boundingBox(Collection<Point> points) {
+		if (points.isEmpty())
+			return new int[] { 0, 0, 0, 0 };
+		int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+		for (Point p : points) {
+			minX = Math.min(minX, p.x);
+			maxX = Math.max(maxX, p.x);
+			minY = Math.min(minY, p.y);
+			maxY = Math.max(maxY, p.y);
+		}
+		return new int[] { minX, minY, maxX - minX + 1, maxY - minY + 1 };
+	}
+
+	/**
+	 * Returns a set with the same box and points as this one.
+	 * @return a copy of the set
+	 */
+	public SolutionSet copy() {
+		if (mapped != null)
+			return new SolutionSet(mapped);
+		return new SolutionSet(leftX, topY, width, height, (BitSet) bits
+				.clone());
+	}
+
+	/**
+	 * Returns the smallest x coordinate the set can hold.
+	 * @return the left edge of the box
+	 */
+	public int getLeftX() {
+		return leftX;
+	}
+
+	/**
+	 * Returns the smallest y coordinate the set can hold.
+	 * @return the top edge of the box
+	 */
+	public int getTopY() {
+		return topY;
+	}
+
+	/**
+	 * Returns the number of columns of the box.
+	 * @return the width of the box
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the number of rows of the box.
+	 * @return the height of the box
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the bits of the set, one column of stride bits per x
+	 * coordinate, decoded into a new BitSet if the set reads a mapped file.
+	 * They are only read.
+	 */
+	private BitSet readBits() {
+		if (mapped == null)
+			return bits;
+		BitSet decoded = new BitSet();
+		int end = topY + height;
+		for (int x = leftX; x < leftX + width; x++) {
+			int y = mapped.nextInColumn(x, topY);
+			while (y < end) {
+				int gap = mapped.nextGapInColumn(x, y);
+				decoded.set(index(x, y), index(x, gap));
+				y = mapped.nextInColumn(x, gap);
+			}
+		}
+		return decoded;
+	}
+
+	/**
+	 * Returns a copy of the bits of the set.
+	 */
+	private BitSet copyBits() {
+		return (mapped == null) ? (BitSet) bits.clone() : readBits();
+	}
+
+	/**
+	 * Returns the bits of the set to change them, first copying the points
+	 * of the mapped file if the set still reads one.
+	 */
+	private BitSet writableBits() {
+		if (mapped != null) {
+			bits = readBits();
+			mapped = null;
+		}
+		return bits;
+	}
+
+	private boolean inBox(int x, int y) {
+		return x >= leftX && x - leftX < width && y >= topY
+				&& y - topY < height;
+	}
+
+	private int index(int x, int y) {
+		return (x - leftX) * stride + (y - topY);
+	}
+
+	/**
+	 * Returns the number of points in the set.
+	 * @return the cardinality of the set
+	 */
+	@Override
+	public int size() {
+		return (mapped != null) ? mapped.size() : bits.cardinality();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return (mapped != null) ? mapped.isEmpty() : bits.isEmpty();
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (!(o instanceof Point))
+			return false;
+		Point p = (Point) o;
+		return contains(p.x, p.y);
+	}
+
+	/**
+	 * Returns if a point is in the set.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @return if (x, y) is a solution
+	 */
+	public boolean contains(int x, int y) {
+		if (mapped != null)
+			return mapped.contains(x, y);
+		return inBox(x, y) && bits.get(index(x, y));
+	}
+
+	@Override
+	public boolean add(Point p) {
+		return add(p.x, p.y);
+	}
+
+	/**
+	 * Adds a point to the set.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @return true if the point was not in the set yet
+	 * @throws IllegalArgumentException if the point is outside of the box
+	 */
+	public boolean add(int x, int y) {
+		if (!inBox(x, y))
+			throw new IllegalArgumentException("(" + x + ", " + y
+					+ ") is outside of the set's box.");
+		int i = index(x, y);
+		if (contains(x, y))
+			return false;
+		writableBits().set(i);
+		return true;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		if (!contains(o))
+			return false;
+		Point p = (Point) o;
+		writableBits().clear(index(p.x, p.y));
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		mapped = null;
+		bits = new BitSet();
+	}
+
+	/**
+	 * Returns the first solution in a column at or below a row.
+	 * @param x the x coordinate of the column
+	 * @param y the y coordinate to start at
+	 * @return the y coordinate of the solution, or getTopY() + getHeight()
+	 *         if there is none
+	 */
+	public int nextInColumn(int x, int y) {
+		if (mapped != null)
+			return mapped.nextInColumn(x, y);
+		int end = topY + height;
+		if (x < leftX || x - leftX >= width || y >= end)
+			return end;
+		y = Math.max(y, topY);
+		int next = bits.nextSetBit(index(x, y));
+		if (next == -1 || next >= index(x, end))
+			return end;
+		return y + next - index(x, y);
+	}
+
+	/**
+	 * Returns the first point that is not a solution in a column at or below
+	 * a row, the end of the run starting at that row.
+	 * @param x the x coordinate of the column
+	 * @param y the y coordinate to start at
+	 * @return the y coordinate of the point, at most getTopY() + getHeight()
+	 */
+	public int nextGapInColumn(int x, int y) {
+		if (mapped != null)
+			return mapped.nextGapInColumn(x, y);
+		int end = topY + height;
+		if (!inBox(x, y))
+			return Math.min(y, end);
+		int next = bits.nextClearBit(index(x, y));
+		return Math.min(end, y + next - index(x, y));
+	}
+
+	/**
+	 * Draws the points in the current color, one rectangle per run down a
+	 * column.
+	 * @param dx x transformation distance
+	 * @param dy y transformation distance
+	 * @param g the Graphics component to draw with
+	 */
+	public void draw(int dx, int dy, Graphics g) {
+		int end = topY + height;
+		for (int x = leftX; x < leftX + width; x++) {
+			int y = nextInColumn(x, topY);
+			while (y < end) {
+				int gap = nextGapInColumn(x, y);
+				g.fillRect(x + dx, y + dy, 1, gap - y);
+				y = nextInColumn(x, gap);
+			}
+		}
+	}
+
+	/**
+	 * Returns the points in either set.
+	 * @param other the other set
+	 * @return a new set over the box around both sets' boxes
+	 */
+	public SolutionSet union(SolutionSet other) {
+		// an empty box holds no points, wherever it is
+		if (other.width == 0 || other.height == 0)
+			return intersection(this);
+		if (width == 0 || height == 0)
+			return other.intersection(other);
+		if (sameBox(other)) {
+			BitSet union = copyBits();
+			union.or(other.readBits());
+			return new SolutionSet(leftX, topY, width, height, union);
+		}
+		int left = Math.min(leftX, other.leftX);
+		int top = Math.min(topY, other.topY);
+		int right = Math.max(leftX + width, other.leftX + other.width);
+		int bottom = Math.max(topY + height, other.topY + other.height);
+		SolutionSet union = new SolutionSet(left, top, right - left, bottom
+				- top);
+		union.copyFrom(this, false);
+		union.copyFrom(other, false);
+		return union;
+	}
+
+	/**
+	 * Returns the points in both sets.
+	 * @param other the other set
+	 * @return a new set over this set's box
+	 */
+	public SolutionSet intersection(SolutionSet other) {
+		BitSet both = copyBits();
+		if (sameBox(other)) {
+			both.and(other.readBits());
+		} else {
+			both.and(other.inBoxOf(this));
+		}
+		return new SolutionSet(leftX, topY, width, height, both);
+	}
+
+	/**
+	 * Returns the points in this set but not in the other.
+	 * @param other the other set
+	 * @return a new set over this set's box
+	 */
+	public SolutionSet difference(SolutionSet other) {
+		BitSet rest = copyBits();
+		rest.andNot(sameBox(other) ? other.readBits() : other.inBoxOf(this));
+		return new SolutionSet(leftX, topY, width, height, rest);
+	}
+
+	private boolean sameBox(SolutionSet other) {
+		return leftX == other.leftX && topY == other.topY
+				&& width == other.width && height == other.height;
+	}
+
+	/**
+	 * Returns the bits of this set's points inside another set's box, laid
+	 * out for that box.
+	 */
+	private BitSet inBoxOf(SolutionSet box) {
+		SolutionSet moved = new SolutionSet(box.leftX, box.topY, box.width,
+				box.height);
+		moved.copyFrom(this, true);
+		return moved.bits;
+	}
+
+	/**
+	 * Adds the points of another set, skipping those outside of this set's
+	 * box if clip is set.
+	 */
+	private void copyFrom(SolutionSet other, boolean clip) {
+		for (int x = other.leftX; x < other.leftX + other.width; x++) {
+			int end = other.topY + other.height;
+			for (int y = other.nextInColumn(x, other.topY); y < end; y = other
+					.nextInColumn(x, y + 1)) {
+				if (!clip || inBox(x, y))
+					writableBits().set(index(x, y));
+			}
+		}
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (o instanceof SolutionSet && sameBox((SolutionSet) o))
+			return readBits().equals(((SolutionSet) o).readBits());
+		return super.equals(o);
+	}
+
+	@Override
+	public int hashCode() {
+		return super.hashCode();
+	}
+
+	@Override
+	public Iterator<Point> iterator() {
+		if (mapped != null) {
+			final Iterator<Point> points = mapped.iterator();
+			return new Iterator<Point>() {
+
+				private Point last;
+
+				public boolean hasNext() {
+					return points.hasNext();
+				}
+
+				public Point next() {
+					last = points.next();
+					return last;
+				}
+
+				public void remove() {
+					if (last == null)
+						throw new IllegalStateException();
+					// the file is not changed, so the points ahead stay
+					SolutionSet.this.remove(last);
+					last = null;
+				}
+
+			};
+		}
+		return new Iterator<Point>() {
+
+			private int next = bits.nextSetBit(0);
+			private int last = -1;
+
+			public boolean hasNext() {
+				return next != -1;
+			}
+
+			public Point next() {
+				if (next == -1)
+					throw new NoSuchElementException();
+				last = next;
+				next = bits.nextSetBit(next + 1);
+				return new Point(leftX + last / stride, topY + last % stride);
+			}
+
+			public void remove() {
+				if (last == -1)
+					throw new IllegalStateException();
+				bits.clear(last);
+				last = -1;
+			}
+
+		};
+	}
+
+}
@@ -0,0 +1,150 @@
+package editor;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import structures.Point2d;
+import structures.ShotEnding;
+
+/**
+ * A solve running in the background, as started by LevelSolver.solveAsync
+ * or IncrementalSolver.solveAsync.
+ * The solutions found so far, the fraction of the launch points flown and
+ * the rate at which they are flown can be read at any time, from any
+ * thread. Cancelling is cooperative: the pieces of launch points already
+ * being flown are finished, the others are skipped, and the solutions found
+ * until then stay available.
+ */
+public class SolveHandle {
+
+	private final List<Point2d> shots;
+	private final SolveListener listener;
+	private final SolutionSet solutions;
+	private final AtomicInteger flown = new AtomicInteger();
+	private final CountDownLatch finished = new CountDownLatch(1);
+	private final long start = System.nanoTime();
+	private volatile long end;
+	private volatile boolean cancelled, ended;
+	private volatile Throwable failure;
+
+	/**
+	 * Creates the handle of a solve of the given launch points, adding the
+	 * winning ones to a set holding the solutions known beforehand.
+	 */
+	SolveHandle(SolutionSet solutions, List<Point2d> shots,
+			SolveListener listener) {
+		this.solutions = solutions;
+		this.shots = shots;
+		this.listener = listener;
+	}
+
+	/**
+	 * Asks the solve to stop. It ends once the pieces of launch points being
+	 * flown are done.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Returns if the solve was asked to stop.
+	 * @return if cancel was called
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Returns if the solve has ended, completely or not.
+	 * @return if no launch point is being flown anymore
+	 */
+	public boolean isDone() {
+		return ended;
+	}
+
+	/**
+	 * Returns the fraction of the launch points flown so far.
+	 * @return a number from 0 to 1
+	 */
+	public double getProgress() {
+		return shots.isEmpty() ? 1 : flown.get() / (double) shots.size();
+	}
+
+	/**
+	 * Returns the number of launch points flown per second, on average,
+	 * since the solve started (until it ended, once it has).
+	 * @return the rate of the solve
+	 */
+	public double getLaunchesPerSecond() {
+		long now = isDone() ? end : System.nanoTime();
+		return flown.get() / Math.max(1e-9, (now - start) / 1e9);
+	}
+
+	/**
+	 * Returns the solutions found so far.
+	 * @return a copy of the winning launch points flown
+	 */
+	public synchronized SolutionSet getSolutions() {
+		return solutions.copy();
+	}
+
+	/**
+	 * Waits for the solve to end, and for the listener to be told, and
+	 * returns the solutions it found: all of them, unless it was cancelled.
+	 * @return the solutions found
+	 * @throws InterruptedException if the thread was interrupted while
+	 *         waiting
+	 * @throws RuntimeException what the solve failed with, if it did
+	 * @throws Error what the solve failed with, if it did
+	 */
+	public SolutionSet await() throws InterruptedException {
+		finished.await();
+		if (failure instanceof Error)
+			throw (Error) failure;
+		if (failure instanceof RuntimeException)
+			throw (RuntimeException) failure;
+		if (failure != null)
+			throw new IllegalStateException("The solve failed.", failure);
+		return getSolutions();
+	}
+
+	/**
+	 * Records the endings of the launch points from index from on, flown by
+	 * one of the solving threads.
+	 */
+	void completed(int from, ShotEnding[] endings) {
+		List<Point> wins = new ArrayList<Point>();
+		for (int i = 0; i < endings.length; i++) {
+			if (endings[i] == ShotEnding.WON)
+				wins.add(shots.get(from + i).getIntegerPoint());
+		}
+		synchronized (this) {
+			solutions.addAll(wins);
+			flown.addAndGet(endings.length);
+			if (listener != null)
+				listener.solved(wins, this);
+		}
+	}
+
+	/**
+	 * Marks the solve as ended, with what it failed with or null.
+	 */
+	void finish(Throwable failure) {
+		synchronized (this) {
+			this.failure = failure;
+			end = System.nanoTime();
+			ended = true;
+			// await returns once the listener has been told
+			try {
+				if (listener != null)
+					listener.finished(this);
+			} finally {
+				finished.countDown();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,29 @@
+package editor;
+
+import java.awt.Point;
+import java.util.List;
+
+/**
+ * Receives the results of a background solve (see LevelSolver.solveAsync)
+ * as they come in. The calls come from the solving threads, one at a time.
+ */
+public interface SolveListener {
+
+	/**
+	 * Called each time a piece of the launch points has been flown, with the
+	 * solutions found in it. The progress of the whole solve can be read from
+	 * the handle.
+	 * @param wins the winning launch points of the piece, in the order of
+	 *        LevelSolver.getSolutionSet
+	 * @param handle the handle of the solve
+	 */
+	void solved(List<Point> wins, SolveHandle handle);
+
+	/**
+	 * Called once the solve has ended, because every launch point has been
+	 * flown, because it was cancelled or because it failed.
+	 * @param handle the handle of the solve
+	 */
+	void finished(SolveHandle handle);
+
+}
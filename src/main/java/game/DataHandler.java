@@ -216,6 +216,7 @@ public class DataHandler {
 					else if (line.substring(0, 5).equals("level")) {
 
 						data = line.substring(6, line.length() - 1).split(",");
+						long budget = 0;
 						if (data.length == 0) {
 							followF = 0;
 							g = 1;
@@ -225,10 +226,13 @@ public class DataHandler {
 						} else {
 							followF = Double.parseDouble(data[0]);
 							g = Double.parseDouble(data[1]);
-
+							if (data.length > 2)
+								budget = Long.parseLong(data[2].trim());
 						}
-						levels.add(new Level(b, bod, warppts, gs, bs, followF,
-								g));
+						Level level = new Level(b, bod, warppts, gs, bs,
+								followF, g);
+						level.setTickBudget(budget);
+						levels.add(level);
 
 						b = new Ball();
 						bod = new ArrayList<Body>();
@@ -69,6 +69,20 @@ public class GameFrame extends JFrame implements KeyListener {
 				gp.resetLevel();
 			break;
 
+		case KeyEvent.VK_B:
+			gp.rewind(event.isShiftDown() ? 10 * GamePanel.RewindStep
+					: GamePanel.RewindStep);
+			break;
+
+		case KeyEvent.VK_F:
+			gp.forward(event.isShiftDown() ? 10 * GamePanel.RewindStep
+					: GamePanel.RewindStep);
+			break;
+
+		case KeyEvent.VK_L:
+			gp.relaunch();
+			break;
+
 		case KeyEvent.VK_T:
 			gp.switchSetting(GamePanel.TrailNum);
 			break;
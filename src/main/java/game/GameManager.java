@@ -1,6 +1,5 @@
 package game;
 
-import java.awt.Point;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -11,7 +10,6 @@ import java.io.ObjectOutputStream;
 import java.io.PrintWriter;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -20,6 +18,8 @@ import java.util.concurrent.TimeUnit;
 import javax.swing.JOptionPane;
 
 import editor.LevelSolver;
+import editor.SolveHandle;
+import editor.SolutionSet;
 import editor.Randomizer;
 
 import structures.*;
@@ -38,7 +38,9 @@ public class GameManager {
 	private static PrintWriter logger;
 
 	private int currentLevelIndex;
-	private Collection<Point> solutions;
+	private SolutionSet solutions;
+	// solves the current level in the background if it has no data file
+	private SolveHandle solving;
 	private List<Level> levels;
 	private boolean randomLevels; // if game uses dynamic random levels
 	private int[] swingData;
@@ -185,19 +187,28 @@ public class GameManager {
 
 	/**
 	 * Returns the solution set for the current level. If the data has not been
-	 * computed, an empty list is returned.
-	 * @return the current level's solution set, if computed already
+	 * computed, the level is solved in the background, and the solutions
+	 * found so far are returned until it is done.
+	 * @return the current level's solution set, as far as it is known
 	 */
-	public Collection<Point> getCurrentSolutions() {
-		if (solutions == null) {
-			String fileName = "levels/data/level" + getLevelNumber() + ".txt";
+	public SolutionSet getCurrentSolutions() {
+		if (solutions == null && solving == null) {
+			String fileName = "levels/data/level" + getLevelNumber() + ".bin";
 			try {
-				solutions = LevelSolver.readSolutionSet(fileName);
+				solutions = LevelSolver.loadSolutionSet(fileName);
 			} catch (Exception e) {
-				System.out.println("Unable to read " + fileName + ".");
-				solutions = new ArrayList<Point>();
+				System.out.println("Unable to read " + fileName
+						+ ", solving the level.");
+				solving = LevelSolver.solveAsync(getCurrentLevel(), Runtime
+						.getRuntime().availableProcessors(), null);
 			}
 		}
+		if (solving != null) {
+			if (!solving.isDone())
+				return solving.getSolutions();
+			solutions = solving.getSolutions();
+			solving = null;
+		}
 		return solutions;
 	}
 
@@ -215,6 +226,10 @@ public class GameManager {
 	 */
 	public boolean nextLevel() {
 		solutions = null;
+		if (solving != null) {
+			solving.cancel();
+			solving = null;
+		}
 		// deletes last level from the memory
 		if (currentLevelIndex >= 0) {
 			if (randomLevels)
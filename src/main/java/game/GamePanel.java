@@ -50,6 +50,14 @@ public class GamePanel extends JPanel implements ActionListener, MouseListener,
 	private boolean levelComplete;
 	private double screenXShift, screenYShift;
 
+	// Rewind: the ticks of the current shot, and how many ticks back from
+	// the newest the level has been rewound to (0 when live)
+	public static final int RewindStep = 10;
+	private SnapshotBuffer snapshots = new SnapshotBuffer(
+			SnapshotBuffer.DefaultCapacity);
+	private Level snapshotLevel;
+	private int rewoundTicks;
+
 	// Graphics Components
 	// Main components
 	int speed = 2; // default speed = 2
@@ -83,6 +91,9 @@ public class GamePanel extends JPanel implements ActionListener, MouseListener,
 	private JMenu controlMenu = new JMenu("Control");
 	private JMenuItem pauseItem = new JMenuItem("Pause game");
 	private JMenuItem resetLevelItem = new JMenuItem("Reset level");
+	private JMenuItem rewindItem = new JMenuItem("Rewind");
+	private JMenuItem forwardItem = new JMenuItem("Forward");
+	private JMenuItem relaunchItem = new JMenuItem("Relaunch from here");
 	private JMenu saveMenu = new JMenu("Save");
 	private JMenuItem saveItem = new JMenuItem("Save current game");
 	private JMenu loadMenu = new JMenu("Load");
@@ -146,10 +157,20 @@ public class GamePanel extends JPanel implements ActionListener, MouseListener,
 
 		controlMenu.add(pauseItem);
 		controlMenu.add(resetLevelItem);
+		controlMenu.addSeparator();
+		controlMenu.add(rewindItem);
+		controlMenu.add(forwardItem);
+		controlMenu.add(relaunchItem);
 		pauseItem.addActionListener(this);
 		resetLevelItem.addActionListener(this);
+		rewindItem.addActionListener(this);
+		forwardItem.addActionListener(this);
+		relaunchItem.addActionListener(this);
 		pauseItem.setMnemonic(KeyEvent.VK_P);
 		resetLevelItem.setMnemonic(KeyEvent.VK_R);
+		rewindItem.setMnemonic(KeyEvent.VK_B);
+		forwardItem.setMnemonic(KeyEvent.VK_F);
+		relaunchItem.setMnemonic(KeyEvent.VK_L);
 		menuBar.add(controlMenu);
 
 		saveMenu.add(saveItem);
@@ -261,14 +282,20 @@ public class GamePanel extends JPanel implements ActionListener, MouseListener,
 		if (!gameManager.isGameOver()) {
 			currentLevel = gameManager.getCurrentLevel();
 			ball = currentLevel.getBall();
+			TickOutcome outcome;
 			if (!gamePaused || !gameStarted) {
-				currentLevel.updateLevel();
+				outcome = currentLevel.updateLevel();
+				if (ball.isLaunched() && !outcome.endsShot())
+					recordSnapshot();
+			} else {
+				outcome = currentLevel.getLastOutcome();
 			}
+			currentLevel.placeMoons();
 			if (settings[TrailNum] && ball.isLaunched() && paints > 2) {
-				TrailEffect.addTrailPoint(new Point2d(ball.getCenter().x(), ball
-						.getCenter().y()));
+				// the center view is immutable, so it can be kept as-is
+				TrailEffect.addTrailPoint(ball.getCenter());
 			}
-			if (currentLevel.timeToReset() && settings[EffectsNum]) {
+			if (outcome.requiresReset() && settings[EffectsNum]) {
 
 				if (!CollisionEffect.started()) {
 					CollisionEffect.start(currentLevel);
@@ -278,15 +305,84 @@ public class GamePanel extends JPanel implements ActionListener, MouseListener,
 					resetLevel();
 				}
 
-			} else if (!levelComplete && currentLevel.inGoalPost() && !gameWon) {
+			} else if (!levelComplete && outcome == TickOutcome.GOAL_REACHED
+					&& !gameWon) {
 				levelComplete = true;
-			} else if (currentLevel.timeToReset() && !settings[EffectsNum]) {
+			} else if (outcome.requiresReset() && !settings[EffectsNum]) {
 				resetLevel();
 			}
 		}
 
 	}
 
+	/**
+	 * Records the tick just played, starting over when the level changed.
+	 */
+	private void recordSnapshot() {
+		if (snapshotLevel != currentLevel) {
+			snapshots.clear();
+			snapshotLevel = currentLevel;
+		}
+		snapshots.record(currentLevel);
+	}
+
+	/**
+	 * Returns if the current shot can be rewound.
+	 */
+	private boolean canRewind() {
+		return gameStarted && !gameWon && !levelComplete
+				&& !CollisionEffect.running() && snapshotLevel == currentLevel
+				&& snapshots.size() > 0;
+	}
+
+	/**
+	 * Pauses the game and moves the current shot back by a number of ticks,
+	 * or as far as it was recorded. The ball may have been reset since.
+	 * @param ticks the number of ticks to go back
+	 */
+	public void rewind(int ticks) {
+		if (!canRewind())
+			return;
+		gamePaused = true;
+		rewoundTicks = Math.min(rewoundTicks + ticks, snapshots.size() - 1);
+		snapshots.restore(currentLevel, rewoundTicks);
+		TrailEffect.resetPoints();
+	}
+
+	/**
+	 * Moves a rewound shot forward by a number of ticks, at most back to
+	 * where it was rewound from. The game stays paused.
+	 * @param ticks the number of ticks to go forward
+	 */
+	public void forward(int ticks) {
+		if (!canRewind() || rewoundTicks == 0)
+			return;
+		rewoundTicks = Math.max(rewoundTicks - ticks, 0);
+		snapshots.restore(currentLevel, rewoundTicks);
+	}
+
+	/**
+	 * Stops the rewound ball where it is, so the next shot is launched from
+	 * there. The ticks after it are forgotten.
+	 */
+	public void relaunch() {
+		if (!canRewind() || rewoundTicks == 0 && !gamePaused)
+			return;
+		keepRewoundShot();
+		currentLevel.getBall().setLaunched(false);
+		TrailEffect.resetPoints();
+		gamePaused = false;
+	}
+
+	/**
+	 * Forgets the ticks after the one the shot was rewound to, so playing
+	 * on records over them.
+	 */
+	private void keepRewoundShot() {
+		snapshots.discardNewest(rewoundTicks);
+		rewoundTicks = 0;
+	}
+
 	/**
 	 * Drawing method for the game.
 	 */
@@ -382,6 +478,7 @@ public class GamePanel extends JPanel implements ActionListener, MouseListener,
 		CollisionEffect.kill();
 		TrailEffect.resetPoints();
 		currentLevel.reset();
+		rewoundTicks = 0;
 		drawingInitialVelocity = false;
 	}
 
@@ -402,7 +499,7 @@ public class GamePanel extends JPanel implements ActionListener, MouseListener,
 			screenYShift = newShifts[1];
 		} else {
 			if ((CollisionEffect.running() || !(settings[EffectsNum])
-					&& currentLevel.timeToReset())) {
+					&& currentLevel.getLastOutcome().requiresReset())) {
 				resetLevel();
 			}
 		}
@@ -462,9 +559,8 @@ public class GamePanel extends JPanel implements ActionListener, MouseListener,
 
 		if(DRAW_SOLUTIONS && gameStarted && !gameWon) {
 			g.setColor(Color.GREEN);
-			for(java.awt.Point p : gameManager.getCurrentSolutions())
-
-				g.fillRect((int) screenXShift + p.x, (int)screenYShift + p.y, 1, 1);
+			gameManager.getCurrentSolutions().draw((int) screenXShift,
+					(int) screenYShift, g);
 		}
 
 	}
@@ -475,7 +571,13 @@ public class GamePanel extends JPanel implements ActionListener, MouseListener,
 	@Override
 	public void actionPerformed(ActionEvent event) {
 		if (event.getSource() == pauseItem) {
-			gamePaused = !gamePaused;
+			pause();
+		} else if (event.getSource() == rewindItem) {
+			rewind(RewindStep);
+		} else if (event.getSource() == forwardItem) {
+			forward(RewindStep);
+		} else if (event.getSource() == relaunchItem) {
+			relaunch();
 		} else if (event.getSource() == resetLevelItem) {
 			if (gameStarted)
 				resetLevel();
@@ -583,6 +685,7 @@ public class GamePanel extends JPanel implements ActionListener, MouseListener,
 			double yLength = -Math.sin(launchAngle) * launchMagnitude;
 			ball.setVelocity(new Vector2d(xLength / 200, yLength / 200));
 			ball.setLaunched(true);
+			snapshots.clear();
 		}
 
 		if (levelComplete) {
@@ -663,6 +766,8 @@ public class GamePanel extends JPanel implements ActionListener, MouseListener,
 	public void pause() {
 		if (!CollisionEffect.running()) {
 			gamePaused = !gamePaused;
+			if (!gamePaused && rewoundTicks > 0)
+				keepRewoundShot();
 		}
 	}
 
@@ -108,7 +108,7 @@ public final class CollisionEffect {
 					i--;
 				}
 			}
-			p.setVelocity(p.getVelocity().multiply(0.99));
+			p.setVelocity(0.99 * p.getXVelocity(), 0.99 * p.getYVelocity());
 			p.move();
 
 		}
@@ -155,16 +155,16 @@ public final class CollisionEffect {
 
 		public Particle(double xPosition, double yPosition, double xSpeed,
 				double ySpeed, Color color) {
-			setCenter(new Point2d(xPosition, yPosition));
-			setVelocity(new Vector2d(xSpeed, ySpeed));
+			setCenter(xPosition, yPosition);
+			setVelocity(xSpeed, ySpeed);
 			setColor(color);
 			setRadius(1);
 		}
 
 		public void draw(double dx, double dy, Graphics g) {
 			g.setColor(color);
-			g.fillOval((int) Math.round(center.x() - 0.5 + dx),
-					(int) Math.round(center.y() - 0.5 + dy), 1, 1);
+			g.fillOval((int) Math.round(centerX - 0.5 + dx),
+					(int) Math.round(centerY - 0.5 + dy), 1, 1);
 		}
 
 		/**
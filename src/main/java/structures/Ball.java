@@ -45,7 +45,7 @@ public class Ball extends MovableCircularShape {
 		startingLocation = new Point2d(centerX, centerY);
 		setRadius(radius);
 		setColor(color);
-		setVelocity(new Vector2d(0, 0));
+		setVelocity(0, 0);
 	}
 
 	/**
@@ -64,11 +64,19 @@ public class Ball extends MovableCircularShape {
 		launched = b;
 	}
 
+	/**
+	 * Returns the location of the ball as was defined in its construction.
+	 * @return the starting location
+	 */
+	public Point2d getStartingLocation() {
+		return startingLocation;
+	}
+
 	/**
 	 * Resets the ball to its location as was defined in its construction.
 	 */
 	public void resetLocation() {
-		center = new Point2d(startingLocation.x(), startingLocation.y());
+		setCenter(startingLocation);
 	}
 
 	/**
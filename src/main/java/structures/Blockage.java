@@ -171,7 +171,18 @@ public class Blockage {
 	 * @return if the point intersects this rectangle
 	 */
 	public boolean intersects(Point2d p) {
-		return rectangle.contains(p.getIntegerPoint());
+		return intersects(p.x(), p.y());
+	}
+
+	/**
+	 * Returns if a point is inside or contained by this blockage. Does not
+	 * allocate.
+	 * @param x the x coordinate
+	 * @param y the y coordinate
+	 * @return if the point intersects this rectangle
+	 */
+	public boolean intersects(double x, double y) {
+		return rectangle.contains(Math.round((float) x), Math.round((float) y));
 	}
 
 	/**
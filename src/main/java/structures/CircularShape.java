@@ -12,9 +12,15 @@ import java.awt.Graphics;
 public abstract class CircularShape {
 
 	/**
-	 * The current center point for the circle.
+	 * The current center coordinates for the circle. These are the
+	 * authoritative values; the Point2d returned by getCenter() is only a view
+	 * over them.
 	 */
-	protected Point2d center;
+	protected double centerX, centerY;
+	/**
+	 * Cached view of the center, created on demand.
+	 */
+	private Point2d center;
 	/**
 	 * The primary color used for drawing.
 	 */
@@ -43,8 +49,8 @@ public abstract class CircularShape {
 		throw new NullPointerException("Cannot draw with " +
 				"a null grahics object.");
 		g.setColor(color);
-		g.fillOval((int) (center.x() - radius + dx),
-				(int) (center.y() - radius + dy), diameter, diameter);
+		g.fillOval((int) (centerX - radius + dx),
+				(int) (centerY - radius + dy), diameter, diameter);
 	}
 
 	/**
@@ -90,9 +96,27 @@ public abstract class CircularShape {
 	 * @return the center
 	 */
 	public final Point2d getCenter() {
+		if (center == null)
+			center = new Point2d(centerX, centerY);
 		return center;
 	}
 
+	/**
+	 * Returns the x coordinate of the center.
+	 * @return the center x coordinate
+	 */
+	public final double getCenterX() {
+		return centerX;
+	}
+
+	/**
+	 * Returns the y coordinate of the center.
+	 * @return the center y coordinate
+	 */
+	public final double getCenterY() {
+		return centerY;
+	}
+
 	/**
 	 * Returns the color.
 	 * @return the color
@@ -154,9 +178,22 @@ public abstract class CircularShape {
 		if (center == null)
 			throw new NullPointerException("Cannot set a CircularShape's"
 					+ " center to null.");
+		this.centerX = center.x();
+		this.centerY = center.y();
 		this.center = center;
 	}
 
+	/**
+	 * Moves the circle by setting its center coordinates. Does not allocate.
+	 * @param x the new center x coordinate
+	 * @param y the new center y coordinate
+	 */
+	public final void setCenter(double x, double y) {
+		centerX = x;
+		centerY = y;
+		center = null;
+	}
+
 	/**
 	 * Returns if this intersects another CircularShape. Touching on the edge
 	 * (i.e. there is a single point of collision) is not considered an
@@ -168,8 +205,25 @@ public abstract class CircularShape {
 		if(circle == null)
 			throw new NullPointerException("Cannot determine if a null " +
 					"object intersects.");
-		double distSquared = getCenter().distanceSquared(circle.getCenter());
-		return distSquared < Math.pow((getRadius() + circle.getRadius()), 2);
+		double dx = centerX - circle.centerX;
+		double dy = centerY - circle.centerY;
+		double radii = radius + circle.radius;
+		return dx * dx + dy * dy < radii * radii;
+	}
+
+	/**
+	 * Returns if this intersects a circle given by its center and radius,
+	 * with the same edge rule as intersects(CircularShape).
+	 * @param x the x coordinate of the circle's center
+	 * @param y the y coordinate of the circle's center
+	 * @param r the radius of the circle
+	 * @return true if they overlap, false otherwise
+	 */
+	public final boolean intersects(double x, double y, int r) {
+		double dx = centerX - x;
+		double dy = centerY - y;
+		double radii = radius + r;
+		return dx * dx + dy * dy < radii * radii;
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,197 @@
+package structures;
+
+/**
+ * Arithmetic on Q32.32 fixed-point numbers: a long holding a value times
+ * 2^32, so a value has 32 fractional bits and an integer part of up to 2^31.
+ * Every result is decided by integer operations, which gives the same bits
+ * on every machine and JVM. Products are taken at 128 bits before they are shifted
+ * back, so they do not overflow as long as the result fits.
+ * <p>
+ * Products are rounded to nearest, halves away from zero. Quotients and
+ * roots are rounded towards zero; a quotient too large to represent
+ * saturates to plus or minus Infinity.
+ */
+public final class FixedPoint {
+
+	/**
+	 * The number of fractional bits.
+	 */
+	public static final int FractionBits = 32;
+
+	/**
+	 * The fixed-point 1.
+	 */
+	public static final long One = 1L << FractionBits;
+
+	/**
+	 * A value larger than any quotient, standing for infinity.
+	 */
+	public static final long Infinity = Long.MAX_VALUE / 4;
+
+	private static final long Low = 0xFFFFFFFFL;
+
+	private FixedPoint() {
+	}
+
+	/**
+	 * Returns the fixed-point value nearest to a double.
+	 * @param value a double of magnitude below 2^31
+	 * @return the fixed-point value
+	 */
+	public static long fromDouble(double value) {
+		return Math.round(value * One);
+	}
+
+	/**
+	 * Returns the fixed-point value of an int.
+	 * @param value an int
+	 * @return the fixed-point value
+	 */
+	public static long fromInt(int value) {
+		return (long) value << FractionBits;
+	}
+
+	/**
+	 * Returns the double nearest to a fixed-point value. Exact for values of
+	 * magnitude below 2^21.
+	 * @param value a fixed-point value
+	 * @return the double
+	 */
+	public static double toDouble(long value) {
+		return value / (double) One;
+	}
+
+	/**
+	 * Returns a * b.
+	 * @param a a fixed-point value
+	 * @param b a fixed-point value
+	 * @return the product
+	 */
+	public static long multiply(long a, long b) {
+		return multiply(a, b, FractionBits);
+	}
+
+	/**
+	 * Returns (a * b) / 2^shift, rounded, with the product taken at 128
+	 * bits, so values with different numbers of fractional bits can be
+	 * multiplied.
+	 * @param a a long
+	 * @param b a long
+	 * @param shift the shift, from 0 to 64
+	 * @return the shifted product
+	 */
+	public static long multiply(long a, long b, int shift) {
+		boolean negative = (a < 0) != (b < 0);
+		a = Math.abs(a);
+		b = Math.abs(b);
+		long a1 = a >>> 32, a0 = a & Low;
+		long b1 = b >>> 32, b0 = b & Low;
+		// the 128 bit product is high * 2^64 + low
+		long low = a0 * b0;
+		long middle1 = a1 * b0;
+		long middle2 = a0 * b1;
+		long high = a1 * b1;
+		long carry = (low >>> 32) + (middle1 & Low) + (middle2 & Low);
+		low = (low & Low) | (carry << 32);
+		high += (middle1 >>> 32) + (middle2 >>> 32) + (carry >>> 32);
+		if (shift > 0) {
+			// round to nearest: truncating would pull every product
+			// towards zero, which adds up over a shot
+			long sum = low + (1L << (shift - 1));
+			// an unsigned overflow carries into the high word
+			if ((sum ^ Long.MIN_VALUE) < (low ^ Long.MIN_VALUE))
+				high++;
+			low = sum;
+		}
+		long result;
+		if (shift == 0)
+			result = low;
+		else if (shift == 64)
+			result = high;
+		else
+			result = (high << (64 - shift)) | (low >>> shift);
+		return negative ? -result : result;
+	}
+
+	/**
+	 * Returns a / b, or plus or minus Infinity if the quotient is 2^30 or
+	 * more in size or b is 0.
+	 * @param a a fixed-point value
+	 * @param b a fixed-point value
+	 * @return the quotient
+	 */
+	public static long divide(long a, long b) {
+		boolean negative = (a < 0) != (b < 0);
+		a = Math.abs(a);
+		b = Math.abs(b);
+		if (b == 0 || (a >>> 30) >= b)
+			return negative ? -Infinity : Infinity;
+		long q = shiftDivide(a, FractionBits, b);
+		return negative ? -q : q;
+	}
+
+	/**
+	 * Returns the largest n with n * b &lt;= a * 2^shift, for a &gt;= 0 and 0
+	 * &lt; b &lt; 2^62. The caller makes sure the result fits in a long.
+	 * @param a the dividend
+	 * @param shift the power of two the dividend is multiplied by
+	 * @param b the divisor
+	 * @return the quotient
+	 */
+	static long shiftDivide(long a, int shift, long b) {
+		long q = a / b;
+		long r = a % b;
+		// long division, as many bits at a time as the remainder allows
+		int step = Long.numberOfLeadingZeros(b) - 1;
+		while (shift > 0) {
+			int bits = Math.min(shift, step);
+			r <<= bits;
+			q = (q << bits) + r / b;
+			r %= b;
+			shift -= bits;
+		}
+		return q;
+	}
+
+	/**
+	 * Returns the square root of a fixed-point value, to a relative
+	 * precision of 2^-30.
+	 * @param value a non-negative fixed-point value
+	 * @return the square root
+	 */
+	public static long sqrt(long value) {
+		return sqrt(value, FractionBits);
+	}
+
+	/**
+	 * Returns the square root of value * 2^shift, for an even shift, to a
+	 * relative precision of 2^-30.
+	 */
+	static long sqrt(long value, int shift) {
+		if (value <= 0)
+			return 0;
+		// scale the value up as far as isqrt allows (or down, for values of
+		// 2^62 and more), then scale the root
+		int scale = Math.min(shift, (Long.numberOfLeadingZeros(value) - 2)
+				& ~1);
+		long scaled = (scale >= 0) ? value << scale : value >> -scale;
+		return isqrt(scaled) << ((shift - scale) / 2);
+	}
+
+	/**
+	 * Returns the largest r with r * r &lt;= n, for 0 &lt;= n &lt; 2^62. The
+	 * double root is only a first guess; the integer checks decide the
+	 * result, so it does not depend on how the root was rounded.
+	 */
+	private static long isqrt(long n) {
+		long root = (long) Math.sqrt(n);
+		while (root * root > n) {
+			root--;
+		}
+		while ((root + 1) * (root + 1) <= n) {
+			root++;
+		}
+		return root;
+	}
+
+}
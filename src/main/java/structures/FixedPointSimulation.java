@@ -0,0 +1,577 @@
+package structures;
+
+import static structures.FixedPoint.*;
+import game.GamePanel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Flies the ball of a level in fixed-point arithmetic (see FixedPoint), so
+ * a shot gives the same bits on every machine, in the interpreter as well
+ * as in compiled code. Follows the fixed Euler tick of Level.updateLevel:
+ * the moons move, gravity is summed at the ball, the ball warps, speeds up
+ * and sweeps through the bodies and blockages, and the outcome is checked
+ * in the same order. Positions agree with the double engine to a small
+ * fraction of a pixel over a shot, but not bit for bit.
+ * <p>
+ * Moon positions are computed with StrictMath. Gravity is always summed
+ * directly, ignoring gravity grids and trees, and sources more than
+ * FarLimit pixels away along either axis do not pull. Only Newtonian and
+ * softened laws, or repulsive versions of them, have a fixed-point form.
+ * <p>
+ * The level's objects are copied when the simulation is created; it does
+ * not see later changes to them.
+ */
+public class FixedPointSimulation {
+
+	/**
+	 * The distance along either axis, in pixels, beyond which sources do not
+	 * pull. Keeps the squared distances inside the fixed-point range.
+	 */
+	public static final int FarLimit = 1 << 14;
+
+	private static final long Far = fromInt(FarLimit);
+
+	// the level's objects; moon positions are updated every tick
+	private final Body[] sources;
+	private final Moon.Orbit[] orbits;
+	private final int[] moonSlots, pullingSlots;
+	private final long[] sourceX, sourceY, strength;
+	private final int[] sourceRadius;
+	private final boolean[] solid;
+	private final long epsilonSquared;
+	private final boolean repulsive;
+	private final long[] blockLeft, blockTop, blockRight, blockBottom;
+	private final long[] warpX, warpY, goalX, goalY;
+	private final int[] warpRadius, goalRadius;
+	private final long followFactor;
+	private final long startX, startY;
+	private final int ballRadius;
+
+	// the ball
+	private long x, y, vx, vy;
+	private long tick;
+	private boolean launched;
+	private int escapingBlockage = -1;
+	private boolean inWarp;
+	private Body crashedBody;
+	private boolean bounced, warped, hitXFace;
+	private final long[] position = new long[2];
+
+	/**
+	 * Creates a simulation of a level, with the ball where it is now and the
+	 * moons where they are at the level's current tick.
+	 * @param level the level
+	 */
+	public FixedPointSimulation(Level level) {
+		ForceField field = level.getForceField();
+		boolean reversed = false;
+		if (field instanceof ForceField.Repulsive) {
+			field = ((ForceField.Repulsive) field).getBase();
+			reversed = true;
+		}
+		if (field instanceof ForceField.Softened) {
+			epsilonSquared = fromDouble(((ForceField.Softened) field)
+					.getEpsilonSquared());
+		} else if (field instanceof ForceField.Newtonian) {
+			epsilonSquared = 0;
+		} else {
+			throw new IllegalArgumentException("The force field of the level "
+					+ "has no fixed-point form.");
+		}
+		repulsive = reversed;
+
+		List<Body> sourceList = new ArrayList<Body>();
+		for (Body b : level.getBodies()) {
+			sourceList.add(b);
+			sourceList.addAll(b.getMoons());
+		}
+		int n = sourceList.size();
+		double g = level.getGravityStrength();
+		sources = sourceList.toArray(new Body[n]);
+		orbits = new Moon.Orbit[n];
+		sourceX = new long[n];
+		sourceY = new long[n];
+		strength = new long[n];
+		sourceRadius = new int[n];
+		solid = new boolean[n];
+		int moons = 0, pulling = 0;
+		for (int i = 0; i < n; i++) {
+			Body b = sources[i];
+			if (b instanceof Moon) {
+				orbits[i] = ((Moon) b).getOrbit(g);
+				moons++;
+			} else {
+				sourceX[i] = fromDouble(b.getCenterX());
+				sourceY[i] = fromDouble(b.getCenterY());
+			}
+			// the same product as Level, so the strengths agree exactly
+			strength[i] = fromDouble(g * b.getMass());
+			sourceRadius[i] = b.getRadius();
+			solid[i] = orbits[i] != null || !b.isReflector();
+			pulling += (strength[i] != 0) ? 1 : 0;
+		}
+		moonSlots = new int[moons];
+		pullingSlots = new int[pulling];
+		moons = pulling = 0;
+		for (int i = 0; i < n; i++) {
+			if (orbits[i] != null)
+				moonSlots[moons++] = i;
+			if (strength[i] != 0)
+				pullingSlots[pulling++] = i;
+		}
+
+		List<Blockage> blockages = level.getBlockages();
+		int m = blockages.size();
+		blockLeft = new long[m];
+		blockTop = new long[m];
+		blockRight = new long[m];
+		blockBottom = new long[m];
+		for (int i = 0; i < m; i++) {
+			Blockage bl = blockages.get(i);
+			blockLeft[i] = fromInt(bl.getDrawX());
+			blockTop[i] = fromInt(bl.getDrawY());
+			blockRight[i] = fromInt(bl.getDrawX() + bl.getDrawXSize());
+			blockBottom[i] = fromInt(bl.getDrawY() + bl.getDrawYSize());
+		}
+		List<WarpPoint> warps = level.getWarpPoints();
+		warpX = new long[warps.size()];
+		warpY = new long[warps.size()];
+		warpRadius = new int[warps.size()];
+		for (int i = 0; i < warps.size(); i++) {
+			warpX[i] = fromDouble(warps.get(i).getCenterX());
+			warpY[i] = fromDouble(warps.get(i).getCenterY());
+			warpRadius[i] = warps.get(i).getRadius();
+		}
+		List<GoalPost> goals = level.getGoalPosts();
+		goalX = new long[goals.size()];
+		goalY = new long[goals.size()];
+		goalRadius = new int[goals.size()];
+		for (int i = 0; i < goals.size(); i++) {
+			goalX[i] = fromDouble(goals.get(i).getCenterX());
+			goalY[i] = fromDouble(goals.get(i).getCenterY());
+			goalRadius[i] = goals.get(i).getRadius();
+		}
+		followFactor = fromDouble(level.getFollowFactor());
+
+		Ball ball = level.getBall();
+		startX = fromDouble(ball.getCenterX());
+		startY = fromDouble(ball.getCenterY());
+		ballRadius = ball.getRadius();
+		reset(level.getTick());
+	}
+
+	/**
+	 * Puts the ball back at its starting position, at rest, and the moons
+	 * where they are at a tick.
+	 * @param tick a non-negative tick number
+	 */
+	public void reset(long tick) {
+		if (tick < 0)
+			throw new IllegalArgumentException("The tick cannot be negative.");
+		x = startX;
+		y = startY;
+		vx = vy = 0;
+		launched = false;
+		escapingBlockage = -1;
+		inWarp = false;
+		crashedBody = null;
+		this.tick = tick;
+		moveMoons();
+	}
+
+	/**
+	 * Launches the ball. The velocity is rounded to the nearest fixed-point
+	 * values, so the same doubles give the same shot everywhere.
+	 * @param xVelocity the x velocity, in pixels per tick
+	 * @param yVelocity the y velocity, in pixels per tick
+	 */
+	public void launch(double xVelocity, double yVelocity) {
+		vx = fromDouble(xVelocity);
+		vy = fromDouble(yVelocity);
+		launched = true;
+	}
+
+	/**
+	 * Flies a whole shot: resets the ball at a tick, launches it and steps
+	 * until the shot ends or a number of ticks have passed.
+	 * @param xVelocity the x velocity, in pixels per tick
+	 * @param yVelocity the y velocity, in pixels per tick
+	 * @param startTick the tick at which the ball is launched
+	 * @param ticks the most ticks to simulate
+	 * @return the outcome of the last tick, FLYING if the ticks ran out
+	 */
+	public TickOutcome play(double xVelocity, double yVelocity,
+			long startTick, long ticks) {
+		reset(startTick);
+		launch(xVelocity, yVelocity);
+		TickOutcome outcome = TickOutcome.FLYING;
+		for (long t = 0; t < ticks; t++) {
+			outcome = step();
+			if (outcome.endsShot())
+				break;
+		}
+		return outcome;
+	}
+
+	/**
+	 * Takes over the state of a level's ball, for Level's fixed-point mode.
+	 */
+	void load(Ball ball, long tick, int escaping, boolean ballInWarp,
+			Body contact) {
+		x = fromDouble(ball.getCenterX());
+		y = fromDouble(ball.getCenterY());
+		vx = fromDouble(ball.getXVelocity());
+		vy = fromDouble(ball.getYVelocity());
+		launched = ball.isLaunched();
+		escapingBlockage = escaping;
+		inWarp = ballInWarp;
+		crashedBody = contact;
+		if (this.tick != tick) {
+			this.tick = tick;
+			moveMoons();
+		}
+	}
+
+	/**
+	 * Advances the simulation by one tick.
+	 * @return what happened to the ball
+	 */
+	public TickOutcome step() {
+		bounced = false;
+		warped = false;
+		tick++;
+		moveMoons();
+		long ax = 0, ay = 0;
+		if (launched) {
+			for (int j = 0; j < pullingSlots.length; j++) {
+				int i = pullingSlots[j];
+				long dx = sourceX[i] - x;
+				long dy = sourceY[i] - y;
+				if (Math.abs(dx) >= Far || Math.abs(dy) >= Far)
+					continue;
+				long d = sqrt(multiply(dx, dx) + multiply(dy, dy)
+						+ epsilonSquared);
+				// 1 / d and 1 / d^2 with 62 fractional bits, so they keep
+				// their precision far from the source
+				long inverse = shiftDivide(1, 94, Math.max(d, One));
+				long inverseSquared = multiply(inverse, inverse, 62);
+				long pullX = multiply(strength[i], multiply(dx, inverse, 62));
+				long pullY = multiply(strength[i], multiply(dy, inverse, 62));
+				ax += multiply(pullX, inverseSquared, 62);
+				ay += multiply(pullY, inverseSquared, 62);
+			}
+			if (repulsive) {
+				ax = -ax;
+				ay = -ay;
+			}
+		}
+		checkWarps();
+		if (launched) {
+			vx += ax;
+			vy += ay;
+			sweep(vx, vy);
+		}
+		if (crashedBody == null)
+			crashedBody = overlappingBody();
+		if (inGoal())
+			return TickOutcome.GOAL_REACHED;
+		if (crashedBody != null)
+			return TickOutcome.CRASHED;
+		if (isOutOfBounds())
+			return TickOutcome.OUT_OF_BOUNDS;
+		if (warped)
+			return TickOutcome.WARPED;
+		if (bounced)
+			return TickOutcome.BOUNCED;
+		return TickOutcome.FLYING;
+	}
+
+	private void moveMoons() {
+		for (int k = 0; k < moonSlots.length; k++) {
+			int i = moonSlots[k];
+			orbits[i].fixedPositionAt(tick, position);
+			sourceX[i] = position[0];
+			sourceY[i] = position[1];
+		}
+	}
+
+	/**
+	 * Returns if the ball overlaps the circle at (cx, cy) with radius r,
+	 * touching excluded.
+	 */
+	private boolean touches(long cx, long cy, int r) {
+		long reach = fromInt(ballRadius + r);
+		long dx = x - cx;
+		long dy = y - cy;
+		if (Math.abs(dx) >= reach || Math.abs(dy) >= reach)
+			return false;
+		return multiply(dx, dx) + multiply(dy, dy) < multiply(reach, reach);
+	}
+
+	private Body overlappingBody() {
+		for (int i = 0; i < sources.length; i++) {
+			if (solid[i] && touches(sourceX[i], sourceY[i], sourceRadius[i]))
+				return sources[i];
+		}
+		return null;
+	}
+
+	private boolean inGoal() {
+		for (int i = 0; i < goalX.length; i++) {
+			if (touches(goalX[i], goalY[i], goalRadius[i]))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Level.isOutOfBounds with the screen shift multiplied out, so there is
+	 * no division: x + (c - x) / f &lt; 0 is x (f - 1) + c &lt; 0.
+	 */
+	private boolean isOutOfBounds() {
+		if (followFactor == 0) {
+			return x < 0 || x > fromInt(GamePanel.Width) || y < 0
+					|| y > fromInt(GamePanel.Height - 20);
+		}
+		long shiftedX = multiply(x, followFactor - One)
+				+ fromInt(GamePanel.Width / 2);
+		long shiftedY = multiply(y, followFactor - One)
+				+ fromInt(GamePanel.Height / 2);
+		return shiftedX < 0 || shiftedX > followFactor * GamePanel.Width
+				|| shiftedY < 0
+				|| shiftedY > followFactor * (GamePanel.Height - 20);
+	}
+
+	/**
+	 * Level.checkWarps.
+	 */
+	private void checkWarps() {
+		boolean inAnyWarp = false;
+		for (int i = 0; i < warpX.length; i++) {
+			boolean intersecting = touches(warpX[i], warpY[i], warpRadius[i]);
+			if (intersecting && !inWarp) {
+				inWarp = true;
+				if (warpX.length != 1) {
+					int next = (i + 1) % warpX.length;
+					x = warpX[next];
+					y = warpY[next];
+					inAnyWarp = true;
+					warped = true;
+					break;
+				}
+			} else if (intersecting) {
+				inAnyWarp = true;
+			}
+		}
+		if (!inAnyWarp)
+			inWarp = false;
+	}
+
+	/**
+	 * Level.sweepBall: moves the ball by (dx, dy), stopping at the first
+	 * contact on the way and bouncing off reflectors and blockages.
+	 */
+	private void sweep(long dx, long dy) {
+		long remaining = One;
+		for (int bounce = 0; bounce <= Level.MaxBounces; bounce++) {
+			long hit = remaining;
+			int hitIndex = -1;
+			for (int i = 0; i < sources.length; i++) {
+				long px = x - sourceX[i];
+				long py = y - sourceY[i];
+				long r = fromInt(ballRadius + sourceRadius[i]);
+				// the whole move stays clear of the circle along an axis
+				if ((px > r && px + dx > r) || (px < -r && px + dx < -r)
+						|| (py > r && py + dy > r) || (py < -r && py + dy < -r))
+					continue;
+				long t = timeOfImpact(px, py, dx, dy, r);
+				if (t < hit) {
+					hit = t;
+					hitIndex = i;
+				}
+			}
+			int hitBox = -1;
+			boolean xFace = false;
+			long left = Math.min(x, x + dx), right = Math.max(x, x + dx);
+			long top = Math.min(y, y + dy), bottom = Math.max(y, y + dy);
+			for (int i = 0; i < blockLeft.length; i++) {
+				if (i == escapingBlockage || right < blockLeft[i]
+						|| left > blockRight[i] || bottom < blockTop[i]
+						|| top > blockBottom[i])
+					continue;
+				long t = boxImpact(dx, dy, i);
+				if (t < hit) {
+					hit = t;
+					hitBox = i;
+					xFace = hitXFace;
+				}
+			}
+			x += multiply(dx, hit);
+			y += multiply(dy, hit);
+			remaining -= hit;
+			if (hitBox >= 0) {
+				bounced = true;
+				if (insideBox(hitBox))
+					escapingBlockage = hitBox;
+				if (xFace) {
+					vx = -vx;
+					dx = -dx;
+				} else {
+					vy = -vy;
+					dy = -dy;
+				}
+				continue;
+			}
+			if (hitIndex < 0)
+				break;
+			if (solid[hitIndex]) {
+				crashedBody = sources[hitIndex];
+				break;
+			}
+			bounced = true;
+			long nx = x - sourceX[hitIndex];
+			long ny = y - sourceY[hitIndex];
+			long n2 = multiply(nx, nx) + multiply(ny, ny);
+			long vDot = divide(2 * (multiply(vx, nx) + multiply(vy, ny)), n2);
+			vx -= multiply(vDot, nx);
+			vy -= multiply(vDot, ny);
+			long dDot = divide(2 * (multiply(dx, nx) + multiply(dy, ny)), n2);
+			dx -= multiply(dDot, nx);
+			dy -= multiply(dDot, ny);
+		}
+		if (escapingBlockage >= 0 && !insideBox(escapingBlockage))
+			escapingBlockage = -1;
+	}
+
+	private boolean insideBox(int box) {
+		return x > blockLeft[box] && x < blockRight[box] && y > blockTop[box]
+				&& y < blockBottom[box];
+	}
+
+	/**
+	 * Level.boxImpact, with quotients saturating at Infinity.
+	 */
+	private long boxImpact(long dx, long dy, int box) {
+		long enterX, exitX, enterY, exitY;
+		if (dx != 0) {
+			long t1 = divide(blockLeft[box] - x, dx);
+			long t2 = divide(blockRight[box] - x, dx);
+			enterX = Math.min(t1, t2);
+			exitX = Math.max(t1, t2);
+		} else if (x > blockLeft[box] && x < blockRight[box]) {
+			enterX = -Infinity;
+			exitX = Infinity;
+		} else {
+			return Infinity;
+		}
+		if (dy != 0) {
+			long t1 = divide(blockTop[box] - y, dy);
+			long t2 = divide(blockBottom[box] - y, dy);
+			enterY = Math.min(t1, t2);
+			exitY = Math.max(t1, t2);
+		} else if (y > blockTop[box] && y < blockBottom[box]) {
+			enterY = -Infinity;
+			exitY = Infinity;
+		} else {
+			return Infinity;
+		}
+		long enter = Math.max(enterX, enterY);
+		long exit = Math.min(exitX, exitY);
+		if (exit <= 0 || enter >= exit)
+			return Infinity;
+		hitXFace = enterX >= enterY;
+		return Math.max(enter, 0);
+	}
+
+	/**
+	 * Level.timeOfImpact. The discriminant is kept with 16 fractional bits,
+	 * as it is a fourth power of a distance.
+	 */
+	private static long timeOfImpact(long px, long py, long dx, long dy,
+			long r) {
+		long b = multiply(px, dx) + multiply(py, dy);
+		if (b >= 0)
+			return Infinity;
+		long c = multiply(px, px) + multiply(py, py) - multiply(r, r);
+		if (c < 0)
+			return 0;
+		long a = multiply(dx, dx) + multiply(dy, dy);
+		long discriminant = multiply(b, b, 48) - multiply(a, c, 48);
+		if (discriminant < 0)
+			return Infinity;
+		long root = sqrt(discriminant, 48);
+		return Math.max(divide(-b - root, a), 0);
+	}
+
+	/**
+	 * Returns the current tick.
+	 * @return the tick
+	 */
+	public long getTick() {
+		return tick;
+	}
+
+	/**
+	 * Returns the x coordinate of the ball.
+	 * @return the x coordinate
+	 */
+	public double getX() {
+		return toDouble(x);
+	}
+
+	/**
+	 * Returns the y coordinate of the ball.
+	 * @return the y coordinate
+	 */
+	public double getY() {
+		return toDouble(y);
+	}
+
+	/**
+	 * Returns the x velocity of the ball.
+	 * @return the x velocity
+	 */
+	public double getXVelocity() {
+		return toDouble(vx);
+	}
+
+	/**
+	 * Returns the y velocity of the ball.
+	 * @return the y velocity
+	 */
+	public double getYVelocity() {
+		return toDouble(vy);
+	}
+
+	/**
+	 * Stores the exact state of the ball, the fixed-point x, y, x velocity
+	 * and y velocity, in out[0] to out[3]. Two runs of a shot agree if and
+	 * only if these do.
+	 * @param out array receiving the state
+	 */
+	public void getState(long[] out) {
+		out[0] = x;
+		out[1] = y;
+		out[2] = vx;
+		out[3] = vy;
+	}
+
+	/**
+	 * Returns the body the ball crashed into, or null.
+	 * @return the body
+	 */
+	public Body getCrashedBody() {
+		return crashedBody;
+	}
+
+	int getEscapingBlockage() {
+		return escapingBlockage;
+	}
+
+	boolean isBallInWarp() {
+		return inWarp;
+	}
+
+}
@@ -0,0 +1,143 @@
+package structures;
+
+/**
+ * A ForceField is the law that turns a gravity source into an acceleration on
+ * the ball. Implementations only supply a radial scale factor: a source of
+ * strength s at offset (dx, dy) from the ball contributes the acceleration
+ * (k * dx, k * dy), where k = scale(dx * dx + dy * dy, s). No angles are
+ * involved, so summing a field costs no trigonometry.
+ * <p>
+ * The strength of a source is its mass multiplied by the level's
+ * gravitational constant. A source with negative strength pushes instead of
+ * pulls under any of these laws.
+ */
+public abstract class ForceField {
+
+	/**
+	 * The default law: Newtonian gravity, with magnitude s / d^2.
+	 */
+	public static final ForceField DEFAULT = new Newtonian();
+
+	/**
+	 * Returns the factor that multiplies the offset from the ball to a source
+	 * to give that source's acceleration on the ball.
+	 * @param distanceSquared the square of the distance to the source
+	 * @param strength the mass of the source times the gravitational constant
+	 * @return the acceleration scale factor
+	 */
+	public abstract double scale(double distanceSquared, double strength);
+
+	/**
+	 * Returns if a source of positive strength s always pulls, and never
+	 * harder than s / d^2 at distance d. Level.hasEscaped only gives an
+	 * answer for laws with this property.
+	 * @return if the law is bounded by Newtonian gravity
+	 */
+	public boolean isBoundedByNewtonian() {
+		return false;
+	}
+
+	/**
+	 * Sums the acceleration at (x, y) caused by a set of sources and stores it
+	 * in out[0] and out[1]. Does not allocate.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param sourceX the x coordinates of the sources
+	 * @param sourceY the y coordinates of the sources
+	 * @param strength the strength of each source
+	 * @param count the number of sources to use
+	 * @param out array receiving the x and y acceleration
+	 */
+	public void accumulate(double x, double y, double[] sourceX,
+			double[] sourceY, double[] strength, int count, double[] out) {
+		double ax = 0.0;
+		double ay = 0.0;
+		for (int i = 0; i < count; i++) {
+			double dx = sourceX[i] - x;
+			double dy = sourceY[i] - y;
+			double k = scale(dx * dx + dy * dy, strength[i]);
+			ax += k * dx;
+			ay += k * dy;
+		}
+		out[0] = ax;
+		out[1] = ay;
+	}
+
+	/**
+	 * Inverse-square gravity, evaluated as s * d / |d|^3.
+	 */
+	public static class Newtonian extends ForceField {
+		@Override
+		public double scale(double distanceSquared, double strength) {
+			return strength / (distanceSquared * Math.sqrt(distanceSquared));
+		}
+
+		@Override
+		public boolean isBoundedByNewtonian() {
+			return true;
+		}
+	}
+
+	/**
+	 * Plummer-softened gravity: behaves like Newtonian gravity far away, but
+	 * stays finite at the center of a source, s * d / (|d|^2 + e^2)^(3/2).
+	 */
+	public static class Softened extends ForceField {
+		private final double epsilonSquared;
+
+		/**
+		 * Creates a softened field.
+		 * @param epsilon the softening length
+		 */
+		public Softened(double epsilon) {
+			epsilonSquared = epsilon * epsilon;
+		}
+
+		@Override
+		public double scale(double distanceSquared, double strength) {
+			double d2 = distanceSquared + epsilonSquared;
+			return strength / (d2 * Math.sqrt(d2));
+		}
+
+		@Override
+		public boolean isBoundedByNewtonian() {
+			return true;
+		}
+
+		/**
+		 * Returns the square of the softening length, for
+		 * FixedPointSimulation.
+		 */
+		double getEpsilonSquared() {
+			return epsilonSquared;
+		}
+	}
+
+	/**
+	 * Wraps another law and reverses its direction, so every source repels.
+	 */
+	public static class Repulsive extends ForceField {
+		private final ForceField base;
+
+		/**
+		 * Creates a field pushing away with the magnitude of another field.
+		 * @param base the law supplying the magnitude
+		 */
+		public Repulsive(ForceField base) {
+			this.base = base;
+		}
+
+		@Override
+		public double scale(double distanceSquared, double strength) {
+			return -base.scale(distanceSquared, strength);
+		}
+
+		/**
+		 * Returns the law supplying the magnitude, for FixedPointSimulation.
+		 */
+		ForceField getBase() {
+			return base;
+		}
+	}
+
+}
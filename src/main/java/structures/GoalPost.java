@@ -27,7 +27,7 @@ public class GoalPost extends CircularShape {
 	 * Returns the description of the GoalPost.
 	 */
 	public String toString() {
-		return "goal(" + (int) center.x() + ", " + (int) center.y() + ", "
+		return "goal(" + (int) centerX + ", " + (int) centerY + ", "
 				+ radius + ")";
 	}
 
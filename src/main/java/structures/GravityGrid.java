@@ -0,0 +1,311 @@
+package structures;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A precomputed, interpolated table of the gravitational acceleration caused
+ * by a fixed set of sources. Lookups cost a bilinear interpolation instead of
+ * a sum over every source, which pays off when the same static field is
+ * sampled millions of times (solving a level, placing random goals).
+ * <p>
+ * The table is a uniform grid of square tiles. Each tile is checked against
+ * the exact field at the centers and edge midpoints of its cells, and is
+ * subdivided until the interpolation error at those points is within the
+ * requested bound. This refines the grid automatically near body surfaces,
+ * where the field changes fastest. Tiles that still fail at the finest level,
+ * and points outside the grid, fall back to the exact sum.
+ */
+public class GravityGrid {
+
+	/**
+	 * Default width of an unrefined tile, in pixels.
+	 */
+	public static final double DefaultSpacing = 8.0;
+
+	/**
+	 * The most times a tile may be halved before it is evaluated exactly.
+	 */
+	public static final int MaxRefinement = 4;
+
+	private static final int Exact = -1;
+
+	// exact field, used to build the table and for fallback lookups
+	private final double[] sourceX, sourceY, strength;
+	private final ForceField field;
+	private final double maxError;
+
+	// coarse grid: columns x rows tiles, (columns + 1) x (rows + 1) nodes
+	private final double x0, y0, spacing, inverseSpacing;
+	private final int columns, rows;
+	private final double[] nodeAX, nodeAY;
+
+	// per tile: refinement level (0 = coarse nodes, Exact = no table), and
+	// the node values of refined tiles
+	private final int[] tileLevel;
+	private final double[][] tileAX, tileAY;
+
+	/**
+	 * Builds the grid for a set of sources over a rectangular region, using
+	 * all available processors.
+	 * @param sourceX the x coordinates of the sources
+	 * @param sourceY the y coordinates of the sources
+	 * @param strength the strength (gravitational constant times mass) of the
+	 *        sources
+	 * @param field the force law
+	 * @param xMin left edge of the region
+	 * @param yMin top edge of the region
+	 * @param xMax right edge of the region
+	 * @param yMax bottom edge of the region
+	 * @param spacing the width of an unrefined tile
+	 * @param maxError the largest interpolation error, per acceleration
+	 *        component, accepted at the check points
+	 */
+	public GravityGrid(double[] sourceX, double[] sourceY, double[] strength,
+			ForceField field, double xMin, double yMin, double xMax,
+			double yMax, double spacing, double maxError) {
+		if (maxError <= 0)
+			throw new IllegalArgumentException("The error bound must be "
+					+ "positive.");
+		this.sourceX = sourceX.clone();
+		this.sourceY = sourceY.clone();
+		this.strength = strength.clone();
+		this.field = field;
+		this.maxError = maxError;
+		this.spacing = spacing;
+		inverseSpacing = 1.0 / spacing;
+		x0 = xMin;
+		y0 = yMin;
+		columns = Math.max(1, (int) Math.ceil((xMax - xMin) / spacing));
+		rows = Math.max(1, (int) Math.ceil((yMax - yMin) / spacing));
+		nodeAX = new double[(columns + 1) * (rows + 1)];
+		nodeAY = new double[(columns + 1) * (rows + 1)];
+		tileLevel = new int[columns * rows];
+		tileAX = new double[columns * rows][];
+		tileAY = new double[columns * rows][];
+		build();
+	}
+
+	/**
+	 * Fills the coarse nodes and then refines the tiles, one row per task.
+	 */
+	private void build() {
+		int threads = Runtime.getRuntime().availableProcessors();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Callable<Void>> nodeRows = new ArrayList<Callable<Void>>();
+			for (int j = 0; j <= rows; j++) {
+				final int row = j;
+				nodeRows.add(new Callable<Void>() {
+					public Void call() {
+						double[] out = new double[2];
+						for (int i = 0; i <= columns; i++) {
+							exact(x0 + i * spacing, y0 + row * spacing, out);
+							nodeAX[row * (columns + 1) + i] = out[0];
+							nodeAY[row * (columns + 1) + i] = out[1];
+						}
+						return null;
+					}
+				});
+			}
+			waitFor(executor.invokeAll(nodeRows));
+
+			List<Callable<Void>> tileRows = new ArrayList<Callable<Void>>();
+			for (int j = 0; j < rows; j++) {
+				final int row = j;
+				tileRows.add(new Callable<Void>() {
+					public Void call() {
+						for (int i = 0; i < columns; i++) {
+							refine(i, row);
+						}
+						return null;
+					}
+				});
+			}
+			waitFor(executor.invokeAll(tileRows));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Gravity grid construction "
+					+ "was interrupted.", e);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static void waitFor(List<Future<Void>> futures)
+			throws InterruptedException {
+		for (Future<Void> f : futures) {
+			try {
+				f.get();
+			} catch (ExecutionException e) {
+				throw new IllegalStateException(e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Picks the coarsest level at which tile (i, j) meets the error bound.
+	 */
+	private void refine(int i, int j) {
+		int tile = j * columns + i;
+		double left = x0 + i * spacing;
+		double top = y0 + j * spacing;
+		double[] out = new double[2];
+
+		// level 0 nodes are the shared coarse nodes
+		int n = 1;
+		double[] ax = new double[4];
+		double[] ay = new double[4];
+		for (int k = 0; k < 4; k++) {
+			int node = (j + k / 2) * (columns + 1) + i + k % 2;
+			ax[k] = nodeAX[node];
+			ay[k] = nodeAY[node];
+		}
+
+		for (int level = 0; level <= MaxRefinement; level++) {
+			// exact values on the twice-as-fine lattice; the even points are
+			// this level's nodes, the odd ones are the check points
+			int fine = 2 * n;
+			double step = spacing / fine;
+			double[] fx = new double[(fine + 1) * (fine + 1)];
+			double[] fy = new double[(fine + 1) * (fine + 1)];
+			boolean ok = true;
+			for (int b = 0; b <= fine; b++) {
+				for (int a = 0; a <= fine; a++) {
+					int idx = b * (fine + 1) + a;
+					if (a % 2 == 0 && b % 2 == 0) {
+						int node = (b / 2) * (n + 1) + a / 2;
+						fx[idx] = ax[node];
+						fy[idx] = ay[node];
+						continue;
+					}
+					exact(left + a * step, top + b * step, out);
+					fx[idx] = out[0];
+					fy[idx] = out[1];
+					if (ok) {
+						// cell holding the point, clamped on the far edges
+						int ca = Math.min(a / 2, n - 1);
+						int cb = Math.min(b / 2, n - 1);
+						double u = (a - 2 * ca) * 0.5;
+						double v = (b - 2 * cb) * 0.5;
+						int node = cb * (n + 1) + ca;
+						double ix = interpolate(ax, node, n + 1, u, v);
+						double iy = interpolate(ay, node, n + 1, u, v);
+						ok = Math.abs(ix - out[0]) <= maxError
+								&& Math.abs(iy - out[1]) <= maxError;
+					}
+				}
+			}
+			if (ok) {
+				tileLevel[tile] = level;
+				if (level > 0) {
+					tileAX[tile] = ax;
+					tileAY[tile] = ay;
+				}
+				return;
+			}
+			n = fine;
+			ax = fx;
+			ay = fy;
+		}
+		tileLevel[tile] = Exact;
+	}
+
+	/**
+	 * Bilinear interpolation in the cell whose top left node is at index
+	 * node of a lattice with the given stride.
+	 */
+	private static double interpolate(double[] values, int node, int stride,
+			double u, double v) {
+		double top = values[node] + u * (values[node + 1] - values[node]);
+		double bottom = values[node + stride] + u
+				* (values[node + stride + 1] - values[node + stride]);
+		return top + v * (bottom - top);
+	}
+
+	private void exact(double x, double y, double[] out) {
+		field.accumulate(x, y, sourceX, sourceY, strength, sourceX.length, out);
+	}
+
+	/**
+	 * Stores the acceleration at (x, y) in out[0] and out[1]. The grid is
+	 * read-only once built, so it may be shared between threads as long as
+	 * each caller passes its own out array.
+	 * @param x the x coordinate
+	 * @param y the y coordinate
+	 * @param out array receiving the x and y acceleration
+	 */
+	public void accelerationAt(double x, double y, double[] out) {
+		double fx = (x - x0) * inverseSpacing;
+		double fy = (y - y0) * inverseSpacing;
+		// checked before truncating, since (int) rounds toward zero
+		if (!(fx >= 0 && fy >= 0 && fx < columns && fy < rows)) {
+			exact(x, y, out);
+			return;
+		}
+		int i = (int) fx;
+		int j = (int) fy;
+		int tile = j * columns + i;
+		int level = tileLevel[tile];
+		double u = fx - i;
+		double v = fy - j;
+		if (level == 0) {
+			int node = j * (columns + 1) + i;
+			out[0] = interpolate(nodeAX, node, columns + 1, u, v);
+			out[1] = interpolate(nodeAY, node, columns + 1, u, v);
+		} else if (level == Exact) {
+			exact(x, y, out);
+		} else {
+			int n = 1 << level;
+			double su = u * n;
+			double sv = v * n;
+			int a = Math.min((int) su, n - 1);
+			int b = Math.min((int) sv, n - 1);
+			int node = b * (n + 1) + a;
+			out[0] = interpolate(tileAX[tile], node, n + 1, su - a, sv - b);
+			out[1] = interpolate(tileAY[tile], node, n + 1, su - a, sv - b);
+		}
+	}
+
+	/**
+	 * Returns if this grid was built for exactly these sources and law.
+	 * @param sx the source x coordinates
+	 * @param sy the source y coordinates
+	 * @param s the source strengths
+	 * @param law the force law
+	 * @return if the grid describes the same field
+	 */
+	public boolean describes(double[] sx, double[] sy, double[] s,
+			ForceField law) {
+		return field == law && java.util.Arrays.equals(sourceX, sx)
+				&& java.util.Arrays.equals(sourceY, sy)
+				&& java.util.Arrays.equals(strength, s);
+	}
+
+	/**
+	 * Returns the error bound the grid was built with.
+	 * @return the error bound
+	 */
+	public double getMaxError() {
+		return maxError;
+	}
+
+	/**
+	 * Returns how many tiles use each refinement level. The last entry counts
+	 * the tiles that are evaluated exactly.
+	 * @return tile counts by refinement level
+	 */
+	public int[] getTileCounts() {
+		int[] counts = new int[MaxRefinement + 2];
+		for (int level : tileLevel) {
+			counts[level == Exact ? MaxRefinement + 1 : level]++;
+		}
+		return counts;
+	}
+
+}
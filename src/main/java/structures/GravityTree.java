@@ -0,0 +1,299 @@
+package structures;
+
+import java.util.Arrays;
+
+/**
+ * A Barnes-Hut quadtree over a set of gravity sources. Each node of the tree
+ * stores the total strength and the center of strength of the sources below
+ * it. A node that is far enough from the ball, compared to its width, pulls
+ * as a single source at that center, so a lookup visits O(log n) nodes
+ * instead of every source.
+ * <p>
+ * The opening angle decides what "far enough" means: a node of width w is
+ * used as a whole when the ball is further than w / angle from it. Smaller
+ * angles are more accurate and slower, and an angle of 0 opens every node,
+ * which gives the exact sum. The error of a node taken as a whole grows
+ * roughly with the square of the angle.
+ * <p>
+ * Lookups neither allocate nor modify the tree, so a tree may be shared by
+ * any number of threads as long as nobody rebuilds it.
+ */
+public class GravityTree {
+
+	/**
+	 * The opening angle used when none is given.
+	 */
+	public static final double DefaultOpeningAngle = 0.5;
+
+	/**
+	 * The fewest sources a tree is worth building for. Below this a direct
+	 * sum is as fast.
+	 */
+	public static final int MinSources = 64;
+
+	/**
+	 * The most sources kept in a node that is not subdivided.
+	 */
+	public static final int LeafSize = 4;
+
+	/**
+	 * The deepest a node may be, which bounds the work for sources at the
+	 * same position.
+	 */
+	public static final int MaxDepth = 24;
+
+	private final ForceField field;
+	private final double openingAngle;
+
+	// the sources, reordered so each node covers a contiguous range
+	private int count;
+	private double[] sourceX = new double[0], sourceY = new double[0],
+			strength = new double[0];
+
+	// node 0 is the root; the children of a node are stored next to each
+	// other, so a node lists them as firstChild .. firstChild + children - 1
+	private int nodes;
+	private double[] nodeX = new double[0], nodeY = new double[0],
+			nodeStrength = new double[0], nodeOpen = new double[0];
+	private int[] firstChild = new int[0], children = new int[0],
+			start = new int[0], end = new int[0];
+
+	/**
+	 * Creates an empty tree.
+	 * @param field the force law
+	 * @param openingAngle the opening angle, at least 0
+	 */
+	public GravityTree(ForceField field, double openingAngle) {
+		if (openingAngle < 0)
+			throw new IllegalArgumentException("The opening angle cannot be "
+					+ "negative.");
+		this.field = field;
+		this.openingAngle = openingAngle;
+	}
+
+	/**
+	 * Creates a tree over a set of sources.
+	 * @param sourceX the x coordinates of the sources
+	 * @param sourceY the y coordinates of the sources
+	 * @param strength the strength of each source
+	 * @param count the number of sources to use
+	 * @param field the force law
+	 * @param openingAngle the opening angle, at least 0
+	 */
+	public GravityTree(double[] sourceX, double[] sourceY, double[] strength,
+			int count, ForceField field, double openingAngle) {
+		this(field, openingAngle);
+		build(sourceX, sourceY, strength, count);
+	}
+
+	/**
+	 * Returns the force law of this tree.
+	 * @return the force field
+	 */
+	public ForceField getForceField() {
+		return field;
+	}
+
+	/**
+	 * Returns the opening angle of this tree.
+	 * @return the opening angle
+	 */
+	public double getOpeningAngle() {
+		return openingAngle;
+	}
+
+	/**
+	 * Returns the number of sources in the tree.
+	 * @return the number of sources
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Returns the number of nodes in the tree.
+	 * @return the number of nodes
+	 */
+	public int getNodeCount() {
+		return nodes;
+	}
+
+	/**
+	 * Replaces the sources of the tree. The arrays of the previous build are
+	 * reused when they are large enough, so rebuilding a tree over the same
+	 * number of sources does not allocate.
+	 * @param x the x coordinates of the sources
+	 * @param y the y coordinates of the sources
+	 * @param s the strength of each source
+	 * @param n the number of sources to use
+	 */
+	public void build(double[] x, double[] y, double[] s, int n) {
+		if (sourceX.length < n) {
+			sourceX = new double[n];
+			sourceY = new double[n];
+			strength = new double[n];
+		}
+		System.arraycopy(x, 0, sourceX, 0, n);
+		System.arraycopy(y, 0, sourceY, 0, n);
+		System.arraycopy(s, 0, strength, 0, n);
+		count = n;
+		nodes = 0;
+		if (n == 0)
+			return;
+		double minX = x[0], minY = y[0], maxX = minX, maxY = minY;
+		for (int i = 1; i < n; i++) {
+			minX = Math.min(minX, x[i]);
+			minY = Math.min(minY, y[i]);
+			maxX = Math.max(maxX, x[i]);
+			maxY = Math.max(maxY, y[i]);
+		}
+		double half = Math.max(maxX - minX, maxY - minY) / 2 + 1;
+		ensureNodes(1);
+		nodes = 1;
+		buildNode(0, 0, n, (minX + maxX) / 2, (minY + maxY) / 2, half, 0);
+	}
+
+	private void ensureNodes(int capacity) {
+		if (nodeX.length >= capacity)
+			return;
+		int size = Math.max(capacity, 2 * nodeX.length);
+		nodeX = Arrays.copyOf(nodeX, size);
+		nodeY = Arrays.copyOf(nodeY, size);
+		nodeStrength = Arrays.copyOf(nodeStrength, size);
+		nodeOpen = Arrays.copyOf(nodeOpen, size);
+		firstChild = Arrays.copyOf(firstChild, size);
+		children = Arrays.copyOf(children, size);
+		start = Arrays.copyOf(start, size);
+		end = Arrays.copyOf(end, size);
+	}
+
+	/**
+	 * Fills in a node covering the sources lo .. hi - 1 and the square of
+	 * the given half width around (cx, cy), then subdivides it.
+	 */
+	private void buildNode(int node, int lo, int hi, double cx, double cy,
+			double half, int depth) {
+		// the center is weighted by the size of each strength, so a mix of
+		// pulling and pushing sources still has a center inside the node
+		double weight = 0, total = 0, sumX = 0, sumY = 0;
+		for (int i = lo; i < hi; i++) {
+			double w = Math.abs(strength[i]);
+			weight += w;
+			total += strength[i];
+			sumX += w * sourceX[i];
+			sumY += w * sourceY[i];
+		}
+		double comX = (weight == 0) ? cx : sumX / weight;
+		double comY = (weight == 0) ? cy : sumY / weight;
+		nodeX[node] = comX;
+		nodeY[node] = comY;
+		nodeStrength[node] = total;
+		start[node] = lo;
+		end[node] = hi;
+		firstChild[node] = 0;
+		children[node] = 0;
+		// open the node inside w / angle of its center of strength, pushed
+		// out by the distance from that center to the middle of the square
+		if (openingAngle == 0) {
+			nodeOpen[node] = Double.POSITIVE_INFINITY;
+		} else {
+			double r = 2 * half / openingAngle
+					+ Math.hypot(comX - cx, comY - cy);
+			nodeOpen[node] = r * r;
+		}
+		if (hi - lo <= LeafSize || depth == MaxDepth)
+			return;
+
+		// split into quadrants: top and bottom, then left and right of each
+		int mid = partition(lo, hi, cy, false);
+		int topMid = partition(lo, mid, cx, true);
+		int bottomMid = partition(mid, hi, cx, true);
+		int used = (lo < topMid ? 1 : 0) + (topMid < mid ? 1 : 0)
+				+ (mid < bottomMid ? 1 : 0) + (bottomMid < hi ? 1 : 0);
+		int child = nodes;
+		ensureNodes(nodes + used);
+		nodes += used;
+		firstChild[node] = child;
+		children[node] = used;
+		double q = half / 2;
+		if (lo < topMid)
+			buildNode(child++, lo, topMid, cx - q, cy - q, q, depth + 1);
+		if (topMid < mid)
+			buildNode(child++, topMid, mid, cx + q, cy - q, q, depth + 1);
+		if (mid < bottomMid)
+			buildNode(child++, mid, bottomMid, cx - q, cy + q, q, depth + 1);
+		if (bottomMid < hi)
+			buildNode(child++, bottomMid, hi, cx + q, cy + q, q, depth + 1);
+	}
+
+	/**
+	 * Moves the sources lo .. hi - 1 that are below the split coordinate to
+	 * the front and returns the index of the first one that is not.
+	 */
+	private int partition(int lo, int hi, double split, boolean byX) {
+		double[] key = byX ? sourceX : sourceY;
+		int i = lo, j = hi - 1;
+		while (i <= j) {
+			if (key[i] < split) {
+				i++;
+			} else {
+				swap(i, j--);
+			}
+		}
+		return i;
+	}
+
+	private void swap(int i, int j) {
+		double t = sourceX[i];
+		sourceX[i] = sourceX[j];
+		sourceX[j] = t;
+		t = sourceY[i];
+		sourceY[i] = sourceY[j];
+		sourceY[j] = t;
+		t = strength[i];
+		strength[i] = strength[j];
+		strength[j] = t;
+	}
+
+	/**
+	 * Stores the acceleration at (x, y) caused by the sources in out[0] and
+	 * out[1]. Does not allocate.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param out array receiving the x and y acceleration
+	 */
+	public void accelerationAt(double x, double y, double[] out) {
+		out[0] = 0;
+		out[1] = 0;
+		if (nodes > 0)
+			accumulate(0, x, y, out);
+	}
+
+	private void accumulate(int node, double x, double y, double[] out) {
+		double dx = nodeX[node] - x;
+		double dy = nodeY[node] - y;
+		double d2 = dx * dx + dy * dy;
+		if (d2 > nodeOpen[node]) {
+			double k = field.scale(d2, nodeStrength[node]);
+			out[0] += k * dx;
+			out[1] += k * dy;
+		} else if (children[node] == 0) {
+			double ax = 0, ay = 0;
+			for (int i = start[node]; i < end[node]; i++) {
+				double sx = sourceX[i] - x;
+				double sy = sourceY[i] - y;
+				double k = field.scale(sx * sx + sy * sy, strength[i]);
+				ax += k * sx;
+				ay += k * sy;
+			}
+			out[0] += ax;
+			out[1] += ay;
+		} else {
+			int last = firstChild[node] + children[node];
+			for (int c = firstChild[node]; c < last; c++) {
+				accumulate(c, x, y, out);
+			}
+		}
+	}
+
+}
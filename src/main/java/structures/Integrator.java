@@ -0,0 +1,178 @@
+package structures;
+
+/**
+ * An Integrator advances the ball through a gravitational field by one time
+ * step. Time is measured in ticks; the game has always moved the ball with a
+ * step of one tick.
+ * <p>
+ * The state of the ball is passed as the array {x, y, xVelocity, yVelocity}
+ * and updated in place. Implementations keep no state of their own, so one
+ * instance may be shared by any number of levels and threads.
+ */
+public abstract class Integrator {
+
+	/**
+	 * Semi-implicit Euler, the original integration: the velocity is updated
+	 * first and the position is then moved by the new velocity. One field
+	 * evaluation per step, first order accurate.
+	 */
+	public static final Integrator EULER = new Euler();
+
+	/**
+	 * Velocity Verlet (kick-drift-kick leapfrog). Two field evaluations per
+	 * step, second order accurate, and keeps orbits from gaining or losing
+	 * energy over time.
+	 */
+	public static final Integrator VERLET = new Verlet();
+
+	/**
+	 * Classical fourth order Runge-Kutta. Four field evaluations per step.
+	 */
+	public static final Integrator RK4 = new RungeKutta();
+
+	/**
+	 * The default integrator, which reproduces the original ball movement.
+	 */
+	public static final Integrator DEFAULT = EULER;
+
+	/**
+	 * The acceleration field an Integrator samples.
+	 */
+	public interface Field {
+		/**
+		 * Stores the acceleration at (x, y) at the given time in out[0] and
+		 * out[1].
+		 * @param x the x coordinate
+		 * @param y the y coordinate
+		 * @param time the time, in ticks
+		 * @param out array receiving the x and y acceleration
+		 */
+		void accelerationAt(double x, double y, double time, double[] out);
+	}
+
+	/**
+	 * Returns the step length that keeps the distance the acceleration moves
+	 * the ball within a step, a * dt^2 / 2, at the given tolerance.
+	 * @param ax the x acceleration at the start of the step
+	 * @param ay the y acceleration at the start of the step
+	 * @param tolerance the largest accepted drift, in pixels
+	 * @param minStep the shortest allowed step
+	 * @param maxStep the longest allowed step
+	 * @return the step length, between minStep and maxStep
+	 */
+	public static double adaptiveStep(double ax, double ay, double tolerance,
+			double minStep, double maxStep) {
+		double a = Math.sqrt(ax * ax + ay * ay);
+		if (a * maxStep * maxStep <= 2 * tolerance)
+			return maxStep;
+		return Math.max(minStep, Math.sqrt(2 * tolerance / a));
+	}
+
+	/**
+	 * Advances the state by one step.
+	 * @param state {x, y, xVelocity, yVelocity}, updated in place
+	 * @param time the time at the start of the step
+	 * @param dt the step length
+	 * @param ax the x acceleration at the start of the step
+	 * @param ay the y acceleration at the start of the step
+	 * @param field the field, for any further evaluations
+	 * @param out scratch array of length 2 for field evaluations
+	 */
+	public abstract void step(double[] state, double time, double dt,
+			double ax, double ay, Field field, double[] out);
+
+	/**
+	 * Returns the number of field evaluations per step, including the one at
+	 * the start of the step.
+	 * @return the evaluations per step
+	 */
+	public abstract int getEvaluations();
+
+	private static class Euler extends Integrator {
+		@Override
+		public void step(double[] state, double time, double dt, double ax,
+				double ay, Field field, double[] out) {
+			state[2] += ax * dt;
+			state[3] += ay * dt;
+			state[0] += state[2] * dt;
+			state[1] += state[3] * dt;
+		}
+
+		@Override
+		public int getEvaluations() {
+			return 1;
+		}
+
+		@Override
+		public String toString() {
+			return "Euler";
+		}
+	}
+
+	private static class Verlet extends Integrator {
+		@Override
+		public void step(double[] state, double time, double dt, double ax,
+				double ay, Field field, double[] out) {
+			double half = 0.5 * dt;
+			double vx = state[2] + ax * half;
+			double vy = state[3] + ay * half;
+			state[0] += vx * dt;
+			state[1] += vy * dt;
+			field.accelerationAt(state[0], state[1], time + dt, out);
+			state[2] = vx + out[0] * half;
+			state[3] = vy + out[1] * half;
+		}
+
+		@Override
+		public int getEvaluations() {
+			return 2;
+		}
+
+		@Override
+		public String toString() {
+			return "Verlet";
+		}
+	}
+
+	private static class RungeKutta extends Integrator {
+		@Override
+		public void step(double[] state, double time, double dt, double ax,
+				double ay, Field field, double[] out) {
+			double x = state[0], y = state[1];
+			double vx = state[2], vy = state[3];
+			double half = 0.5 * dt;
+
+			// k1 = (v, a(x)), k2 and k3 at the midpoint, k4 at the end
+			double v2x = vx + ax * half, v2y = vy + ay * half;
+			field.accelerationAt(x + vx * half, y + vy * half, time + half,
+					out);
+			double a2x = out[0], a2y = out[1];
+
+			double v3x = vx + a2x * half, v3y = vy + a2y * half;
+			field.accelerationAt(x + v2x * half, y + v2y * half, time + half,
+					out);
+			double a3x = out[0], a3y = out[1];
+
+			double v4x = vx + a3x * dt, v4y = vy + a3y * dt;
+			field.accelerationAt(x + v3x * dt, y + v3y * dt, time + dt, out);
+			double a4x = out[0], a4y = out[1];
+
+			double sixth = dt / 6.0;
+			state[0] = x + sixth * (vx + 2 * v2x + 2 * v3x + v4x);
+			state[1] = y + sixth * (vy + 2 * v2y + 2 * v3y + v4y);
+			state[2] = vx + sixth * (ax + 2 * a2x + 2 * a3x + a4x);
+			state[3] = vy + sixth * (ay + 2 * a2y + 2 * a3y + a4y);
+		}
+
+		@Override
+		public int getEvaluations() {
+			return 4;
+		}
+
+		@Override
+		public String toString() {
+			return "RK4";
+		}
+	}
+
+}
@@ -4,7 +4,6 @@ import game.GamePanel;
 
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
@@ -14,7 +13,7 @@ import java.util.List;
  * A Level is the generic structure for each level's storage information.
  * @author Sean Lewis
  */
-public class Level {
+public class Level implements Integrator.Field {
 
 	/**
 	 * A constant for how many stars should be put in the level. As the number
@@ -22,19 +21,106 @@ public class Level {
 	 */
 	private static final int StarFactor = 7000;
 
-	private static final int extraX = 100;
-	private static final int extraY = 100;
+	private static final int extraX = LevelGeometry.ExtraX;
+	private static final int extraY = LevelGeometry.ExtraY;
+
+	/**
+	 * The shortest step an adaptive integrator may take, in ticks.
+	 */
+	public static final double MinStep = 1.0 / 64;
+
+	/**
+	 * The most reflector bounces resolved in a single move of the ball.
+	 */
+	public static final int MaxBounces = 4;
+
+	/**
+	 * Ticks of the default tick budget per pixel around the region the ball
+	 * can reach: a ball moving one pixel per tick can go around it four times.
+	 */
+	public static final int BudgetTicksPerPixel = 4;
 
 	private Ball ball;
 	private List<Body> bodies;
 	private List<GoalPost> goals;
 	private List<WarpPoint> warps;
 	private List<Blockage> blockages;
-	private List<Rectangle> blockageRects;
 	private double followFactor, gravityStrength;
+	// the most ticks possibleWin simulates a shot for, or 0 for the default
+	private long tickBudget;
+
+	// The geometry, shared with the copies made by newSimulation, and the
+	// arrays of it used by updateLevel. Gravity sources are stored in the
+	// order they are summed: each body followed by its moons. sourceOrbits
+	// holds the orbit of a moon slot, or null for a body. Moon positions come
+	// from the orbit at this level's time (in ticks), so the shared Moon
+	// objects are never modified by a simulation; sourceX and sourceY are
+	// this level's own.
+	private LevelGeometry geometry;
+	private Body[] sources;
+	private Moon.Orbit[] sourceOrbits;
+	private double time;
+	private boolean[] solidSources;
+	private double[] sourceX, sourceY, sourceStrength;
+	private int[] moonSlots, pullingSlots, pullingMoonSlots;
+	private ForceField forceField = ForceField.DEFAULT;
+
+	// Optional interpolated table of the pull of the bodies (not the moons),
+	// built from staticX/Y/Strength.
+	private double[] staticX, staticY, staticStrength;
+	private GravityGrid gravityGrid;
+	private double gravityGridError;
+
+	// Optional Barnes-Hut trees, used when the opening angle is positive and
+	// there are enough sources to be worth it. The body tree never changes,
+	// so copies of the level share it; the moon tree is rebuilt whenever the
+	// moons are summed at a different time than the last build.
+	private double treeAngle;
+	private GravityTree bodyTree, moonTree;
+	private double moonTreeTime;
+	private double[] moonTreeX, moonTreeY, moonTreeStrength;
 
+	// Escape test: the box and the circle around every object of the level
+	// and the optional escape box. For each pulling source, its position,
+	// how far it may move from there (moons), the furthest it may be from
+	// the center of the circle, and its strength.
+	private double boundLeft, boundTop, boundRight, boundBottom;
+	private double escapeX, escapeY, escapeRadius, escapeStrength;
+	private double[] pullX, pullY, pullReach, pullSpread, pullStrength;
+	private double escapeLeft = Double.NaN, escapeTop, escapeRight,
+			escapeBottom;
+	private final double[] acceleration = new double[2];
+	private final double[] position = new double[2];
+
+	// Ball integration. The default (Euler, fixed steps) is the original
+	// movement and takes the allocation-free path in updateFixed.
+	private Integrator integrator = Integrator.DEFAULT;
+	private double stepTolerance, maxStep = 1;
+	private FixedPointSimulation fixedPoint;
+	private final double[] ballState = new double[4];
+	private WarpPoint[] warpArray;
+	// blockage boxes; the ball's center bounces off their faces
+	private double[] blockLeft, blockTop, blockRight, blockBottom;
+	private GoalPost[] goalArray;
+
+	// Broad phase: one grid per kind of object. Moons are indexed by the box
+	// around their whole orbit, so the grids never change while the moons
+	// move. candidates is the query scratch array.
+	private SpatialGrid sourceGrid, blockageGrid, goalGrid, warpGrid;
+	private int[] candidates;
+
+	private double screenXShift, screenYShift;
 	private Point2d screenShift;
-	private boolean ballInWarp, hittingBlockage;
+	private boolean ballInWarp;
+	// blockage the ball started a move inside of and was turned around in,
+	// or -1; it is ignored until the ball has left it
+	private int escapingBlockage = -1;
+	private boolean boxHitXFace;
+	// solid source the ball ran into during its last move, if any
+	private Body contactBody;
+	// what happened during the current and the last update
+	private boolean bounced, warped;
+	private TickOutcome lastOutcome = TickOutcome.FLYING;
 	private ArrayList<Star> stars;
 
 	private BufferedImage image;
@@ -53,9 +139,9 @@ public class Level {
 		goals = new ArrayList<GoalPost>();
 		warps = new ArrayList<WarpPoint>();
 		blockages = new ArrayList<Blockage>();
-		blockageRects = new ArrayList<Rectangle>();
 		followFactor = 0.0;
 		gravityStrength = 0.0;
+		loadGeometry();
 	}
 
 	/**
@@ -81,52 +167,228 @@ public class Level {
 		this.blockages = blockages;
 		if (this.blockages == null)
 			this.blockages = new ArrayList<Blockage>();
-		this.blockageRects = new ArrayList<Rectangle>();
-
-		for (Blockage bl : this.blockages) {
-			this.blockageRects.add(new Rectangle(bl.getDrawX(), bl.getDrawY(),
-					bl.getDrawXSize(), bl.getDrawYSize()));
-		}
 
 		this.followFactor = followfactor;
 		this.gravityStrength = gravityStrength;
-		double xs = (followFactor == 0) ? 0
-				: ((500 - ball.getCenter().x()) / followFactor);
-		double ys = (followFactor == 0) ? 0
-				: ((350 - ball.getCenter().y()) / followFactor);
-		screenShift = new Point2d(xs, ys);
+		loadGeometry();
+		setShift(500, 350);
+	}
+
+	/**
+	 * Creates a level that shares the geometry and the settings of another,
+	 * with its own ball at the start and the moons at the given tick.
+	 */
+	private Level(Level level, long startTick) {
+		Ball start = level.ball;
+		ball = new Ball((int) start.getCenter().x(), (int) start.getCenter()
+				.y(), start.getRadius(), start.getColor());
+		bodies = level.bodies;
+		goals = level.goals;
+		warps = level.warps;
+		blockages = level.blockages;
+		followFactor = level.followFactor;
+		gravityStrength = level.gravityStrength;
+		tickBudget = level.tickBudget;
+		forceField = level.forceField;
+		gravityGrid = level.gravityGrid;
+		gravityGridError = level.gravityGridError;
+		useGeometry(level.geometry);
+		escapeLeft = level.escapeLeft;
+		escapeTop = level.escapeTop;
+		escapeRight = level.escapeRight;
+		escapeBottom = level.escapeBottom;
+		computeEscapeCircle();
+		treeAngle = level.treeAngle;
+		bodyTree = level.bodyTree;
+		if (treeAngle > 0)
+			buildMoonTree();
+		setShift(500, 350);
+		setTick(startTick);
+		setIntegrator(level.integrator, level.stepTolerance, level.maxStep);
+		setFixedPoint(level.fixedPoint != null);
+	}
+
+	/**
+	 * Builds the geometry of the bodies, moons, warps, blockages and goals,
+	 * so a tick neither walks Lists nor allocates iterators.
+	 */
+	private void loadGeometry() {
+		useGeometry(new LevelGeometry(bodies, warps, goals, blockages,
+				followFactor, gravityStrength));
+		if (gravityGrid != null
+				&& !gravityGrid.describes(staticX, staticY, staticStrength,
+						forceField)) {
+			gravityGrid = null;
+		}
+		if (escapingBlockage >= blockLeft.length)
+			escapingBlockage = -1;
+		buildGravityTrees();
+		computeEscapeCircle();
+		if (fixedPoint != null)
+			fixedPoint = new FixedPointSimulation(this);
+	}
+
+	/**
+	 * Points the arrays used by updateLevel at those of a geometry. Only the
+	 * source positions are copied, as the moons move with this level's time.
+	 */
+	private void useGeometry(LevelGeometry g) {
+		geometry = g;
+		sources = g.sources;
+		sourceOrbits = g.sourceOrbits;
+		solidSources = g.solidSources;
+		sourceX = g.sourceX.clone();
+		sourceY = g.sourceY.clone();
+		sourceStrength = g.sourceStrength;
+		moonSlots = g.moonSlots;
+		pullingSlots = g.pullingSlots;
+		pullingMoonSlots = g.pullingMoonSlots;
+		staticX = g.staticX;
+		staticY = g.staticY;
+		staticStrength = g.staticStrength;
+		warpArray = g.warpArray;
+		blockLeft = g.blockLeft;
+		blockTop = g.blockTop;
+		blockRight = g.blockRight;
+		blockBottom = g.blockBottom;
+		goalArray = g.goalArray;
+		sourceGrid = g.sourceGrid;
+		blockageGrid = g.blockageGrid;
+		goalGrid = g.goalGrid;
+		warpGrid = g.warpGrid;
+		candidates = new int[g.maxCandidates];
+		pullX = g.pullX;
+		pullY = g.pullY;
+		pullReach = g.pullReach;
+		pullStrength = g.pullStrength;
+		escapeStrength = g.escapeStrength;
+		xMin = g.xMin;
+		xMax = g.xMax;
+		yMin = g.yMin;
+		yMax = g.yMax;
+		moveMoonSources();
+	}
+
+	/**
+	 * Returns the geometry of this level, as of the last reset. It may be
+	 * shared with other levels.
+	 * @return the geometry
+	 */
+	public LevelGeometry getGeometry() {
+		return geometry;
+	}
+
+	/**
+	 * Finds the circle around every source, blockage, goal and warp (and the
+	 * escape box, if set) used by hasEscaped.
+	 */
+	private void computeEscapeCircle() {
+		pullSpread = new double[pullX.length];
+		double left = Double.POSITIVE_INFINITY, top = left;
+		double right = Double.NEGATIVE_INFINITY, bottom = right;
+		double[][] boxes = geometry.objectBoxes();
+		for (int i = 0; i < boxes[0].length; i++) {
+			left = Math.min(left, boxes[0][i]);
+			top = Math.min(top, boxes[1][i]);
+			right = Math.max(right, boxes[2][i]);
+			bottom = Math.max(bottom, boxes[3][i]);
+		}
+		if (!Double.isNaN(escapeLeft)) {
+			left = Math.min(left, escapeLeft);
+			top = Math.min(top, escapeTop);
+			right = Math.max(right, escapeRight);
+			bottom = Math.max(bottom, escapeBottom);
+		}
+		if (left > right) {
+			// nothing to return to
+			left = right = ball.getCenterX();
+			top = bottom = ball.getCenterY();
+		}
+		boundLeft = left;
+		boundTop = top;
+		boundRight = right;
+		boundBottom = bottom;
+		escapeX = (left + right) / 2;
+		escapeY = (top + bottom) / 2;
+		escapeRadius = Math.hypot(right - left, bottom - top) / 2;
+		for (int j = 0; j < pullX.length; j++) {
+			pullSpread[j] = Math.hypot(pullX[j] - escapeX, pullY[j] - escapeY)
+					+ pullReach[j];
+		}
+	}
+
+	/**
+	 * Builds the body tree and sets up the moon tree for the current
+	 * opening angle, or drops them when there are too few sources.
+	 */
+	private void buildGravityTrees() {
+		bodyTree = null;
+		moonTree = null;
+		if (treeAngle == 0)
+			return;
+		if (staticX.length >= GravityTree.MinSources) {
+			bodyTree = new GravityTree(staticX, staticY, staticStrength,
+					staticX.length, forceField, treeAngle);
+		}
+		buildMoonTree();
+	}
+
+	private void buildMoonTree() {
+		int n = pullingMoonSlots.length;
+		if (n < GravityTree.MinSources)
+			return;
+		moonTree = new GravityTree(forceField, treeAngle);
+		moonTreeX = new double[n];
+		moonTreeY = new double[n];
+		moonTreeStrength = new double[n];
+		for (int j = 0; j < n; j++) {
+			moonTreeStrength[j] = sourceStrength[pullingMoonSlots[j]];
+		}
+		moonTreeTime = Double.NaN;
+	}
+
+	/**
+	 * Queries a grid with the box around the ball, expanded by (dx, dy) for
+	 * a moving ball, and returns the number of candidates found. They are
+	 * sorted so ties resolve in list order, as a linear scan would.
+	 */
+	private int nearBall(SpatialGrid grid, double dx, double dy) {
+		double r = ball.getRadius();
+		double x = ball.getCenterX();
+		double y = ball.getCenterY();
+		int n = grid.query(Math.min(x, x + dx) - r, Math.min(y, y + dy) - r,
+				Math.max(x, x + dx) + r, Math.max(y, y + dy) + r, candidates);
+		// insertion sort; there are only ever a few candidates
+		for (int i = 1; i < n; i++) {
+			int id = candidates[i];
+			int j = i - 1;
+			while (j >= 0 && candidates[j] > id) {
+				candidates[j + 1] = candidates[j];
+				j--;
+			}
+			candidates[j + 1] = id;
+		}
+		return n;
+	}
+
+	/**
+	 * Sets the screen shift so the ball is drawn relative to (centerX,
+	 * centerY) according to the follow factor. Does not allocate.
+	 */
+	private void setShift(double centerX, double centerY) {
+		screenXShift = (followFactor == 0) ? 0
+				: ((centerX - ball.getCenterX()) / followFactor);
+		screenYShift = (followFactor == 0) ? 0
+				: ((centerY - ball.getCenterY()) / followFactor);
+		screenShift = null;
 	}
 
 	/**
 	 * Performs all level computation so that it can be drawn.
 	 */
 	public void generateLevelData() {
-		if (followFactor == 0) {
-			// arbitrary values, see formula below - using 1 would lead to
-			// division by 0, and using numbers <1.25 would make a huge area
-			xMin = -extraX;
-			xMax = GamePanel.Width + extraX;
-			yMin = -extraY;
-			yMax = GamePanel.Height + extraY;
-		} else if (followFactor < 1.5) {
-			// arbitrary values, see formula below - using 1 would lead to
-			// division by 0, and using numbers <1.25 would make a huge area
-			xMin = (int) (-1.5 * GamePanel.Width);
-			xMax =  -xMin;
-			yMin = (int) (-1.2 * GamePanel.Height);
-			yMax = -yMin;
-		} else {
-			
-			// algebraic solutions to the min/max values that can be reached
-			// based on the follow factors of the level:
-			double halfWidth = GamePanel.Width / 2;
-			double halfHeight = GamePanel.Height / 2;			
-			double oneMinusInverse = 1.0 - 1.0 / followFactor;
-
-			xMin = (int) ((-halfWidth / followFactor) / oneMinusInverse);
-			xMax = (int) (xMin + GamePanel.Width / oneMinusInverse);
-			yMin = (int) ((-halfHeight / followFactor) / oneMinusInverse);
-			yMax = (int) (yMin + GamePanel.Height / oneMinusInverse);
+		if (gravityGridError > 0 && gravityGrid == null) {
+			buildGravityGrid(gravityGridError);
 		}
 
 		// stars are never recalculated
@@ -218,24 +480,28 @@ public class Level {
 	}
 
 	/**
-	 * Returns a Body that intersects the parameter, or null if there are none.
-	 * Ignores reflector bodies.
+	 * Returns the Body the ball ran into during its last move or that
+	 * intersects it, or null if there are none. Ignores reflector bodies.
 	 * @param body a Body
 	 * @return a intersecting Body or null
 	 */
 	public Body getIntersectingBody() {
-		for (Body b : bodies) {
-			if (!b.isReflector() && ball.intersects(b)) {
-				return b;
-			}
-			for (Moon m : b.getMoons()) {
-				if (ball.intersects(m)) {
-					return m;
-				}
+		if (contactBody != null)
+			return contactBody;
+		return overlappingBody();
+	}
+
+	private Body overlappingBody() {
+		int n = nearBall(sourceGrid, 0, 0);
+		for (int k = 0; k < n; k++) {
+			int i = candidates[k];
+			if (solidSources[i]
+					&& ball.intersects(sourceX[i], sourceY[i],
+							sources[i].getRadius())) {
+				return sources[i];
 			}
 		}
 		return null;
-
 	}
 
 	/**
@@ -254,12 +520,19 @@ public class Level {
 	 *         none
 	 */
 	public Blockage getBlockageIntersection(CircularShape shape) {
-		for (Blockage b : blockages) {
-			if (b.intersects(shape.getCenter())) {
-				return b;
+		double x = shape.getCenterX();
+		double y = shape.getCenterY();
+		// one pixel of slack for the rounding in Blockage.intersects
+		int n = blockageGrid.query(x - 1, y - 1, x + 1, y + 1, candidates);
+		int first = -1;
+		for (int k = 0; k < n; k++) {
+			int i = candidates[k];
+			if ((first < 0 || i < first)
+					&& blockages.get(i).intersects(x, y)) {
+				first = i;
 			}
 		}
-		return null;
+		return (first < 0) ? null : blockages.get(first);
 	}
 
 	/**
@@ -270,6 +543,29 @@ public class Level {
 		return followFactor;
 	}
 
+	/**
+	 * Returns the most ticks possibleWin simulates a shot for before giving
+	 * up on it. Unless set, this is BudgetTicksPerPixel ticks per pixel of
+	 * the perimeter of the region the ball can reach.
+	 * @return the tick budget
+	 */
+	public long getTickBudget() {
+		if (tickBudget > 0)
+			return tickBudget;
+		return BudgetTicksPerPixel * 2L * ((xMax - xMin) + (yMax - yMin));
+	}
+
+	/**
+	 * Sets the most ticks possibleWin simulates a shot for.
+	 * @param ticks the tick budget, or 0 to derive it from the level
+	 */
+	public void setTickBudget(long ticks) {
+		if (ticks < 0)
+			throw new IllegalArgumentException("The tick budget cannot be "
+					+ "negative.");
+		tickBudget = ticks;
+	}
+
 	/**
 	 * Returns the ArrayList of GoalPosts.
 	 * @return the ArrayList of GoalPosts
@@ -286,11 +582,225 @@ public class Level {
 		return gravityStrength;
 	}
 
+	/**
+	 * Returns the law used to turn the bodies into gravitational
+	 * acceleration.
+	 * @return the force field
+	 */
+	public ForceField getForceField() {
+		return forceField;
+	}
+
+	/**
+	 * Sets the law used to turn the bodies into gravitational acceleration.
+	 * @param forceField the new force field
+	 */
+	public void setForceField(ForceField forceField) {
+		if (forceField == null)
+			throw new NullPointerException("Cannot set a Level's force "
+					+ "field to null.");
+		this.forceField = forceField;
+		gravityGrid = null;
+		buildGravityTrees();
+		if (fixedPoint != null)
+			fixedPoint = new FixedPointSimulation(this);
+	}
+
+	/**
+	 * Returns the opening angle of the Barnes-Hut trees, or 0 if the sources
+	 * are summed directly.
+	 * @return the opening angle
+	 */
+	public double getGravityTreeAngle() {
+		return treeAngle;
+	}
+
+	/**
+	 * Sums the gravity of the bodies and of the moons through Barnes-Hut
+	 * trees (see GravityTree), so a tick costs O(log n) in the number of
+	 * sources instead of O(n). Only worth it for levels with many bodies:
+	 * each tree is built only when there are at least GravityTree.MinSources
+	 * sources of its kind, and fewer are still summed directly. A gravity
+	 * grid, if set, takes the place of the body tree.
+	 * @param openingAngle the opening angle, usually
+	 *        GravityTree.DefaultOpeningAngle, or 0 to sum directly
+	 */
+	public void setGravityTreeAngle(double openingAngle) {
+		if (openingAngle < 0)
+			throw new IllegalArgumentException("The opening angle cannot be "
+					+ "negative.");
+		treeAngle = openingAngle;
+		buildGravityTrees();
+	}
+
+	/**
+	 * Returns the integrator that moves the ball.
+	 * @return the integrator
+	 */
+	public Integrator getIntegrator() {
+		return integrator;
+	}
+
+	/**
+	 * Chooses how the ball is integrated. With a tolerance of 0 every step is
+	 * one tick long. Otherwise the step shrinks where the acceleration is
+	 * strong so the ball drifts at most about tolerance pixels from its
+	 * unaccelerated path per step; updateLevel still covers exactly one
+	 * tick, while advance may take steps of up to maxStep ticks.
+	 * @param integrator the integrator
+	 * @param tolerance the drift per step in pixels, or 0 for fixed steps
+	 * @param maxStep the longest step advance may take, in ticks
+	 */
+	public void setIntegrator(Integrator integrator, double tolerance,
+			double maxStep) {
+		if (integrator == null)
+			throw new NullPointerException("The integrator cannot be null.");
+		if (tolerance < 0 || maxStep < 1)
+			throw new IllegalArgumentException("Invalid step parameters.");
+		this.integrator = integrator;
+		this.stepTolerance = tolerance;
+		this.maxStep = maxStep;
+	}
+
+	/**
+	 * Returns if the ball is simulated in fixed-point arithmetic.
+	 * @return if the fixed-point mode is on
+	 */
+	public boolean isFixedPoint() {
+		return fixedPoint != null;
+	}
+
+	/**
+	 * Turns the fixed-point mode on or off. In fixed-point mode updateLevel
+	 * and advance take one tick of a FixedPointSimulation, which gives the
+	 * same result on every machine, and copy its ball back into this level.
+	 * The integrator, gravity grid and trees are then not used.
+	 * @param on if the ball should be simulated in fixed-point arithmetic
+	 * @throws IllegalArgumentException if the force field has no fixed-point
+	 *         form
+	 */
+	public void setFixedPoint(boolean on) {
+		fixedPoint = on ? new FixedPointSimulation(this) : null;
+	}
+
+	/**
+	 * Sets the error bound of the gravity grid that generateLevelData builds.
+	 * A bound of 0 (the default) disables the grid, so the bodies are always
+	 * summed exactly.
+	 * @param maxError the largest accepted error in each acceleration
+	 *        component, or 0 for no grid
+	 */
+	public void setGravityGridError(double maxError) {
+		gravityGridError = maxError;
+		if (maxError <= 0 || gravityGrid != null
+				&& gravityGrid.getMaxError() != maxError) {
+			gravityGrid = null;
+		}
+	}
+
+	/**
+	 * Builds and installs a gravity grid for the bodies of this level over
+	 * the region the ball can reach. Moons are always summed exactly. The
+	 * build runs on all available processors.
+	 * @param maxError the largest accepted error in each acceleration
+	 *        component
+	 * @return the new grid, which may be shared with other levels with the
+	 *         same bodies through setGravityGrid
+	 */
+	public GravityGrid buildGravityGrid(double maxError) {
+		gravityGridError = maxError;
+		gravityGrid = new GravityGrid(staticX, staticY, staticStrength,
+				forceField, xMin - extraX, yMin - extraY, xMax + extraX, yMax
+						+ extraY, GravityGrid.DefaultSpacing, maxError);
+		return gravityGrid;
+	}
+
+	/**
+	 * Returns the gravity grid in use, or null if the bodies are summed
+	 * exactly.
+	 * @return the gravity grid or null
+	 */
+	public GravityGrid getGravityGrid() {
+		return gravityGrid;
+	}
+
+	/**
+	 * Uses an already built gravity grid for the bodies of this level.
+	 * @param grid a grid built for the same bodies and force field, or null to
+	 *        sum the bodies exactly
+	 */
+	public void setGravityGrid(GravityGrid grid) {
+		if (grid != null
+				&& !grid.describes(staticX, staticY, staticStrength,
+						forceField))
+			throw new IllegalArgumentException("The gravity grid was built "
+					+ "for different bodies.");
+		gravityGrid = grid;
+		gravityGridError = (grid == null) ? 0 : grid.getMaxError();
+	}
+
+	/**
+	 * Returns the number of whole ticks simulated, which fixes the positions
+	 * of the moons.
+	 * @return the current tick
+	 */
+	public long getTick() {
+		return (long) time;
+	}
+
+	/**
+	 * Returns the simulated time in ticks. Only differs from getTick when an
+	 * adaptive integrator has stopped between ticks.
+	 * @return the current time
+	 */
+	public double getTime() {
+		return time;
+	}
+
+	/**
+	 * Jumps to a tick, moving the moons to their positions at that time.
+	 * @param tick a non-negative tick number
+	 */
+	public void setTick(long tick) {
+		if (tick < 0)
+			throw new IllegalArgumentException("The tick cannot be negative.");
+		time = tick;
+		moveMoonSources();
+	}
+
+	/**
+	 * Copies the positions of the moons at the current time into the source
+	 * arrays.
+	 */
+	private void moveMoonSources() {
+		for (int k = 0; k < moonSlots.length; k++) {
+			int i = moonSlots[k];
+			sourceOrbits[i].positionAt(time, position);
+			sourceX[i] = position[0];
+			sourceY[i] = position[1];
+		}
+	}
+
+	/**
+	 * Moves the Moon objects of this level to the current tick so they can be
+	 * drawn. The moons may be shared with other levels, so only the level
+	 * being displayed should call this.
+	 */
+	public void placeMoons() {
+		for (Body b : bodies) {
+			for (Moon m : b.getMoons()) {
+				m.moveTo((long) time, gravityStrength);
+			}
+		}
+	}
+
 	/**
 	 * Returns the current screen shift.
 	 * @return the current screen shift
 	 */
 	public Point2d getShift() {
+		if (screenShift == null)
+			screenShift = new Point2d(screenXShift, screenYShift);
 		return screenShift;
 	}
 	
@@ -300,7 +810,7 @@ public class Level {
 	 * @deprecated
 	 */
 	public double getScreenXShift() {
-		return screenShift.x();
+		return screenXShift;
 	}
 
 	/**
@@ -309,7 +819,7 @@ public class Level {
 	 * @deprecated
 	 */
 	public double getScreenYShift() {
-		return screenShift.y();
+		return screenYShift;
 	}
 
 	/**
@@ -320,14 +830,27 @@ public class Level {
 		return warps;
 	}
 
-	private boolean isOutOfBounds(Point2d p) {
-		return p.x() + screenShift.x() < 0 || p.x() + screenShift.x() > GamePanel.Width
-				|| p.y() + screenShift.y() < 0
-				|| p.y() + screenShift.y() > GamePanel.Height - 20;
+	private boolean isOutOfBounds(double x, double y) {
+		return x + screenXShift < 0 || x + screenXShift > GamePanel.Width
+				|| y + screenYShift < 0
+				|| y + screenYShift > GamePanel.Height - 20;
 	}
 
 	private boolean isOutOfBounds() {
-		return isOutOfBounds(ball.getCenter());
+		return isOutOfBounds(ball.getCenterX(), ball.getCenterY());
+	}
+
+	/**
+	 * Returns if the ball would be out of bounds at (x, y), with the screen
+	 * following it there, for ShotBatch.
+	 */
+	boolean outOfBoundsAt(double x, double y) {
+		double shiftX = (followFactor == 0) ? 0
+				: ((GamePanel.Width / 2 - x) / followFactor);
+		double shiftY = (followFactor == 0) ? 0
+				: ((GamePanel.Height / 2 - y) / followFactor);
+		return x + shiftX < 0 || x + shiftX > GamePanel.Width
+				|| y + shiftY < 0 || y + shiftY > GamePanel.Height - 20;
 	}
 
 	/**
@@ -335,8 +858,9 @@ public class Level {
 	 * @return if the user was won this level
 	 */
 	public boolean inGoalPost() {
-		for (GoalPost g : goals) {
-			if (ball.intersects(g)) {
+		int n = nearBall(goalGrid, 0, 0);
+		for (int k = 0; k < n; k++) {
+			if (ball.intersects(goalArray[candidates[k]])) {
 				return true;
 			}
 		}
@@ -349,11 +873,63 @@ public class Level {
 	public void reset() {
 		ball.resetLocation();
 		ball.setLaunched(false);
-		double xs = (followFactor == 0) ? 0
-				: ((500 - ball.getCenter().x()) / followFactor);
-		double ys = (followFactor == 0) ? 0
-				: ((350 - ball.getCenter().y()) / followFactor);
-		screenShift = new Point2d(xs, ys);
+		contactBody = null;
+		escapingBlockage = -1;
+		lastOutcome = TickOutcome.FLYING;
+		// the editor may have changed the object lists since the last shot
+		loadGeometry();
+		setShift(500, 350);
+	}
+
+	/**
+	 * Returns the state of the shot in progress: the ball, the time and the
+	 * flags updateLevel keeps between ticks.
+	 * @return a new state
+	 */
+	public SimulationState saveState() {
+		SimulationState state = new SimulationState();
+		saveState(state);
+		return state;
+	}
+
+	/**
+	 * Stores the state of the shot in progress in an existing state, without
+	 * allocating.
+	 * @param state the state to overwrite
+	 */
+	public void saveState(SimulationState state) {
+		state.x = ball.getCenterX();
+		state.y = ball.getCenterY();
+		state.xVelocity = ball.getXVelocity();
+		state.yVelocity = ball.getYVelocity();
+		state.launched = ball.isLaunched();
+		state.time = time;
+		state.escapingBlockage = escapingBlockage;
+		state.ballInWarp = ballInWarp;
+		state.contactBody = contactBody;
+		state.lastOutcome = lastOutcome;
+	}
+
+	/**
+	 * Puts the shot back into a saved state, so the following updates repeat
+	 * those that followed the save exactly. The state may come from any level
+	 * with the same geometry.
+	 * @param state a state saved by this level or one like it
+	 */
+	public void restoreState(SimulationState state) {
+		ball.setCenter(state.x, state.y);
+		ball.setVelocity(state.xVelocity, state.yVelocity);
+		ball.setLaunched(state.launched);
+		time = state.time;
+		moveMoonSources();
+		escapingBlockage = state.escapingBlockage;
+		ballInWarp = state.ballInWarp;
+		contactBody = state.contactBody;
+		lastOutcome = state.lastOutcome;
+		if (state.launched)
+			setShift(GamePanel.Width / 2, GamePanel.Height / 2);
+		else
+			setShift(500, 350);
 	}
 
 	/**
@@ -365,71 +941,612 @@ public class Level {
 	}
 
 	/**
-	 * Updates the level state a single step.
+	 * Returns if the ball can never again reach any body, moon, blockage,
+	 * goal or warp of this level, or the escape box. Meant for stopping
+	 * simulated shots early: a true answer is always right, while a false
+	 * one only means the ball might still come back.
+	 * <p>
+	 * Every object lies within a box, and within a circle around it. Say the
+	 * ball is outside the box (or the circle) and moving away from it at
+	 * speed v. No source pulls the ball back harder than s / d^2, where s is
+	 * the strength of the source and d how far the ball is beyond the
+	 * source in that direction. Summing s / d over the sources gives a
+	 * potential U, and v^2 / 2 - U can only grow while the ball moves away.
+	 * Once it is positive v can never drop to 0: the ball has escaped. Only
+	 * laws bounded by Newtonian gravity are handled; for other force fields
+	 * this always returns false.
+	 * @return if the ball has escaped the level
+	 */
+	public boolean hasEscaped() {
+		return ball.isLaunched()
+				&& hasEscaped(ball.getCenterX(), ball.getCenterY(),
+						ball.getXVelocity(), ball.getYVelocity());
+	}
+
+	/**
+	 * Returns if a launched ball in the given state has escaped, as
+	 * hasEscaped.
+	 */
+	boolean hasEscaped(double x, double y, double vx, double vy) {
+		if (!forceField.isBoundedByNewtonian())
+			return false;
+		double radius = ball.getRadius();
+		if (escapes(EscapeRight, vx, x - boundRight - radius, x)
+				|| escapes(EscapeLeft, -vx, boundLeft - radius - x, x)
+				|| escapes(EscapeDown, vy, y - boundBottom - radius, y)
+				|| escapes(EscapeUp, -vy, boundTop - radius - y, y))
+			return true;
+		double dx = x - escapeX;
+		double dy = y - escapeY;
+		double r = Math.sqrt(dx * dx + dy * dy);
+		return escapes(EscapeOutward, (dx * vx + dy * vy) / r, r
+				- escapeRadius - radius, r);
+	}
+
+	private static final int EscapeRight = 0, EscapeLeft = 1, EscapeDown = 2,
+			EscapeUp = 3, EscapeOutward = 4;
+
+	/**
+	 * Returns if the ball, the given distance outside the region and moving
+	 * away from it at the given speed, can never be stopped by the pull of
+	 * the sources. The position is the ball's coordinate in the direction
+	 * it is moving: x or y, or the distance from the center of the circle.
+	 */
+	private boolean escapes(int direction, double speed, double distance,
+			double position) {
+		if (distance <= 0 || speed <= 0)
+			return false;
+		double kinetic = speed * speed / 2;
+		// quick check: every source as close as the edge of the region
+		if (kinetic * distance > escapeStrength)
+			return true;
+		double potential = 0;
+		for (int j = 0; j < pullStrength.length; j++) {
+			double d;
+			switch (direction) {
+			case EscapeRight:
+				d = position - pullX[j] - pullReach[j];
+				break;
+			case EscapeLeft:
+				d = pullX[j] - pullReach[j] - position;
+				break;
+			case EscapeDown:
+				d = position - pullY[j] - pullReach[j];
+				break;
+			case EscapeUp:
+				d = pullY[j] - pullReach[j] - position;
+				break;
+			default:
+				d = position - pullSpread[j];
+			}
+			potential += pullStrength[j] / d;
+			if (potential >= kinetic)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Sets a box that hasEscaped treats like an object of the level, so the
+	 * ball only counts as escaped once it can no longer come back to it.
+	 * @param left the left edge
+	 * @param top the top edge
+	 * @param right the right edge
+	 * @param bottom the bottom edge
+	 */
+	public void setEscapeBox(double left, double top, double right,
+			double bottom) {
+		escapeLeft = left;
+		escapeTop = top;
+		escapeRight = right;
+		escapeBottom = bottom;
+		computeEscapeCircle();
+	}
+
+	/**
+	 * Updates the level state by one tick. With the default integrator this
+	 * is a single Euler step; otherwise the tick is covered by as many
+	 * integrator steps as the step tolerance requires. No objects are
+	 * allocated.
+	 * @return what happened to the ball
+	 */
+	public TickOutcome updateLevel() {
+		if (fixedPoint != null)
+			return updateFixedPoint();
+		bounced = false;
+		warped = false;
+		if (isFixedEuler()) {
+			updateFixed();
+		} else {
+			integrateStep(1.0, true);
+		}
+		return computeOutcome();
+	}
+
+	/**
+	 * Advances the level by one integrator step. The step is chosen from the
+	 * local acceleration and may be up to the maximum step long in open
+	 * space; getTime tells how far the level got. With the default settings
+	 * this is exactly updateLevel.
+	 * @return what happened to the ball
+	 */
+	public TickOutcome advance() {
+		if (fixedPoint != null)
+			return updateFixedPoint();
+		bounced = false;
+		warped = false;
+		if (isFixedEuler()) {
+			updateFixed();
+		} else {
+			integrateStep(maxStep, false);
+		}
+		return computeOutcome();
+	}
+
+	/**
+	 * Returns what happened to the ball in the last update, or FLYING if
+	 * there was none since the level was reset.
+	 * @return the last outcome
+	 */
+	public TickOutcome getLastOutcome() {
+		return lastOutcome;
+	}
+
+	/**
+	 * Runs the end-of-update queries once and stores the result. A crash is
+	 * remembered until the level is reset.
+	 */
+	private TickOutcome computeOutcome() {
+		if (contactBody == null)
+			contactBody = overlappingBody();
+		TickOutcome outcome;
+		if (inGoalPost())
+			outcome = TickOutcome.GOAL_REACHED;
+		else if (contactBody != null)
+			outcome = TickOutcome.CRASHED;
+		else if (isOutOfBounds())
+			outcome = TickOutcome.OUT_OF_BOUNDS;
+		else if (warped)
+			outcome = TickOutcome.WARPED;
+		else if (bounced)
+			outcome = TickOutcome.BOUNCED;
+		else
+			outcome = TickOutcome.FLYING;
+		lastOutcome = outcome;
+		return outcome;
+	}
+
+	boolean isFixedEuler() {
+		return integrator == Integrator.EULER && stepTolerance == 0;
+	}
+
+	/**
+	 * A tick in fixed-point mode: the simulation takes over the ball, steps
+	 * and hands it back. The ball's doubles convert to fixed point and back
+	 * exactly, so only the simulation ever rounds.
+	 */
+	private TickOutcome updateFixedPoint() {
+		fixedPoint.load(ball, (long) time, escapingBlockage, ballInWarp,
+				contactBody);
+		TickOutcome outcome = fixedPoint.step();
+		time = fixedPoint.getTick();
+		moveMoonSources();
+		ball.setCenter(fixedPoint.getX(), fixedPoint.getY());
+		ball.setVelocity(fixedPoint.getXVelocity(),
+				fixedPoint.getYVelocity());
+		escapingBlockage = fixedPoint.getEscapingBlockage();
+		ballInWarp = fixedPoint.isBallInWarp();
+		contactBody = fixedPoint.getCrashedBody();
+		setShift(GamePanel.Width / 2, GamePanel.Height / 2);
+		lastOutcome = outcome;
+		return outcome;
+	}
+
+	/**
+	 * The original update: moves the moons, sums gravity at the current ball
+	 * position, resolves contacts and takes one Euler step of one tick.
 	 */
-	public void updateLevel() {
+	private void updateFixed() {
+		boolean launched = ball.isLaunched();
+		double ballX = ball.getCenterX();
+		double ballY = ball.getCenterY();
 		double sumXForce = 0.0;
 		double sumYForce = 0.0;
-		// Gravity Vector components:
-		double angle; // direction
-		double gravitationalForce; // magnitude
+		time += 1.0;
 
-		for (Body b : bodies) {
-			// Planetary effect on ball
-			if (ball.isLaunched()) {
-				angle = CalcHelp.getAngle(ball.getCenter(), b.getCenter());
-				gravitationalForce = CalcHelp.getAcceleration(ball.getCenter(),
-						b.getCenter(), b.getMass(), gravityStrength);
-				sumXForce += Math.cos(angle) * gravitationalForce;
-				sumYForce -= Math.sin(angle) * gravitationalForce;
+		// Moon movement
+		moveMoonSources();
+
+		// Planetary and moon effect on ball
+		if (launched && (gravityGrid != null || bodyTree != null
+				|| moonTree != null)) {
+			accelerationAt(ballX, ballY, time, acceleration);
+			sumXForce = acceleration[0];
+			sumYForce = acceleration[1];
+		} else if (launched) {
+			for (int j = 0; j < pullingSlots.length; j++) {
+				int i = pullingSlots[j];
+				double dx = sourceX[i] - ballX;
+				double dy = sourceY[i] - ballY;
+				double k = forceField.scale(dx * dx + dy * dy,
+						sourceStrength[i]);
+				sumXForce += k * dx;
+				sumYForce += k * dy;
 			}
-			// Moon effect on ball
-			// Moon movement
-			for (Moon m : b.getMoons()) {
-				m.move(gravityStrength);
-				if (ball.isLaunched()) {
-					angle = CalcHelp.getAngle(ball.getCenter(), m.getCenter());
-
-					gravitationalForce = CalcHelp.getAcceleration(
-							ball.getCenter(), m.getCenter(), m.getMass(),
-							gravityStrength);
-					sumXForce += Math.cos(angle) * gravitationalForce;
-					sumYForce -= Math.sin(angle) * gravitationalForce;
+		}
+
+		moveBall(sumXForce, sumYForce);
+	}
+
+	/**
+	 * The end of a fixed tick: warps the ball, accelerates it by the summed
+	 * gravity and moves it by its new velocity.
+	 */
+	private void moveBall(double ax, double ay) {
+		checkWarps();
+		if (ball.isLaunched()) {
+			ball.accelerate(ax, ay);
+			sweepBall(ball.getXVelocity(), ball.getYVelocity());
+		}
+		setShift(GamePanel.Width / 2, GamePanel.Height / 2);
+	}
+
+	/**
+	 * Sums the gravity at count points at the current time into ax and ay,
+	 * for ShotBatch. Without a gravity grid or tree the sources are the
+	 * outer loop and the points the inner one, so the inner loop runs over
+	 * plain arrays. Each point still adds up the sources in the same order
+	 * as updateLevel, so the sums are identical.
+	 */
+	void gravityAt(double[] x, double[] y, int count, double[] ax,
+			double[] ay) {
+		if (gravityGrid != null || bodyTree != null || moonTree != null) {
+			for (int j = 0; j < count; j++) {
+				accelerationAt(x[j], y[j], time, acceleration);
+				ax[j] = acceleration[0];
+				ay[j] = acceleration[1];
+			}
+			return;
+		}
+		for (int j = 0; j < count; j++) {
+			ax[j] = 0.0;
+			ay[j] = 0.0;
+		}
+		// Newtonian.scale written out, so the JIT sees a plain loop
+		boolean newtonian = forceField.getClass() == ForceField.Newtonian.class;
+		for (int p = 0; p < pullingSlots.length; p++) {
+			int i = pullingSlots[p];
+			double sx = sourceX[i];
+			double sy = sourceY[i];
+			double s = sourceStrength[i];
+			if (newtonian) {
+				for (int j = 0; j < count; j++) {
+					double dx = sx - x[j];
+					double dy = sy - y[j];
+					double d2 = dx * dx + dy * dy;
+					double k = s / (d2 * Math.sqrt(d2));
+					ax[j] += k * dx;
+					ay[j] += k * dy;
+				}
+			} else {
+				for (int j = 0; j < count; j++) {
+					double dx = sx - x[j];
+					double dy = sy - y[j];
+					double k = forceField.scale(dx * dx + dy * dy, s);
+					ax[j] += k * dx;
+					ay[j] += k * dy;
 				}
 			}
-			// Reflector collision and resolution
-			if (b.isReflector() && b.intersects(ball)) {
-				Vector2d v_i = ball.getVelocity();
-				double dy = ball.getCenter().y() - b.getCenter().y();
-				double dx = ball.getCenter().x() - b.getCenter().x();
-				Vector2d v_p = v_i.proj(Math.atan(dy / dx));
-				Vector2d v_f = v_i.subtract(v_p.multiply(2.0));
-				ball.setVelocity(v_f);
-				while (ball.intersects(b)) {
-					ball.move();
+		}
+	}
+
+	/**
+	 * Puts the ball in the given state and finishes a fixed tick from
+	 * gravity summed by gravityAt, for ShotBatch. The time must already be
+	 * the time at the end of the tick.
+	 * @return what happened to the ball
+	 */
+	TickOutcome finishTick(double x, double y, double vx, double vy,
+			int escaping, boolean inWarp, double ax, double ay) {
+		ball.setCenter(x, y);
+		ball.setVelocity(vx, vy);
+		escapingBlockage = escaping;
+		ballInWarp = inWarp;
+		contactBody = null;
+		setShift(GamePanel.Width / 2, GamePanel.Height / 2);
+		bounced = false;
+		warped = false;
+		moveBall(ax, ay);
+		return computeOutcome();
+	}
+
+	/**
+	 * Returns the index of the source the ball ran into, or -1, for
+	 * ShotBatch.
+	 */
+	int getCrashedSource() {
+		for (int i = 0; i < sources.length; i++) {
+			if (sources[i] == contactBody)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the blockage the ball is leaving, or -1, for ShotBatch.
+	 */
+	int getEscapingBlockage() {
+		return escapingBlockage;
+	}
+
+	/**
+	 * Returns if the ball is inside a warp, for ShotBatch.
+	 */
+	boolean isBallInWarp() {
+		return ballInWarp;
+	}
+
+	/**
+	 * Takes integrator steps from the current time. If fill is set, steps
+	 * until exactly span ticks have passed; otherwise takes a single step of
+	 * at most span ticks.
+	 */
+	private void integrateStep(double span, boolean fill) {
+		checkWarps();
+		if (ball.isLaunched()) {
+			double end = time + span;
+			double[] s = ballState;
+			s[0] = ball.getCenterX();
+			s[1] = ball.getCenterY();
+			s[2] = ball.getXVelocity();
+			s[3] = ball.getYVelocity();
+			do {
+				accelerationAt(s[0], s[1], time, acceleration);
+				double ax = acceleration[0];
+				double ay = acceleration[1];
+				double h = (stepTolerance == 0) ? 1.0 : Integrator
+						.adaptiveStep(ax, ay, stepTolerance, MinStep, span);
+				h = Math.min(h, end - time);
+				integrator.step(s, time, h, ax, ay, this, acceleration);
+				time += h;
+				// sweep the chord of the step for contacts
+				ball.setVelocity(s[2], s[3]);
+				sweepBall(s[0] - ball.getCenterX(), s[1] - ball.getCenterY());
+				s[0] = ball.getCenterX();
+				s[1] = ball.getCenterY();
+				s[2] = ball.getXVelocity();
+				s[3] = ball.getYVelocity();
+			} while (fill && end - time > MinStep / 2 && contactBody == null);
+			if (fill)
+				time = end;
+		} else {
+			time += Math.min(span, 1.0);
+		}
+		moveMoonSources();
+		setShift(GamePanel.Width / 2, GamePanel.Height / 2);
+	}
+
+	/**
+	 * Moves the ball by (dx, dy), stopping at the first solid body or moon
+	 * in the way and bouncing off reflectors and blockages. Each source is
+	 * tested with timeOfImpact and each blockage with boxImpact, so the cost
+	 * depends only on the number of objects and bounces, and a fast ball
+	 * cannot pass through a body or a thin blockage between ticks. Sources
+	 * are treated as still during the move.
+	 * @param dx the x displacement
+	 * @param dy the y displacement
+	 */
+	private void sweepBall(double dx, double dy) {
+		double x = ball.getCenterX();
+		double y = ball.getCenterY();
+		double vx = ball.getXVelocity();
+		double vy = ball.getYVelocity();
+		int ballRadius = ball.getRadius();
+		// fraction of the displacement still to be travelled
+		double remaining = 1.0;
+		for (int bounce = 0; bounce <= MaxBounces; bounce++) {
+			ball.setCenter(x, y);
+			double hit = remaining;
+			int hitIndex = -1;
+			int n = nearBall(sourceGrid, dx * remaining, dy * remaining);
+			for (int k = 0; k < n; k++) {
+				int i = candidates[k];
+				double t = timeOfImpact(x - sourceX[i], y - sourceY[i], dx,
+						dy, ballRadius + sources[i].getRadius());
+				if (t < hit) {
+					hit = t;
+					hitIndex = i;
+				}
+			}
+			int hitBox = -1;
+			boolean xFace = false;
+			n = nearBall(blockageGrid, dx * remaining, dy * remaining);
+			for (int k = 0; k < n; k++) {
+				int i = candidates[k];
+				if (i == escapingBlockage)
+					continue;
+				double t = boxImpact(x, y, dx, dy, i);
+				if (t < hit) {
+					hit = t;
+					hitBox = i;
+					xFace = boxHitXFace;
+				}
+			}
+			x += dx * hit;
+			y += dy * hit;
+			remaining -= hit;
+			if (hitBox >= 0) {
+				bounced = true;
+				if (insideBox(x, y, hitBox))
+					escapingBlockage = hitBox;
+				if (xFace) {
+					vx = -vx;
+					dx = -dx;
+				} else {
+					vy = -vy;
+					dy = -dy;
+				}
+				continue;
+			}
+			if (hitIndex < 0)
+				break;
+			if (solidSources[hitIndex]) {
+				contactBody = sources[hitIndex];
+				break;
+			}
+			// reflect the velocity and the rest of the move about the normal
+			bounced = true;
+			double nx = x - sourceX[hitIndex];
+			double ny = y - sourceY[hitIndex];
+			double n2 = nx * nx + ny * ny;
+			double vDot = 2 * (vx * nx + vy * ny) / n2;
+			vx -= vDot * nx;
+			vy -= vDot * ny;
+			double dDot = 2 * (dx * nx + dy * ny) / n2;
+			dx -= dDot * nx;
+			dy -= dDot * ny;
+		}
+		if (escapingBlockage >= 0 && !insideBox(x, y, escapingBlockage))
+			escapingBlockage = -1;
+		ball.setCenter(x, y);
+		ball.setVelocity(vx, vy);
+	}
+
+	private boolean insideBox(double x, double y, int box) {
+		return x > blockLeft[box] && x < blockRight[box] && y > blockTop[box]
+				&& y < blockBottom[box];
+	}
+
+	/**
+	 * Returns the fraction of the move (dx, dy) from (x, y) at which the
+	 * point enters blockage box, or infinity if it does not, and sets
+	 * boxHitXFace to whether the face hit is a left or right face. A point
+	 * already strictly inside hits the face it entered through at 0.
+	 */
+	private double boxImpact(double x, double y, double dx, double dy,
+			int box) {
+		// slab test: the times the path crosses each pair of face lines
+		double enterX, exitX, enterY, exitY;
+		if (dx != 0) {
+			double t1 = (blockLeft[box] - x) / dx;
+			double t2 = (blockRight[box] - x) / dx;
+			enterX = Math.min(t1, t2);
+			exitX = Math.max(t1, t2);
+		} else if (x > blockLeft[box] && x < blockRight[box]) {
+			enterX = Double.NEGATIVE_INFINITY;
+			exitX = Double.POSITIVE_INFINITY;
+		} else {
+			return Double.POSITIVE_INFINITY;
+		}
+		if (dy != 0) {
+			double t1 = (blockTop[box] - y) / dy;
+			double t2 = (blockBottom[box] - y) / dy;
+			enterY = Math.min(t1, t2);
+			exitY = Math.max(t1, t2);
+		} else if (y > blockTop[box] && y < blockBottom[box]) {
+			enterY = Double.NEGATIVE_INFINITY;
+			exitY = Double.POSITIVE_INFINITY;
+		} else {
+			return Double.POSITIVE_INFINITY;
+		}
+		double enter = Math.max(enterX, enterY);
+		double exit = Math.min(exitX, exitY);
+		if (exit <= 0 || enter >= exit)
+			return Double.POSITIVE_INFINITY;
+		boxHitXFace = enterX >= enterY;
+		return Math.max(enter, 0.0);
+	}
+
+	/**
+	 * Returns the fraction t of the move (dx, dy) at which a circle whose
+	 * center is at offset (px, py) from another circle's center first
+	 * touches it, where r is the sum of the radii, or infinity if it does
+	 * not touch it during the move. A circle that already overlaps and is
+	 * moving inward touches at t = 0; one moving outward is let go.
+	 */
+	static double timeOfImpact(double px, double py, double dx, double dy,
+			double r) {
+		double b = px * dx + py * dy;
+		if (b >= 0)
+			return Double.POSITIVE_INFINITY; // moving apart
+		double c = px * px + py * py - r * r;
+		if (c < 0)
+			return 0;
+		double a = dx * dx + dy * dy;
+		double discriminant = b * b - a * c;
+		if (discriminant < 0)
+			return Double.POSITIVE_INFINITY;
+		return (-b - Math.sqrt(discriminant)) / a;
+	}
+
+	/**
+	 * Stores the acceleration on the ball at (x, y) at a time in out[0] and
+	 * out[1]: the bodies through the gravity grid or the body tree if there
+	 * is one, plus the moons at their positions at that time, through the
+	 * moon tree if there is one.
+	 * @param x the x coordinate
+	 * @param y the y coordinate
+	 * @param time the time, in ticks
+	 * @param out array receiving the x and y acceleration
+	 */
+	public void accelerationAt(double x, double y, double time, double[] out) {
+		if (gravityGrid != null) {
+			gravityGrid.accelerationAt(x, y, out);
+		} else if (bodyTree != null) {
+			bodyTree.accelerationAt(x, y, out);
+		} else {
+			forceField.accumulate(x, y, staticX, staticY, staticStrength,
+					staticX.length, out);
+		}
+		double ax = out[0];
+		double ay = out[1];
+		if (moonTree != null) {
+			if (time != moonTreeTime) {
+				for (int j = 0; j < moonTreeX.length; j++) {
+					sourceOrbits[pullingMoonSlots[j]].positionAt(time,
+							position);
+					moonTreeX[j] = position[0];
+					moonTreeY[j] = position[1];
 				}
+				moonTree.build(moonTreeX, moonTreeY, moonTreeStrength,
+						moonTreeX.length);
+				moonTreeTime = time;
 			}
+			moonTree.accelerationAt(x, y, out);
+			out[0] += ax;
+			out[1] += ay;
+			return;
+		}
+		for (int j = 0; j < pullingMoonSlots.length; j++) {
+			int i = pullingMoonSlots[j];
+			sourceOrbits[i].positionAt(time, position);
+			double dx = position[0] - x;
+			double dy = position[1] - y;
+			double k = forceField.scale(dx * dx + dy * dy, sourceStrength[i]);
+			ax += k * dx;
+			ay += k * dy;
 		}
+		out[0] = ax;
+		out[1] = ay;
+	}
 
+	/**
+	 * Moves the ball to the next warp when it enters one.
+	 */
+	private void checkWarps() {
 		// Warp checking:
 		boolean inAnyWarp = false;
-		for (int i = 0; i < warps.size(); i++) {
-			WarpPoint wp = warps.get(i);
-			boolean intersecting = ball.intersects(wp);
+		int n = nearBall(warpGrid, 0, 0);
+		for (int k = 0; k < n; k++) {
+			int i = candidates[k];
+			boolean intersecting = ball.intersects(warpArray[i]);
 			if (intersecting && !ballInWarp) {
 				ballInWarp = true;
-				if (warps.size() != 1) {
-					WarpPoint nextWarp = new WarpPoint();
-					if (i + 1 != warps.size()) {
-						nextWarp = warps.get(i + 1);
-					} else {
-						nextWarp = warps.get(0);
-					}
-					
-					double x = nextWarp.getCenter().x();
-					double y = nextWarp.getCenter().y();
-					ball.setCenter(new Point2d(x, y));
+				if (warpArray.length != 1) {
+					WarpPoint nextWarp = warpArray[(i + 1) % warpArray.length];
+					ball.setCenter(nextWarp.getCenterX(), nextWarp.getCenterY());
 					inAnyWarp = true;
+					warped = true;
 					break;
 				}
 			} else if (intersecting) {
@@ -440,55 +1557,6 @@ public class Level {
 		if (!inAnyWarp) {
 			ballInWarp = false;
 		}
-
-		// Blockage checking:
-		boolean thisTime = false;
-		for (Rectangle r : blockageRects) {
-			if (r.contains(ball.getCenter().getIntegerPoint())) {
-				if (!hittingBlockage) {
-					double xSpeed = ball.getVelocity().xComponent();
-					double ySpeed = ball.getVelocity().yComponent();
-					boolean sureUpDown = ball.getCenter().x() > r.getX() + 3
-							&& ball.getCenter().x() < r.getX() + r.getWidth() - 3;
-					boolean sureLeftRight = ball.getCenter().y() > r.getY() + 3
-							&& ball.getCenter().y() < r.getY() + r.getHeight()
-									- 3;
-					if (sureLeftRight) {
-						xSpeed *= -1;
-					} else if (sureUpDown) {
-						ySpeed *= -1;
-					} else {
-						// Else: pick the bigger side: if rect X > rect Y -
-						// vertical
-						if (r.getWidth() > r.getHeight())
-							ySpeed *= -1;
-						else
-							xSpeed *= -1;						
-					}
-					
-					hittingBlockage = true;
-					if (!timeToReset()) {
-						ball.setVelocity(new Vector2d(xSpeed, ySpeed));
-						while (getBlockageIntersection(ball) != null) {
-							ball.move();
-						}
-					}
-				}
-				thisTime = true;
-				break;
-			}
-		}
-
-		if (!thisTime && ball.isLaunched()) {
-			hittingBlockage = false;
-			ball.accelerate(new Vector2d(sumXForce, sumYForce));
-			ball.move();
-		}
-		double xs = (followFactor == 0) ? 0
-				: ((GamePanel.Width/2 - ball.getCenter().x()) / followFactor);
-		double ys = (followFactor == 0) ? 0
-				: ((GamePanel.Height/2 - ball.getCenter().y()) / followFactor);
-		screenShift = new Point2d(xs, ys);
 	}
 
 
@@ -500,49 +1568,116 @@ public class Level {
 	 */
 	public boolean possibleWin(java.awt.Point clickedPoint, double max) {
 		// for a screen (game) coordinate
-		return possibleWin(new Point2d(clickedPoint).translate(-screenShift.x(),
-				-screenShift.y()), max);
+		return possibleWin(new Point2d(clickedPoint).translate(-screenXShift,
+				-screenYShift), max);
 	}
-	
+
 	/**
 	 * Returns if the user inputting this point (raw level data - all
-	 * translation data stripped) would result in a win.
+	 * translation data stripped) right now would result in a win.
 	 * @param translatedPoint the input point
 	 * @param max the maximum initial vector length
 	 * @return if this point results in a win
 	 */
 	public boolean possibleWin(Point2d translatedPoint, double max) {
+		return possibleWin(translatedPoint, max, (long) time);
+	}
+
+	/**
+	 * Returns if the user inputting this point (raw level data - all
+	 * translation data stripped) at the given tick would result in a win. The
+	 * tick only matters for levels with moons. This level is not modified, so
+	 * several threads may test points at once. Shots still flying after
+	 * getTickBudget ticks count as misses, so the answer is the same on any
+	 * machine and under any load.
+	 * @param translatedPoint the input point
+	 * @param max the maximum initial vector length
+	 * @param startTick the tick at which the ball is launched
+	 * @return if this point results in a win
+	 */
+	public boolean possibleWin(Point2d translatedPoint, double max,
+			long startTick) {
 		// for non-translated points
 		if (!onScreen(translatedPoint))
 			return false;
-		double mag = translatedPoint.distance(ball.getCenter());
-		if (mag > max) {
-			mag = max;
-		}
-		double ang = CalcHelp.getAngle(ball.getCenter(), translatedPoint);
-		Level cloneLevel = new Level(new Ball((int) ball.getCenter().x(),
-				(int) ball.getCenter().y(), ball.getRadius(), ball.getColor()),
-				bodies, warps, goals, blockages, followFactor, gravityStrength);
-		double xLength = Math.cos(ang) * mag;
-		double yLength = -Math.sin(ang) * mag;
-		cloneLevel.getBall().setVelocity(
-				new Vector2d(xLength / 200, yLength / 200));
+		Level cloneLevel = newSimulation(startTick);
+		double[] velocity = new double[2];
+		launchVelocity(translatedPoint, max, velocity);
+		cloneLevel.getBall().setVelocity(velocity[0], velocity[1]);
 		cloneLevel.getBall().setLaunched(true);
-		long t = System.currentTimeMillis();
+		double budget = startTick + getTickBudget();
 		while (true) {
-			cloneLevel.updateLevel();
-			if (cloneLevel.inGoalPost()) {
+			TickOutcome outcome = cloneLevel.advance();
+			if (outcome == TickOutcome.GOAL_REACHED) {
 				return true;
 			}
-			if (cloneLevel.timeToReset()) {
+			if (outcome.requiresReset() || cloneLevel.hasEscaped()) {
 				return false;
 			}
-			if (System.currentTimeMillis() - t > 10) {
+			if (cloneLevel.getTime() >= budget) {
 				return false;
 			}
 		}
 	}
 
+	/**
+	 * Returns a level to simulate shots in, with its own ball at the start
+	 * and the moons at the given tick. It shares the geometry, the objects and
+	 * the gravity grid and trees of this level and takes its settings, and
+	 * neither level changes anything the other reads, so each thread can
+	 * simulate the same level in its own copy. Creating one copies no
+	 * geometry, only the positions of the sources.
+	 * @param startTick the tick to start at
+	 * @return the new level
+	 */
+	public Level newSimulation(long startTick) {
+		if (startTick < 0)
+			throw new IllegalArgumentException("The tick cannot be negative.");
+		return new Level(this, startTick);
+	}
+
+	/**
+	 * Stores the initial velocity of a shot aimed at a point in out[0] and
+	 * out[1]: towards the point, with a length of the distance to it (at
+	 * most max) divided by 200. In fixed-point mode the offset to the point
+	 * is scaled instead of going through an angle, since only the basic
+	 * operations and sqrt are rounded the same on every machine.
+	 */
+	void launchVelocity(Point2d translatedPoint, double max, double[] out) {
+		if (fixedPoint != null) {
+			strictLaunchVelocity(translatedPoint, max, out);
+			return;
+		}
+		double mag = translatedPoint.distance(ball.getCenter());
+		if (mag > max) {
+			mag = max;
+		}
+		double ang = CalcHelp.getAngle(ball.getCenter(), translatedPoint);
+		double xLength = Math.cos(ang) * mag;
+		double yLength = -Math.sin(ang) * mag;
+		out[0] = xLength / 200;
+		out[1] = yLength / 200;
+	}
+
+	/**
+	 * Stores the launch velocity towards a point, as launchVelocity, without
+	 * trigonometry.
+	 */
+	private strictfp void strictLaunchVelocity(Point2d translatedPoint,
+			double max, double[] out) {
+		double dx = translatedPoint.x() - ball.getCenterX();
+		double dy = translatedPoint.y() - ball.getCenterY();
+		double distance = Math.sqrt(dx * dx + dy * dy);
+		if (distance == 0) {
+			out[0] = 0;
+			out[1] = 0;
+			return;
+		}
+		double scale = Math.min(distance, max) / distance;
+		out[0] = dx * scale / 200;
+		out[1] = dy * scale / 200;
+	}
+
 	/**
 	 * Returns if a point if visible on screen based on the current shift
 	 * values.
@@ -550,10 +1685,21 @@ public class Level {
 	 * @return if the point is visible
 	 */
 	public boolean onScreen(Point2d p) {
-		boolean xOnScreen = p.x() + screenShift.x() > 0
-				&& p.x() + screenShift.x() < GamePanel.Width;
-		boolean yOnScreen = p.y() + screenShift.y() > 0
-				&& p.y() + screenShift.y() < GamePanel.Height;
+		return onScreen(p.x(), p.y());
+	}
+
+	/**
+	 * Returns if a point if visible on screen based on the current shift
+	 * values.
+	 * @param x the x coordinate
+	 * @param y the y coordinate
+	 * @return if the point is visible
+	 */
+	public boolean onScreen(double x, double y) {
+		boolean xOnScreen = x + screenXShift > 0
+				&& x + screenXShift < GamePanel.Width;
+		boolean yOnScreen = y + screenYShift > 0
+				&& y + screenYShift < GamePanel.Height;
 		return xOnScreen && yOnScreen;
 	}
 	
@@ -574,7 +1720,8 @@ public class Level {
 		for (GoalPost g : goals) {
 			str += g.toString() + "\n";
 		}
-		str += "level(" + followFactor + ", " + gravityStrength + ")\n";
+		str += "level(" + followFactor + ", " + gravityStrength
+				+ (tickBudget > 0 ? ", " + tickBudget : "") + ")\n";
 		return str;
 	}
 
@@ -0,0 +1,318 @@
+package structures;
+
+import game.GamePanel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The part of a level that stays the same during a shot: its bodies, moons,
+ * warps, blockages and goals, copied into the flat arrays and broad-phase
+ * grids the simulation reads, and the region the ball can reach.
+ * <p>
+ * A LevelGeometry is immutable once built and is never written to by a
+ * simulation, so one geometry may be shared by any number of levels
+ * simulating at once in different threads (see Level.newSimulation). The
+ * moons move, but their positions are a function of the tick (see
+ * Moon.Orbit); each level keeps its own copy of them. Later edits to the
+ * lists a geometry was built from need a new geometry.
+ */
+public final class LevelGeometry {
+
+	// how far past the visible region the ball may go
+	static final int ExtraX = 100;
+	static final int ExtraY = 100;
+
+	private final double followFactor, gravityStrength;
+
+	// every body followed by its moons; sourceX and sourceY hold the moons
+	// at tick 0 and must be copied before they are moved
+	final Body[] sources;
+	final Moon.Orbit[] sourceOrbits;
+	final boolean[] solidSources;
+	final double[] sourceX, sourceY, sourceStrength;
+	final int[] moonSlots, pullingSlots, pullingMoonSlots;
+
+	// the pulling bodies (not moons), for gravity grids and trees
+	final double[] staticX, staticY, staticStrength;
+
+	final WarpPoint[] warpArray;
+	// blockage boxes; the ball's center bounces off their faces
+	final double[] blockLeft, blockTop, blockRight, blockBottom;
+	final GoalPost[] goalArray;
+
+	// Broad phase: one grid per kind of object. Moons are indexed by the box
+	// around their whole orbit, so the grids never change while the moons
+	// move. A query never finds more than maxCandidates objects.
+	final SpatialGrid sourceGrid, blockageGrid, goalGrid, warpGrid;
+	final int maxCandidates;
+
+	// the pulling sources for Level.hasEscaped: the center of each (of the
+	// orbit, for moons), how far it can be from there, and its strength
+	final double[] pullX, pullY, pullReach, pullStrength;
+	final double escapeStrength;
+
+	// the region of the level that can ever be on screen
+	final int xMin, xMax, yMin, yMax;
+
+	/**
+	 * Builds the geometry of a level.
+	 * @param bodies the bodies, with their moons
+	 * @param warps the warps
+	 * @param goals the goals
+	 * @param blockages the blockages
+	 * @param followFactor the follow factor
+	 * @param gravityStrength the gravitational constant
+	 */
+	public LevelGeometry(List<Body> bodies, List<WarpPoint> warps,
+			List<GoalPost> goals, List<Blockage> blockages,
+			double followFactor, double gravityStrength) {
+		this.followFactor = followFactor;
+		this.gravityStrength = gravityStrength;
+
+		List<Body> sourceList = new ArrayList<Body>();
+		for (Body b : bodies) {
+			sourceList.add(b);
+			sourceList.addAll(b.getMoons());
+		}
+		int n = sourceList.size();
+		sources = sourceList.toArray(new Body[n]);
+		sourceOrbits = new Moon.Orbit[n];
+		solidSources = new boolean[n];
+		sourceX = new double[n];
+		sourceY = new double[n];
+		sourceStrength = new double[n];
+		double[] position = new double[2];
+		for (int i = 0; i < n; i++) {
+			Body b = sources[i];
+			if (b instanceof Moon) {
+				sourceOrbits[i] = ((Moon) b).getOrbit(gravityStrength);
+				sourceOrbits[i].positionAt(0, position);
+				sourceX[i] = position[0];
+				sourceY[i] = position[1];
+			} else {
+				sourceX[i] = b.getCenterX();
+				sourceY[i] = b.getCenterY();
+			}
+			// moons of a reflector still end the level
+			solidSources[i] = sourceOrbits[i] != null || !b.isReflector();
+			sourceStrength[i] = gravityStrength * b.getMass();
+		}
+		// massless sources (every moon in the stock levels) add nothing to
+		// the gravity sums, so they are only kept for collisions
+		int moons = 0, pulling = 0, pullingMoons = 0;
+		for (int i = 0; i < n; i++) {
+			boolean moon = sourceOrbits[i] != null;
+			boolean pulls = sourceStrength[i] != 0;
+			moons += moon ? 1 : 0;
+			pulling += pulls ? 1 : 0;
+			pullingMoons += (moon && pulls) ? 1 : 0;
+		}
+		moonSlots = new int[moons];
+		pullingSlots = new int[pulling];
+		pullingMoonSlots = new int[pullingMoons];
+		moons = pulling = pullingMoons = 0;
+		for (int i = 0; i < n; i++) {
+			boolean moon = sourceOrbits[i] != null;
+			boolean pulls = sourceStrength[i] != 0;
+			if (moon)
+				moonSlots[moons++] = i;
+			if (pulls)
+				pullingSlots[pulling++] = i;
+			if (moon && pulls)
+				pullingMoonSlots[pullingMoons++] = i;
+		}
+		int pullingBodies = pulling - pullingMoons;
+		staticX = new double[pullingBodies];
+		staticY = new double[pullingBodies];
+		staticStrength = new double[pullingBodies];
+		for (int k = 0, j = 0; k < pulling; k++) {
+			int i = pullingSlots[k];
+			if (sourceOrbits[i] == null) {
+				staticX[j] = sourceX[i];
+				staticY[j] = sourceY[i];
+				staticStrength[j] = sourceStrength[i];
+				j++;
+			}
+		}
+
+		warpArray = warps.toArray(new WarpPoint[warps.size()]);
+		int m = blockages.size();
+		blockLeft = new double[m];
+		blockTop = new double[m];
+		blockRight = new double[m];
+		blockBottom = new double[m];
+		for (int i = 0; i < m; i++) {
+			Blockage bl = blockages.get(i);
+			blockLeft[i] = bl.getDrawX();
+			blockTop[i] = bl.getDrawY();
+			blockRight[i] = bl.getDrawX() + bl.getDrawXSize();
+			blockBottom[i] = bl.getDrawY() + bl.getDrawYSize();
+		}
+		goalArray = goals.toArray(new GoalPost[goals.size()]);
+
+		double[][] boxes = sourceBoxes();
+		sourceGrid = new SpatialGrid(boxes[0], boxes[1], boxes[2], boxes[3],
+				SpatialGrid.DefaultCellSize);
+		blockageGrid = new SpatialGrid(blockLeft, blockTop, blockRight,
+				blockBottom, SpatialGrid.DefaultCellSize);
+		goalGrid = circleGrid(goalArray);
+		warpGrid = circleGrid(warpArray);
+		maxCandidates = Math.max(Math.max(n, m), Math.max(goalArray.length,
+				warpArray.length));
+
+		int pullingOut = 0;
+		for (int i = 0; i < n; i++) {
+			pullingOut += (sourceStrength[i] > 0) ? 1 : 0;
+		}
+		pullX = new double[pullingOut];
+		pullY = new double[pullingOut];
+		pullReach = new double[pullingOut];
+		pullStrength = new double[pullingOut];
+		double total = 0;
+		for (int i = 0, j = 0; i < n; i++) {
+			if (sourceStrength[i] > 0) {
+				Moon.Orbit orbit = sourceOrbits[i];
+				pullX[j] = (orbit == null) ? sourceX[i] : orbit.getCenterX();
+				pullY[j] = (orbit == null) ? sourceY[i] : orbit.getCenterY();
+				pullReach[j] = (orbit == null) ? 0 : orbit.getReach();
+				pullStrength[j] = sourceStrength[i];
+				total += sourceStrength[i];
+				j++;
+			}
+		}
+		escapeStrength = total;
+
+		if (followFactor == 0) {
+			// arbitrary values, see formula below - using 1 would lead to
+			// division by 0, and using numbers <1.25 would make a huge area
+			xMin = -ExtraX;
+			xMax = GamePanel.Width + ExtraX;
+			yMin = -ExtraY;
+			yMax = GamePanel.Height + ExtraY;
+		} else if (followFactor < 1.5) {
+			// arbitrary values, see formula below - using 1 would lead to
+			// division by 0, and using numbers <1.25 would make a huge area
+			xMin = (int) (-1.5 * GamePanel.Width);
+			xMax = -xMin;
+			yMin = (int) (-1.2 * GamePanel.Height);
+			yMax = -yMin;
+		} else {
+			// algebraic solutions to the min/max values that can be reached
+			// based on the follow factors of the level:
+			double halfWidth = GamePanel.Width / 2;
+			double halfHeight = GamePanel.Height / 2;
+			double oneMinusInverse = 1.0 - 1.0 / followFactor;
+
+			xMin = (int) ((-halfWidth / followFactor) / oneMinusInverse);
+			xMax = (int) (xMin + GamePanel.Width / oneMinusInverse);
+			yMin = (int) ((-halfHeight / followFactor) / oneMinusInverse);
+			yMax = (int) (yMin + GamePanel.Height / oneMinusInverse);
+		}
+	}
+
+	/**
+	 * Returns the box around each source (around the whole orbit, for
+	 * moons) as the arrays {left, top, right, bottom}.
+	 */
+	private double[][] sourceBoxes() {
+		int n = sources.length;
+		double[][] boxes = new double[4][n];
+		for (int i = 0; i < n; i++) {
+			Moon.Orbit orbit = sourceOrbits[i];
+			double cx = (orbit == null) ? sourceX[i] : orbit.getCenterX();
+			double cy = (orbit == null) ? sourceY[i] : orbit.getCenterY();
+			double reach = (orbit == null) ? sources[i].getRadius() : orbit
+					.getReach();
+			boxes[0][i] = cx - reach;
+			boxes[1][i] = cy - reach;
+			boxes[2][i] = cx + reach;
+			boxes[3][i] = cy + reach;
+		}
+		return boxes;
+	}
+
+	private static SpatialGrid circleGrid(CircularShape[] shapes) {
+		int n = shapes.length;
+		double[] left = new double[n], top = new double[n];
+		double[] right = new double[n], bottom = new double[n];
+		for (int i = 0; i < n; i++) {
+			CircularShape c = shapes[i];
+			left[i] = c.getCenterX() - c.getRadius();
+			top[i] = c.getCenterY() - c.getRadius();
+			right[i] = c.getCenterX() + c.getRadius();
+			bottom[i] = c.getCenterY() + c.getRadius();
+		}
+		return new SpatialGrid(left, top, right, bottom,
+				SpatialGrid.DefaultCellSize);
+	}
+
+	/**
+	 * Returns the box around every source (around the whole orbit, for
+	 * moons), blockage, goal and warp, as the arrays {left, top, right,
+	 * bottom}.
+	 */
+	double[][] objectBoxes() {
+		int n = sources.length + blockLeft.length + goalArray.length
+				+ warpArray.length;
+		double[][] boxes = new double[4][n];
+		double[][] sourceBoxes = sourceBoxes();
+		for (int side = 0; side < 4; side++) {
+			System.arraycopy(sourceBoxes[side], 0, boxes[side], 0,
+					sources.length);
+		}
+		int k = sources.length;
+		for (int i = 0; i < blockLeft.length; i++, k++) {
+			boxes[0][k] = blockLeft[i];
+			boxes[1][k] = blockTop[i];
+			boxes[2][k] = blockRight[i];
+			boxes[3][k] = blockBottom[i];
+		}
+		List<CircularShape> circles = new ArrayList<CircularShape>();
+		circles.addAll(Arrays.asList(goalArray));
+		circles.addAll(Arrays.asList(warpArray));
+		for (CircularShape c : circles) {
+			boxes[0][k] = c.getCenterX() - c.getRadius();
+			boxes[1][k] = c.getCenterY() - c.getRadius();
+			boxes[2][k] = c.getCenterX() + c.getRadius();
+			boxes[3][k] = c.getCenterY() + c.getRadius();
+			k++;
+		}
+		return boxes;
+	}
+
+	/**
+	 * Returns the follow factor.
+	 * @return the follow factor
+	 */
+	public double getFollowFactor() {
+		return followFactor;
+	}
+
+	/**
+	 * Returns the gravitational constant.
+	 * @return the gravitational constant
+	 */
+	public double getGravityStrength() {
+		return gravityStrength;
+	}
+
+	/**
+	 * Returns the number of bodies and moons.
+	 * @return the number of sources
+	 */
+	public int getSourceCount() {
+		return sources.length;
+	}
+
+	/**
+	 * Returns the width plus the height of the region of the level that can
+	 * ever be on screen, in pixels.
+	 * @return the size of the reachable region
+	 */
+	public int getReachableSize() {
+		return (xMax - xMin) + (yMax - yMin);
+	}
+
+}
@@ -7,20 +7,32 @@ import java.awt.Color;
 /**
  * Represents a orbiting Body. Always attached to a parent body to which it
  * rotates around.
+ * <p>
+ * A moon turns by the same angle every tick, so its position is a function
+ * of the tick number alone. Positions are read from a periodic table (see
+ * Orbit) instead of being stepped, which lets every Level simulate at its own
+ * time without touching the shared Moon.
  * @author Sean Lewis
  */
 public class Moon extends Body {
+
+	/**
+	 * Upper limit on the number of ticks in a tabulated orbit. Slower moons
+	 * are not tabulated; their positions are computed every tick.
+	 */
+	public static final int MaxPeriod = 1 << 20;
+
 	// Parameters:
 	private final int startingAngle;
 	private final int startingDistance;
 
 	// Higher parameters: (sourced from the body the moon is attached to)
-	private final Point2d bodyCenter;
+	private final double bodyX, bodyY;
 	private final int bodyMass;
 	private final int bodyRadius;
 
-	// Variables:
-	private double currentAngle;
+	// Variables: the cached orbit table
+	private volatile Orbit orbit;
 
 	/**
 	 * Creates a new moon.
@@ -34,30 +46,196 @@ public class Moon extends Body {
 	public Moon(int initialAngle, int distanceFromBody, int radius,
 			Color color, Body orbitingBody) {
 		startingAngle = initialAngle;
-		currentAngle = Math.toRadians(startingAngle);
 		startingDistance = distanceFromBody;
 		setColor(color);
 		setRadius(radius);
-		bodyCenter = orbitingBody.getCenter();
+		bodyX = orbitingBody.getCenterX();
+		bodyY = orbitingBody.getCenterY();
 		bodyRadius = (int) orbitingBody.getRadius();
 		bodyMass = (int) orbitingBody.getMass();
-		setCenter(bodyCenter.translate(Math.cos(currentAngle)
-				* distanceFromBody, -Math.sin(currentAngle) * distanceFromBody));
+		double angle = Math.toRadians(startingAngle);
+		setCenter(bodyX + Math.cos(angle) * distanceFromBody, bodyY
+				- Math.sin(angle) * distanceFromBody);
 		computeColoring();
 	}
 
 	/**
-	 * Moves the moon based on the gravitational constant.
+	 * Returns the angle the moon turns through each tick.
 	 * @param g the gravitational constant
+	 * @return the angle per tick, in radians
 	 */
-	public void move(double g) {
-		double deltaAngle = .0075 * Math.sqrt(g * bodyMass
-				/ (startingDistance + bodyRadius + radius));
+	public double getAngularStep(double g) {
 		// F_c = F_g -> mv^2/r = GMm /r^2 -> v^2/r=GM/r^2 -> v^2 = GM/r
+		return .0075 * Math.sqrt(g * bodyMass
+				/ (startingDistance + bodyRadius + radius));
+	}
+
+	/**
+	 * Returns the orbit of this moon for a gravitational constant. The table
+	 * is built on first use and cached, so levels sharing this moon share it.
+	 * @param g the gravitational constant
+	 * @return the orbit
+	 */
+	public Orbit getOrbit(double g) {
+		Orbit o = orbit;
+		if (o == null || o.g != g) {
+			o = new Orbit(g);
+			orbit = o;
+		}
+		return o;
+	}
+
+	/**
+	 * Moves the moon to where it is a number of ticks after the level
+	 * started. Only needed for drawing; simulations read the Orbit directly.
+	 * @param tick the tick number
+	 * @param g the gravitational constant
+	 */
+	public void moveTo(long tick, double g) {
+		Orbit o = getOrbit(g);
+		setCenter(o.getX(tick), o.getY(tick));
+	}
+
+	/**
+	 * The positions of a moon over one revolution, one entry per tick. The
+	 * step angle is rounded so that a revolution takes a whole number of
+	 * ticks, which makes the table exactly periodic. A moon that would take
+	 * more than MaxPeriod ticks keeps its exact step and has no table; its
+	 * positions are computed from the tick instead. Immutable.
+	 */
+	public final class Orbit {
+		private final double g;
+		private final int period;
+		private final double step;
+		private final double[] x, y;
+
+		private Orbit(double g) {
+			this.g = g;
+			double exactStep = getAngularStep(g);
+			long n = 1;
+			if (exactStep > 0) {
+				n = Math.max(1, Math.round(2 * Math.PI / exactStep));
+			}
+			if (n > MaxPeriod) {
+				period = 0;
+				step = exactStep;
+				x = null;
+				y = null;
+				return;
+			}
+			period = (int) n;
+			step = 2 * Math.PI / n;
+			x = new double[period];
+			y = new double[period];
+			double start = Math.toRadians(startingAngle);
+			for (int t = 0; t < period; t++) {
+				double angle = start - t * step;
+				x[t] = bodyX + Math.cos(angle) * startingDistance;
+				y[t] = bodyY - Math.sin(angle) * startingDistance;
+			}
+		}
+
+		/**
+		 * Returns the distance of any point of the moon from the center of
+		 * its orbit at most.
+		 * @return the orbit radius plus the moon radius
+		 */
+		public double getReach() {
+			return startingDistance + radius;
+		}
+
+		/**
+		 * Returns the x coordinate of the body the moon orbits.
+		 * @return the x coordinate of the orbit center
+		 */
+		public double getCenterX() {
+			return bodyX;
+		}
+
+		/**
+		 * Returns the y coordinate of the body the moon orbits.
+		 * @return the y coordinate of the orbit center
+		 */
+		public double getCenterY() {
+			return bodyY;
+		}
+
+		/**
+		 * Returns the number of ticks in one revolution, or 0 if the orbit
+		 * is too slow to be tabulated.
+		 * @return the period in ticks, or 0
+		 */
+		public int getPeriod() {
+			return period;
+		}
+
+		/**
+		 * Returns the x coordinate of the moon at a tick.
+		 * @param tick a non-negative tick number
+		 * @return the x coordinate
+		 */
+		public double getX(long tick) {
+			if (x == null)
+				return bodyX + Math.cos(angleAt(tick)) * startingDistance;
+			return x[(int) (tick % period)];
+		}
+
+		/**
+		 * Returns the y coordinate of the moon at a tick.
+		 * @param tick a non-negative tick number
+		 * @return the y coordinate
+		 */
+		public double getY(long tick) {
+			if (y == null)
+				return bodyY - Math.sin(angleAt(tick)) * startingDistance;
+			return y[(int) (tick % period)];
+		}
+
+		/**
+		 * Stores the position of the moon at a time that need not be a whole
+		 * tick in out[0] and out[1]. Whole ticks are read from the table.
+		 * @param time a non-negative time, in ticks
+		 * @param out array receiving the x and y coordinates
+		 */
+		public void positionAt(double time, double[] out) {
+			long tick = (long) time;
+			if (tick == time) {
+				out[0] = getX(tick);
+				out[1] = getY(tick);
+				return;
+			}
+			double angle = angleAt(time);
+			out[0] = bodyX + Math.cos(angle) * startingDistance;
+			out[1] = bodyY - Math.sin(angle) * startingDistance;
+		}
+
+		/**
+		 * Returns the angle of the moon at a time, in radians. The turned
+		 * angle is reduced to one revolution before it is subtracted.
+		 */
+		private double angleAt(double time) {
+			double turned = (period > 0) ? (time % period) * step
+					: (time * step) % (2 * Math.PI);
+			return Math.toRadians(startingAngle) - turned;
+		}
 
-		currentAngle -= deltaAngle;
-		setCenter(bodyCenter.translate(Math.cos(currentAngle)
-				* startingDistance, -Math.sin(currentAngle) * startingDistance));
+		/**
+		 * Stores the position of the moon at a tick in out[0] and out[1] as
+		 * fixed-point values, for FixedPointSimulation. Computed with
+		 * StrictMath instead of read from the table, so the bits are the
+		 * same on every machine.
+		 * @param tick a non-negative tick number
+		 * @param out array receiving the x and y coordinates
+		 */
+		strictfp void fixedPositionAt(long tick, long[] out) {
+			double turned = (period > 0) ? (tick % period) * step
+					: (tick * step) % (2 * StrictMath.PI);
+			double angle = startingAngle * StrictMath.PI / 180 - turned;
+			out[0] = FixedPoint.fromDouble(bodyX + StrictMath.cos(angle)
+					* startingDistance);
+			out[1] = FixedPoint.fromDouble(bodyY - StrictMath.sin(angle)
+					* startingDistance);
+		}
 	}
 
 	/**
@@ -7,15 +7,20 @@ package structures;
 public abstract class MovableCircularShape extends CircularShape {
 
 	/**
-	 * The velocity vector for the object.
+	 * The velocity components for the object. These are the authoritative
+	 * values; the Vector2d returned by getVelocity() is only a view over them.
 	 */
-	protected Vector2d velocity;
+	protected double xVelocity, yVelocity;
+	/**
+	 * Cached view of the velocity, created on demand.
+	 */
+	private Vector2d velocity;
 
 	/**
 	 * Moves the shape based on the current velocity vector.
 	 */
 	public void move() {
-		move(velocity);
+		setCenter(centerX + xVelocity, centerY + yVelocity);
 	}
 
 	/**
@@ -32,8 +37,8 @@ public abstract class MovableCircularShape extends CircularShape {
 	 * @param dt the value to multiply velocity by when adding
 	 */
 	public void move(Vector2d velocity, double dt) {
-		center = center.translate(dt * velocity.xComponent(), 
-				                  dt * velocity.yComponent());
+		setCenter(centerX + dt * velocity.xComponent(), centerY + dt
+				* velocity.yComponent());
 	}
 
 	/**
@@ -41,7 +46,7 @@ public abstract class MovableCircularShape extends CircularShape {
 	 * @param acceleration the acceleration vector to add to velocity
 	 */
 	public void accelerate(Vector2d acceleration) {
-		accelerate(acceleration, 1.0);
+		accelerate(acceleration.xComponent(), acceleration.yComponent());
 	}
 
 	/**
@@ -50,7 +55,18 @@ public abstract class MovableCircularShape extends CircularShape {
 	 * @param dt the value to multiply acceleration by when adding vectors
 	 */
 	public void accelerate(Vector2d acceleration, double dt) {
-		velocity = velocity.add(acceleration.multiply(dt));
+		accelerate(dt * acceleration.xComponent(), dt
+				* acceleration.yComponent());
+	}
+
+	/**
+	 * Changes the velocity by adding acceleration components to it. Does not
+	 * allocate.
+	 * @param ax the x component of the acceleration
+	 * @param ay the y component of the acceleration
+	 */
+	public void accelerate(double ax, double ay) {
+		setVelocity(xVelocity + ax, yVelocity + ay);
 	}
 
 	/**
@@ -58,15 +74,46 @@ public abstract class MovableCircularShape extends CircularShape {
 	 * @return the velocity
 	 */
 	public Vector2d getVelocity() {
+		if (velocity == null)
+			velocity = new Vector2d(xVelocity, yVelocity);
 		return velocity;
 	}
 
+	/**
+	 * Returns the x component of the velocity.
+	 * @return the x velocity
+	 */
+	public final double getXVelocity() {
+		return xVelocity;
+	}
+
+	/**
+	 * Returns the y component of the velocity.
+	 * @return the y velocity
+	 */
+	public final double getYVelocity() {
+		return yVelocity;
+	}
+
 	/**
 	 * Sets the velocity vector.
 	 * @param velocity the new velocity
 	 */
 	public void setVelocity(Vector2d velocity) {
+		xVelocity = velocity.xComponent();
+		yVelocity = velocity.yComponent();
 		this.velocity = velocity;
 	}
 
-}
\ No newline at end of file
+	/**
+	 * Sets the velocity components. Does not allocate.
+	 * @param vx the new x velocity
+	 * @param vy the new y velocity
+	 */
+	public void setVelocity(double vx, double vy) {
+		xVelocity = vx;
+		yVelocity = vy;
+		velocity = null;
+	}
+
+}
@@ -0,0 +1,369 @@
+package structures;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Simulates many shots at a level in lockstep, for solving it. Gives the same
+ * answers as Level.possibleWin for every launch point, but instead of
+ * copying the level and flying one ball at a time, it keeps the state of a
+ * group of balls in parallel arrays and advances all of them one tick at a
+ * time. The moons are moved once per tick for the whole group, and the
+ * gravity sum runs with the sources in the outer loop and the balls in the
+ * inner one, a plain array loop the JIT can unroll and vectorize. A ball in
+ * open space, a cell or more from every object, simply moves; the others
+ * go through the level's own warp, collision and goal code. Balls whose
+ * shot is decided are swapped out of the group, so the loops only ever run
+ * over balls still flying. The build targets Java 7, which has no Vector
+ * API, so these loops are left to the JIT.
+ * <p>
+ * Levels using an adaptive integrator or the fixed-point mode cannot step
+ * their balls in lockstep; their points are passed to possibleWin one at a
+ * time.
+ * <p>
+ * A ShotBatch is not thread safe. The level it was created for may be
+ * shared by several batches as long as nobody modifies it.
+ */
+public class ShotBatch {
+
+	/**
+	 * The default number of balls flown at once.
+	 */
+	public static final int DefaultLanes = 256;
+
+	private static final double CellSize = 16;
+
+	private final Level level;
+	private final Level lanes;
+	private final double max;
+	private final long startTick;
+	private final int size;
+	private final double startX, startY;
+
+	// state of the balls in flight, compacted to the first active entries
+	private final double[] x, y, vx, vy, ax, ay;
+	private final int[] escaping, point;
+	private final boolean[] inWarp;
+	// the box around each ball's path so far, kept only if asked for
+	private final double[] minX, minY, maxX, maxY;
+	private final double[] velocity = new double[2];
+
+	// open space: cells whose neighbours do not touch any object, widened by
+	// the radius of the ball. A ball in such a cell, moving less than a cell,
+	// cannot reach an object during the tick. Cells off the grid are open.
+	private final double cellX0, cellY0;
+	private final int columns, rows;
+	private final boolean[] open;
+
+	/**
+	 * Creates a batch flying DefaultLanes balls at once from the current tick
+	 * of the level.
+	 * @param level the level
+	 * @param max the maximum initial vector length
+	 */
+	public ShotBatch(Level level, double max) {
+		this(level, max, level.getTick(), DefaultLanes);
+	}
+
+	/**
+	 * Creates a batch.
+	 * @param level the level
+	 * @param max the maximum initial vector length
+	 * @param startTick the tick at which the balls are launched
+	 * @param size the number of balls flown at once
+	 */
+	public ShotBatch(Level level, double max, long startTick, int size) {
+		if (size < 1)
+			throw new IllegalArgumentException("A batch needs at least one "
+					+ "lane.");
+		this.level = level;
+		this.max = max;
+		this.startTick = startTick;
+		this.size = size;
+		lanes = level.newSimulation(startTick);
+		startX = lanes.getBall().getCenterX();
+		startY = lanes.getBall().getCenterY();
+		lanes.getBall().setLaunched(true);
+		x = new double[size];
+		y = new double[size];
+		vx = new double[size];
+		vy = new double[size];
+		ax = new double[size];
+		ay = new double[size];
+		escaping = new int[size];
+		point = new int[size];
+		inWarp = new boolean[size];
+		minX = new double[size];
+		minY = new double[size];
+		maxX = new double[size];
+		maxY = new double[size];
+
+		double[][] boxes = lanes.getGeometry().objectBoxes();
+		double margin = lanes.getBall().getRadius() + 1;
+		double left = Double.POSITIVE_INFINITY, top = left;
+		double right = Double.NEGATIVE_INFINITY, bottom = right;
+		for (int i = 0; i < boxes[0].length; i++) {
+			left = Math.min(left, boxes[0][i] - margin);
+			top = Math.min(top, boxes[1][i] - margin);
+			right = Math.max(right, boxes[2][i] + margin);
+			bottom = Math.max(bottom, boxes[3][i] + margin);
+		}
+		if (left > right) {
+			cellX0 = cellY0 = 0;
+			columns = rows = 0;
+			open = new boolean[0];
+			return;
+		}
+		// two spare cells on each side, so cells off the grid are open
+		cellX0 = left - 2 * CellSize;
+		cellY0 = top - 2 * CellSize;
+		columns = (int) ((right - left) / CellSize) + 5;
+		rows = (int) ((bottom - top) / CellSize) + 5;
+		boolean[] used = new boolean[columns * rows];
+		for (int i = 0; i < boxes[0].length; i++) {
+			int c0 = column(boxes[0][i] - margin);
+			int c1 = column(boxes[2][i] + margin);
+			int r0 = row(boxes[1][i] - margin);
+			int r1 = row(boxes[3][i] + margin);
+			for (int r = r0; r <= r1; r++) {
+				for (int c = c0; c <= c1; c++) {
+					used[r * columns + c] = true;
+				}
+			}
+		}
+		open = new boolean[columns * rows];
+		for (int r = 1; r < rows - 1; r++) {
+			for (int c = 1; c < columns - 1; c++) {
+				boolean free = true;
+				for (int k = -1; k <= 1; k++) {
+					int cell = (r + k) * columns + c;
+					free &= !used[cell - 1] && !used[cell] && !used[cell + 1];
+				}
+				open[r * columns + c] = free;
+			}
+		}
+	}
+
+	private int column(double x) {
+		return (int) Math.floor((x - cellX0) / CellSize);
+	}
+
+	private int row(double y) {
+		return (int) Math.floor((y - cellY0) / CellSize);
+	}
+
+	/**
+	 * Returns if nothing is within a cell of (x, y).
+	 */
+	private boolean inOpenSpace(double x, double y) {
+		int c = column(x);
+		int r = row(y);
+		if (c < 0 || r < 0 || c >= columns || r >= rows)
+			return true;
+		return open[r * columns + c];
+	}
+
+	/**
+	 * Finds the launch points that win the level.
+	 * @param points the launch points (raw level data, as for possibleWin)
+	 * @return the set of indices i such that points.get(i) wins
+	 */
+	public BitSet possibleWins(List<Point2d> points) {
+		ShotEnding[] endings = new ShotEnding[points.size()];
+		shotEndings(points, endings);
+		BitSet wins = new BitSet(points.size());
+		for (int i = 0; i < endings.length; i++) {
+			if (endings[i] == ShotEnding.WON)
+				wins.set(i);
+		}
+		return wins;
+	}
+
+	/**
+	 * Finds how the shot from each launch point ends. Levels that cannot be
+	 * flown in lockstep only tell WON from MISSED.
+	 * @param points the launch points (raw level data, as for possibleWin)
+	 * @param out the array to store the ending of points.get(i) in at i
+	 */
+	public void shotEndings(List<Point2d> points, ShotEnding[] out) {
+		shotEndings(points, out, null, null);
+	}
+
+	/**
+	 * Finds how the shot from each launch point ends, as shotEndings, which
+	 * source each crashed shot hit, and the box around the path of its ball:
+	 * the smallest x and y and the largest x and y its center reached, from
+	 * the launch until the shot was decided. A tick checked for contacts is
+	 * padded by the length of its move around where the ball ended up, since
+	 * a bounce or a hit during the tick lies that close. Shots not launched
+	 * get an empty box (the smallest coordinates infinite, the largest
+	 * negative infinite); shots of levels that cannot be flown in lockstep
+	 * get an infinite one.
+	 * @param points the launch points (raw level data, as for possibleWin)
+	 * @param out the array to store the ending of points.get(i) in at i
+	 * @param crashed the array to store, at i, the index of the source hit
+	 *        by the shot from points.get(i), in the order the level sums
+	 *        them (each body followed by its moons), or -1 if it did not
+	 *        crash; or null
+	 * @param bounds the array to store the box of points.get(i) in at 4 i
+	 *        to 4 i + 3, or null
+	 */
+	public void shotEndings(List<Point2d> points, ShotEnding[] out,
+			int[] crashed, float[] bounds) {
+		if (crashed != null)
+			Arrays.fill(crashed, 0, points.size(), -1);
+		if (!level.isFixedEuler() || level.isFixedPoint()) {
+			for (int i = 0; i < points.size(); i++) {
+				out[i] = level.possibleWin(points.get(i), max, startTick)
+						? ShotEnding.WON : ShotEnding.MISSED;
+				if (bounds != null)
+					setBounds(bounds, i, Float.NEGATIVE_INFINITY,
+							Float.POSITIVE_INFINITY);
+			}
+			return;
+		}
+		int next = 0;
+		while (next < points.size()) {
+			next = fly(points, next, out, crashed, bounds);
+		}
+	}
+
+	private static void setBounds(float[] bounds, int i, float low,
+			float high) {
+		bounds[4 * i] = low;
+		bounds[4 * i + 1] = low;
+		bounds[4 * i + 2] = high;
+		bounds[4 * i + 3] = high;
+	}
+
+	/**
+	 * Launches balls at the points from index next on until the lanes are
+	 * full, flies them until all are decided and returns the index of the
+	 * first point not launched.
+	 */
+	private int fly(List<Point2d> points, int next, ShotEnding[] endings,
+			int[] crashed, float[] bounds) {
+		int active = 0;
+		while (active < size && next < points.size()) {
+			Point2d p = points.get(next);
+			endings[next] = ShotEnding.OFF_SCREEN;
+			if (bounds != null)
+				setBounds(bounds, next, Float.POSITIVE_INFINITY,
+						Float.NEGATIVE_INFINITY);
+			// same checks as possibleWin
+			if (level.onScreen(p)) {
+				level.launchVelocity(p, max, velocity);
+				x[active] = startX;
+				y[active] = startY;
+				vx[active] = velocity[0];
+				vy[active] = velocity[1];
+				escaping[active] = -1;
+				inWarp[active] = false;
+				point[active] = next;
+				minX[active] = maxX[active] = startX;
+				minY[active] = maxY[active] = startY;
+				active++;
+			}
+			next++;
+		}
+		Ball ball = lanes.getBall();
+		double limit = CellSize * CellSize;
+		double budget = startTick + level.getTickBudget();
+		long tick = startTick;
+		while (active > 0) {
+			// sums the gravity at the positions before the move, with the
+			// moons where they are at the end of the tick, as updateLevel
+			lanes.setTick(++tick);
+			lanes.gravityAt(x, y, active, ax, ay);
+			for (int j = 0; j < active;) {
+				double nextVX = vx[j] + ax[j];
+				double nextVY = vy[j] + ay[j];
+				ShotEnding ending = null;
+				int source = -1;
+				double pad = 0;
+				if (inOpenSpace(x[j], y[j])
+						&& nextVX * nextVX + nextVY * nextVY < limit) {
+					// the same arithmetic as updateLevel for a free move
+					x[j] += nextVX;
+					y[j] += nextVY;
+					vx[j] = nextVX;
+					vy[j] = nextVY;
+					escaping[j] = -1;
+					inWarp[j] = false;
+					if (lanes.outOfBoundsAt(x[j], y[j]))
+						ending = ShotEnding.OUT_OF_BOUNDS;
+				} else {
+					TickOutcome outcome = lanes.finishTick(x[j], y[j], vx[j],
+							vy[j], escaping[j], inWarp[j], ax[j], ay[j]);
+					if (outcome == TickOutcome.GOAL_REACHED) {
+						ending = ShotEnding.WON;
+					} else if (outcome == TickOutcome.CRASHED) {
+						ending = ShotEnding.CRASHED;
+						source = lanes.getCrashedSource();
+					} else if (outcome == TickOutcome.OUT_OF_BOUNDS) {
+						ending = ShotEnding.OUT_OF_BOUNDS;
+					}
+					x[j] = ball.getCenterX();
+					y[j] = ball.getCenterY();
+					vx[j] = ball.getXVelocity();
+					vy[j] = ball.getYVelocity();
+					escaping[j] = lanes.getEscapingBlockage();
+					inWarp[j] = lanes.isBallInWarp();
+					// what is left of the move after a contact is at most its
+					// length, bounces keeping it
+					pad = Math.sqrt(nextVX * nextVX + nextVY * nextVY);
+				}
+				if (bounds != null) {
+					minX[j] = Math.min(minX[j], x[j] - pad);
+					minY[j] = Math.min(minY[j], y[j] - pad);
+					maxX[j] = Math.max(maxX[j], x[j] + pad);
+					maxY[j] = Math.max(maxY[j], y[j] + pad);
+				}
+				if (ending == null && tick >= budget)
+					ending = ShotEnding.OUT_OF_TICKS;
+				if (ending == null
+						&& lanes.hasEscaped(x[j], y[j], vx[j], vy[j]))
+					ending = ShotEnding.ESCAPED;
+				if (ending != null) {
+					// decided: move the last active ball into this lane
+					endings[point[j]] = ending;
+					if (crashed != null)
+						crashed[point[j]] = source;
+					if (bounds != null) {
+						int b = 4 * point[j];
+						// rounded outwards, so the box still holds the path
+						bounds[b] = Math.nextAfter((float) minX[j],
+								Double.NEGATIVE_INFINITY);
+						bounds[b + 1] = Math.nextAfter((float) minY[j],
+								Double.NEGATIVE_INFINITY);
+						bounds[b + 2] = Math.nextUp((float) maxX[j]);
+						bounds[b + 3] = Math.nextUp((float) maxY[j]);
+					}
+					active--;
+					copyLane(active, j);
+				} else {
+					j++;
+				}
+			}
+		}
+		return next;
+	}
+
+	private void copyLane(int from, int to) {
+		x[to] = x[from];
+		y[to] = y[from];
+		vx[to] = vx[from];
+		vy[to] = vy[from];
+		ax[to] = ax[from];
+		ay[to] = ay[from];
+		escaping[to] = escaping[from];
+		inWarp[to] = inWarp[from];
+		point[to] = point[from];
+		minX[to] = minX[from];
+		minY[to] = minY[from];
+		maxX[to] = maxX[from];
+		maxY[to] = maxY[from];
+	}
+
+}
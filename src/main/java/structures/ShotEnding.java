@@ -0,0 +1,48 @@
+package structures;
+
+/**
+ * How a shot flown by ShotBatch ends. Launch points with the same ending lie
+ * in the same region of outcomes, so a change of ending between two points
+ * is a hint that a winning region may lie between them. Crashes are told
+ * apart further by the source that was hit, which ShotBatch.shotEndings
+ * reports separately.
+ */
+public enum ShotEnding {
+
+	/**
+	 * The launch point is off screen, so the shot is not launched.
+	 */
+	OFF_SCREEN,
+
+	/**
+	 * The ball reached a goal post.
+	 */
+	WON,
+
+	/**
+	 * The ball did not reach a goal post. Only levels that cannot be flown
+	 * in lockstep end shots this way; the others tell how the shot missed.
+	 */
+	MISSED,
+
+	/**
+	 * The ball left the region of the level that can be reached.
+	 */
+	OUT_OF_BOUNDS,
+
+	/**
+	 * The ball is moving away from everything and cannot come back.
+	 */
+	ESCAPED,
+
+	/**
+	 * The ball was still flying when the tick budget ran out.
+	 */
+	OUT_OF_TICKS,
+
+	/**
+	 * The ball ran into a solid body or moon.
+	 */
+	CRASHED;
+
+}
@@ -0,0 +1,126 @@
+package structures;
+
+/**
+ * Everything about a level that changes during a shot: the ball, the time
+ * (which fixes where the moons are), the warp and blockage flags and the
+ * last outcome. The rest of a level is its LevelGeometry, which never
+ * changes, so saving and restoring a SimulationState is enough to go back
+ * to any point of a shot (see Level.saveState and Level.restoreState).
+ * <p>
+ * A state holds no arrays, so it is cheap to create, and the same state may
+ * be saved into again and again.
+ */
+public class SimulationState {
+
+	double x, y, xVelocity, yVelocity;
+	boolean launched;
+	double time;
+	int escapingBlockage = -1;
+	boolean ballInWarp;
+	Body contactBody;
+	TickOutcome lastOutcome = TickOutcome.FLYING;
+
+	/**
+	 * Creates an empty state, with the ball at rest at the origin at tick 0.
+	 */
+	public SimulationState() {
+	}
+
+	/**
+	 * Creates a copy of a state.
+	 * @param state the state to copy
+	 */
+	public SimulationState(SimulationState state) {
+		set(state);
+	}
+
+	/**
+	 * Makes this state a copy of another.
+	 * @param state the state to copy
+	 */
+	public void set(SimulationState state) {
+		x = state.x;
+		y = state.y;
+		xVelocity = state.xVelocity;
+		yVelocity = state.yVelocity;
+		launched = state.launched;
+		time = state.time;
+		escapingBlockage = state.escapingBlockage;
+		ballInWarp = state.ballInWarp;
+		contactBody = state.contactBody;
+		lastOutcome = state.lastOutcome;
+	}
+
+	/**
+	 * Returns the x coordinate of the ball.
+	 * @return the x coordinate of the ball
+	 */
+	public double getX() {
+		return x;
+	}
+
+	/**
+	 * Returns the y coordinate of the ball.
+	 * @return the y coordinate of the ball
+	 */
+	public double getY() {
+		return y;
+	}
+
+	/**
+	 * Returns the x velocity of the ball.
+	 * @return the x velocity of the ball
+	 */
+	public double getXVelocity() {
+		return xVelocity;
+	}
+
+	/**
+	 * Returns the y velocity of the ball.
+	 * @return the y velocity of the ball
+	 */
+	public double getYVelocity() {
+		return yVelocity;
+	}
+
+	/**
+	 * Returns if the ball had been launched.
+	 * @return if the ball had been launched
+	 */
+	public boolean isLaunched() {
+		return launched;
+	}
+
+	/**
+	 * Returns the simulated time in ticks.
+	 * @return the time
+	 */
+	public double getTime() {
+		return time;
+	}
+
+	/**
+	 * Returns the number of whole ticks simulated.
+	 * @return the tick
+	 */
+	public long getTick() {
+		return (long) time;
+	}
+
+	/**
+	 * Returns if the ball was inside a warp.
+	 * @return if the ball was inside a warp
+	 */
+	public boolean isBallInWarp() {
+		return ballInWarp;
+	}
+
+	/**
+	 * Returns what happened to the ball in the last update.
+	 * @return the last outcome
+	 */
+	public TickOutcome getLastOutcome() {
+		return lastOutcome;
+	}
+
+}
@@ -0,0 +1,167 @@
+package structures;
+
+/**
+ * A ring of the last ticks of a shot, for rewinding it. Each snapshot is the
+ * SimulationState of a level after a tick, stored across preallocated
+ * primitive arrays, so recording and restoring one take constant time and
+ * allocate nothing. Once the ring is full, each new snapshot replaces the
+ * oldest.
+ * <p>
+ * Snapshots are counted back from the newest: 0 is the last recorded tick,
+ * 1 the one before it and so on up to size() - 1.
+ */
+public class SnapshotBuffer {
+
+	/**
+	 * The default number of snapshots, about a minute of play at normal
+	 * speed.
+	 */
+	public static final int DefaultCapacity = 1 << 14;
+
+	private static final byte Launched = 1;
+	private static final byte InWarp = 2;
+
+	private final double[] x, y, xVelocity, yVelocity, time;
+	private final int[] escapingBlockage;
+	private final byte[] flags;
+	private final Body[] contactBody;
+	private final TickOutcome[] lastOutcome;
+	private final SimulationState scratch = new SimulationState();
+
+	// the slot of the newest snapshot and the number stored
+	private int newest = -1;
+	private int size;
+
+	/**
+	 * Creates an empty buffer.
+	 * @param capacity the most snapshots kept
+	 */
+	public SnapshotBuffer(int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("The capacity must be "
+					+ "positive.");
+		x = new double[capacity];
+		y = new double[capacity];
+		xVelocity = new double[capacity];
+		yVelocity = new double[capacity];
+		time = new double[capacity];
+		escapingBlockage = new int[capacity];
+		flags = new byte[capacity];
+		contactBody = new Body[capacity];
+		lastOutcome = new TickOutcome[capacity];
+	}
+
+	/**
+	 * Records the current state of a level as the newest snapshot.
+	 * @param level the level
+	 */
+	public void record(Level level) {
+		level.saveState(scratch);
+		record(scratch);
+	}
+
+	/**
+	 * Records a state as the newest snapshot.
+	 * @param state the state
+	 */
+	public void record(SimulationState state) {
+		newest = (newest + 1 == x.length) ? 0 : newest + 1;
+		size = Math.min(size + 1, x.length);
+		int i = newest;
+		x[i] = state.x;
+		y[i] = state.y;
+		xVelocity[i] = state.xVelocity;
+		yVelocity[i] = state.yVelocity;
+		time[i] = state.time;
+		escapingBlockage[i] = state.escapingBlockage;
+		flags[i] = (byte) ((state.launched ? Launched : 0) | (state.ballInWarp
+				? InWarp : 0));
+		contactBody[i] = state.contactBody;
+		lastOutcome[i] = state.lastOutcome;
+	}
+
+	/**
+	 * Copies a snapshot into a state.
+	 * @param back how many snapshots back from the newest
+	 * @param out the state to overwrite
+	 */
+	public void get(int back, SimulationState out) {
+		int i = slot(back);
+		out.x = x[i];
+		out.y = y[i];
+		out.xVelocity = xVelocity[i];
+		out.yVelocity = yVelocity[i];
+		out.time = time[i];
+		out.escapingBlockage = escapingBlockage[i];
+		out.launched = (flags[i] & Launched) != 0;
+		out.ballInWarp = (flags[i] & InWarp) != 0;
+		out.contactBody = contactBody[i];
+		out.lastOutcome = lastOutcome[i];
+	}
+
+	/**
+	 * Puts a level back into a snapshot it recorded. The snapshot is kept,
+	 * as are the newer ones, so a shot can be scrubbed back and forth.
+	 * @param level the level the snapshot was recorded from
+	 * @param back how many snapshots back from the newest
+	 */
+	public void restore(Level level, int back) {
+		get(back, scratch);
+		level.restoreState(scratch);
+	}
+
+	/**
+	 * Returns the tick of a snapshot.
+	 * @param back how many snapshots back from the newest
+	 * @return the tick
+	 */
+	public long getTick(int back) {
+		return (long) time[slot(back)];
+	}
+
+	/**
+	 * Drops the newest snapshots, so the next one recorded follows those
+	 * left.
+	 * @param count the number of snapshots to drop
+	 */
+	public void discardNewest(int count) {
+		count = Math.min(count, size);
+		newest = (newest - count + x.length) % x.length;
+		size -= count;
+		if (size == 0)
+			newest = -1;
+	}
+
+	/**
+	 * Drops every snapshot.
+	 */
+	public void clear() {
+		newest = -1;
+		size = 0;
+	}
+
+	/**
+	 * Returns the number of snapshots stored.
+	 * @return the number of snapshots
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the most snapshots kept.
+	 * @return the capacity
+	 */
+	public int getCapacity() {
+		return x.length;
+	}
+
+	private int slot(int back) {
+		if (back < 0 || back >= size)
+			throw new IndexOutOfBoundsException("No snapshot " + back
+					+ " ticks back; there are " + size + ".");
+		int i = newest - back;
+		return (i < 0) ? i + x.length : i;
+	}
+
+}
@@ -0,0 +1,138 @@
+package structures;
+
+/**
+ * A uniform grid over a fixed set of axis-aligned boxes, used as the broad
+ * phase of the collision queries in Level. Each box is listed in every cell
+ * it overlaps, and a query visits only the cells overlapped by the query
+ * box, so its cost depends on the local density of objects rather than on
+ * their total number.
+ * <p>
+ * The grid is immutable once built. Queries write into an array owned by
+ * the caller and report each object once, so one grid may be shared by any
+ * number of levels and threads.
+ */
+public class SpatialGrid {
+
+	/**
+	 * The default width of a cell, in pixels.
+	 */
+	public static final double DefaultCellSize = 64.0;
+
+	private final double x0, y0, cellSize;
+	private final int columns, rows, size;
+
+	// cell c lists the ids items[cellStart[c]] .. items[cellStart[c + 1] - 1]
+	private final int[] cellStart, items;
+
+	// the first cell column and row each object overlaps
+	private final int[] firstColumn, firstRow;
+
+	/**
+	 * Builds a grid over boxes given by their edges. Object ids are the
+	 * indices into these arrays.
+	 * @param left the left edges
+	 * @param top the top edges
+	 * @param right the right edges
+	 * @param bottom the bottom edges
+	 * @param cellSize the width of a cell
+	 */
+	public SpatialGrid(double[] left, double[] top, double[] right,
+			double[] bottom, double cellSize) {
+		this.cellSize = cellSize;
+		size = left.length;
+		double minX = Double.POSITIVE_INFINITY, minY = minX;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = maxX;
+		for (int i = 0; i < size; i++) {
+			minX = Math.min(minX, left[i]);
+			minY = Math.min(minY, top[i]);
+			maxX = Math.max(maxX, right[i]);
+			maxY = Math.max(maxY, bottom[i]);
+		}
+		if (size == 0) {
+			minX = minY = maxX = maxY = 0;
+		}
+		x0 = minX;
+		y0 = minY;
+		columns = Math.max(1, (int) ((maxX - minX) / cellSize) + 1);
+		rows = Math.max(1, (int) ((maxY - minY) / cellSize) + 1);
+		firstColumn = new int[size];
+		firstRow = new int[size];
+
+		// count the entries per cell, then fill them in (compressed rows)
+		cellStart = new int[columns * rows + 1];
+		for (int i = 0; i < size; i++) {
+			firstColumn[i] = column(left[i]);
+			firstRow[i] = row(top[i]);
+			for (int r = firstRow[i]; r <= row(bottom[i]); r++) {
+				for (int c = firstColumn[i]; c <= column(right[i]); c++) {
+					cellStart[r * columns + c + 1]++;
+				}
+			}
+		}
+		for (int c = 0; c < columns * rows; c++) {
+			cellStart[c + 1] += cellStart[c];
+		}
+		items = new int[cellStart[columns * rows]];
+		int[] fill = cellStart.clone();
+		for (int i = 0; i < size; i++) {
+			for (int r = firstRow[i]; r <= row(bottom[i]); r++) {
+				for (int c = firstColumn[i]; c <= column(right[i]); c++) {
+					items[fill[r * columns + c]++] = i;
+				}
+			}
+		}
+	}
+
+	private int column(double x) {
+		return Math.min(columns - 1, Math.max(0, (int) ((x - x0) / cellSize)));
+	}
+
+	private int row(double y) {
+		return Math.min(rows - 1, Math.max(0, (int) ((y - y0) / cellSize)));
+	}
+
+	/**
+	 * Returns the number of objects in the grid.
+	 * @return the number of objects
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Finds the objects whose boxes share a cell with the query box and
+	 * writes their ids into out, each id once. This may include objects that
+	 * do not actually overlap the query box; callers run the exact test.
+	 * @param left the left edge of the query box
+	 * @param top the top edge of the query box
+	 * @param right the right edge of the query box
+	 * @param bottom the bottom edge of the query box
+	 * @param out array receiving the ids, at least size() long
+	 * @return the number of ids written
+	 */
+	public int query(double left, double top, double right, double bottom,
+			int[] out) {
+		if (size == 0 || right < x0 || bottom < y0
+				|| left > x0 + columns * cellSize
+				|| top > y0 + rows * cellSize)
+			return 0;
+		int c0 = column(left), c1 = column(right);
+		int r0 = row(top), r1 = row(bottom);
+		int count = 0;
+		for (int r = r0; r <= r1; r++) {
+			for (int c = c0; c <= c1; c++) {
+				int cell = r * columns + c;
+				for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+					int id = items[k];
+					// report an object only from its first cell in range
+					if (Math.max(firstColumn[id], c0) == c
+							&& Math.max(firstRow[id], r0) == r) {
+						out[count++] = id;
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+}
@@ -0,0 +1,59 @@
+package structures;
+
+/**
+ * What happened to the ball during one update of a Level. Computed once by
+ * Level.updateLevel (or advance), so callers do not need to repeat the
+ * collision queries behind timeToReset and inGoalPost. If several things
+ * happen in the same update, the constant listed last wins.
+ */
+public enum TickOutcome {
+
+	/**
+	 * Nothing happened: the ball is flying freely or waiting to be launched.
+	 */
+	FLYING,
+
+	/**
+	 * The ball bounced off a reflector or a blockage.
+	 */
+	BOUNCED,
+
+	/**
+	 * The ball entered a warp and was moved to the next one.
+	 */
+	WARPED,
+
+	/**
+	 * The ball left the region of the level that can be reached.
+	 */
+	OUT_OF_BOUNDS,
+
+	/**
+	 * The ball ran into a solid body or moon, which Level.getIntersectingBody
+	 * returns.
+	 */
+	CRASHED,
+
+	/**
+	 * The ball reached a goal post.
+	 */
+	GOAL_REACHED;
+
+	/**
+	 * Returns if the ball should be reset, i.e. if Level.timeToReset would
+	 * return true.
+	 * @return if the ball crashed or left the level
+	 */
+	public boolean requiresReset() {
+		return this == CRASHED || this == OUT_OF_BOUNDS;
+	}
+
+	/**
+	 * Returns if the shot is over, either won or lost.
+	 * @return if the ball crashed, left the level or reached a goal
+	 */
+	public boolean endsShot() {
+		return requiresReset() || this == GOAL_REACHED;
+	}
+
+}
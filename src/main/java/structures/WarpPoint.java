@@ -35,13 +35,13 @@ public class WarpPoint extends CircularShape {
 	 * @param y the center y coordinate
 	 */
 	public WarpPoint(int x, int y) {
-		center = new Point2d(x, y);
+		setCenter(x, y);
 		setRadius(RADIUS);
 	}
 
 	@Override
 	public void draw(double dx, double dy, Graphics g) {
-		g.drawImage(Image, (int) (center.x() - radius + dx), (int) (center.y()
+		g.drawImage(Image, (int) (centerX - radius + dx), (int) (centerY
 				- radius + dy), null);
 	}
 
@@ -49,7 +49,7 @@ public class WarpPoint extends CircularShape {
 	 * Returns the description of this WarpPoint.
 	 */
 	public String toString() {
-		return "warp(" + center.x() + ", " + center.y() + ")";
+		return "warp(" + centerX + ", " + centerY + ")";
 	}
 
 }
\ No newline at end of file
@@ -10,6 +10,28 @@ import structures._
  */
 object GravityVectorsEffect {
 
+  /** Computes the arrow drawn for a single body, using the level's force
+   *  field for its direction. As before the field was pluggable, the length
+   *  is 5 + g * ArrowLength * radius / distance for Newtonian gravity: it is
+   *  scaled by the body's radius rather than its mass, so moons, which have
+   *  no mass, get arrows of the size of their discs.
+   *  @param level the current Level in the game
+   *  @param ballCent the center of the ball
+   *  @param b the body drawn toward
+   *  @return the x and y components of the arrow
+   */
+  def arrow(level: Level, ballCent: Point2d, b: Body): (Double, Double) = {
+    val dx = b.getCenterX - ballCent.x
+    val dy = b.getCenterY - ballCent.y
+    val d2 = dx * dx + dy * dy
+    val d = math.sqrt(d2)
+    val k = level.getForceField.scale(d2, level.getGravityStrength * b.getRadius)
+    // a repulsive field turns the arrow around
+    val direction = if (k < 0) -1.0 else 1.0
+    val length = 5 + GraphicEffect.ArrowLength * math.abs(k) * d2
+    (direction * length * dx / d, direction * length * dy / d)
+  }
+
   /** Draws the vectors from the ball.
    *  @param level the current Level in the game
    *  @param g the Graphics component to draw with
@@ -17,18 +39,14 @@ object GravityVectorsEffect {
   def draw(level: Level, g: Graphics) = {
     g.setColor(Color.white);
     val ball = level.getBall()
-    val ballCent = new Point2d(ball.getCenter.x, ball.getCenter.y)
+    val ballCent = ball.getCenter
     val bodies = level.getBodies()
     val shift = level.getShift()
     val ballPt = ballCent + shift
 
     def drawVector(b: Body): Unit = {
-      val angle = CalcHelp.getAngle(ballCent, b.getCenter());
-      val length = 5 + level.getGravityStrength() * GraphicEffect.ArrowLength *
-        b.getRadius() / ballCent.distance(b.getCenter)
-      val dx = shift.x + length * math.cos(angle)
-      val dy = shift.y + length * -math.sin(angle)
-      val p2 = ballCent.translate(dx, dy)
+      val (x, y) = arrow(level, ballCent, b)
+      val p2 = ballPt.translate(x, y)
       GraphicEffect.drawArrow(ballPt, p2, g)
       CalcHelp.map(drawVector, b.getMoons)
     }
@@ -36,4 +54,4 @@ object GravityVectorsEffect {
     CalcHelp.map(drawVector, bodies)
   }
 
-}
\ No newline at end of file
+}
@@ -18,11 +18,13 @@ object MenuScreen {
     "R: reset",
     "Right arrow: speed up",
     "Left arrow: slow down",
+    "B / F: rewind / forward",
     // break
     "V: show gravity vectors",
     "D: show gravity resultant",
     "T: show ball trail",
-    "E: show special effects")
+    "E: show special effects",
+    "L: relaunch from here")
   private var menuLevel: Level = null
 
   /**
@@ -63,11 +65,11 @@ object MenuScreen {
 
     g.setFont(new Font("Times new Roman", Font.ITALIC, 25))
     g.setColor(Color.blue)
-    for (i <- 0 to 3)
-      g.drawString(instructionStrings(i), 50, 60 * i + 235)
+    for (i <- 0 to 4)
+      g.drawString(instructionStrings(i), 50, 50 * i + 225)
 
-    for (i <- 4 to 7)
-      g.drawString(instructionStrings(i), 700, 60 * (i - 4) + 235)
+    for (i <- 5 to 9)
+      g.drawString(instructionStrings(i), 700, 50 * (i - 5) + 225)
 
     g.setFont(new Font("Times new Roman", Font.ITALIC, 20))
     g.setColor(Color.green)
@@ -18,19 +18,16 @@ object ResultantDrawer {
     val shift = level.getShift()
     val ball = level.getBall()
     val bodies = level.getBodies()
-    val ballCent = new Point2d(ball.getCenter().x, ball.getCenter().y)
+    val ballCent = ball.getCenter()
 
     var totalX = 0.0
     var totalY = 0.0
 
-    // finds gravitational forces from the given body
+    // adds the arrow of the given body, read from the level's force field
     def addValues(b: Body): Unit = {
-      val bodyCent = new Point2d(b.getCenter.x, b.getCenter.y)
-      val angle = CalcHelp.getAngle(ballCent, bodyCent)
-      val length = level.getGravityStrength * GraphicEffect.ArrowLength *
-        b.getRadius / ballCent.distance(bodyCent) + 5
-      totalX += length * math.cos(angle)
-      totalY -= length * math.sin(angle)
+      val (x, y) = GravityVectorsEffect.arrow(level, ballCent, b)
+      totalX += x
+      totalY += y
       CalcHelp.map(addValues, b.getMoons())
     }
 
@@ -0,0 +1,50 @@
+package structures
+
+/** A mutable double-precision 2-d Cartesian point for use as scratch space in
+ *  hot loops. Operations update this point in place and return it.
+ *
+ *  @constructor create a new point at the given coordinates
+ *  @param x the x coordinate
+ *  @param y the y coordinate
+ */
+class MutablePoint2d(var x: Double, var y: Double) {
+
+  /** Creates a point at the origin. */
+  def this() = this(0.0, 0.0)
+
+  /** Creates a copy of an immutable point. */
+  def this(p: Point2d) = this(p.x, p.y)
+
+  /** Sets both coordinates. */
+  def set(newX: Double, newY: Double): MutablePoint2d = {
+    x = newX
+    y = newY
+    this
+  }
+
+  /** Copies the coordinates of an immutable point. */
+  def set(p: Point2d): MutablePoint2d = set(p.x, p.y)
+
+  /** Translates this point by dx and dy. */
+  def translate(dx: Double, dy: Double): MutablePoint2d = set(x + dx, y + dy)
+
+  /** Gives the square of the distance to the point (px, py). */
+  def distanceSquared(px: Double, py: Double): Double = {
+    val dx = x - px
+    val dy = y - py
+    dx * dx + dy * dy
+  }
+
+  /** Gives the square of the distance between two points. */
+  def distanceSquared(p: Point2d): Double = distanceSquared(p.x, p.y)
+
+  /** Tells if this point is within a certain maximum distance of (px, py). */
+  def withinDistance(px: Double, py: Double, max: Double): Boolean =
+    distanceSquared(px, py) <= max * max
+
+  /** Returns an immutable copy of this point. */
+  def toPoint(): Point2d = new Point2d(x, y)
+
+  override def toString(): String = toPoint.toString
+
+}
@@ -1,6 +1,7 @@
 package structures
 
-/** An immutable double-precision 2-d Cartesian point.
+/** An immutable double-precision 2-d Cartesian point. See MutablePoint2d for a
+ * scratch point that can be updated in place.
  * 
  * @constructor create a new point at the given coordinates
  * @param x the x coordinate
@@ -59,7 +60,7 @@ class Point2d(val x: Double, val y: Double) {
   def -(p: Point2d): Point2d = this - (p.x, p.y)
   
   /** Translates a point by the negation of a vector. */
-  def -(v: Vector2d): Point2d = this + (-v)
+  def -(v: Vector2d): Point2d = translate(-v.xComponent, -v.yComponent)
 
   /** Tells if another instance can equal a Point2d. */
   def canEqual(other: Any): Boolean = other.isInstanceOf[structures.Point2d]  
@@ -3,14 +3,20 @@ package structures
 /** Representation of a two dimensional mathematical vector. Supports typical
  * operations on vectors in an immutable fashion. <li>Note that the angle of a
  * vector is defined as being measured in the counter-clockwise direction on the
- * x-axis. <li>Angles are always stored in radians.
+ * x-axis. <li>Angles are always given in radians. <li>The magnitude and angle
+ * are computed when first read and then kept, so constructing and combining
+ * vectors only costs the component arithmetic.
  */
 class Vector2d(val xComponent: Double, val yComponent: Double) {
 
   /** The norm of the vector. */
-  val magnitude = math.hypot(xComponent, yComponent)
+  lazy val magnitude: Double = math.hypot(xComponent, yComponent)
+
+  /** The square of the norm of the vector. Needs no square root. */
+  def magnitudeSquared: Double = xComponent * xComponent + yComponent * yComponent
+
   /** The angle formed by the vector with the positive x axis.*/
-  val angle = CalcHelp.getAngle(xComponent, yComponent)
+  lazy val angle: Double = CalcHelp.getAngle(xComponent, yComponent)
 
   /** Creates a new zero vector. */
   def this() = this(0.0, 0.0)
@@ -33,7 +39,8 @@ class Vector2d(val xComponent: Double, val yComponent: Double) {
   def +(v: Vector2d): Vector2d = this.add(v)
 
   /** Returns the difference of two vectors. */
-  def subtract(v: Vector2d): Vector2d = this + (-v)
+  def subtract(v: Vector2d): Vector2d =
+    new Vector2d(xComponent - v.xComponent, yComponent - v.yComponent)
 
   /** Returns the difference of two vectors. */
   def -(v: Vector2d): Vector2d = this.subtract(v)
@@ -56,8 +63,7 @@ class Vector2d(val xComponent: Double, val yComponent: Double) {
     xComponent * v.xComponent + yComponent * v.yComponent
 
   /** Returns if this is the zero vector. */
-  def isZero(): Boolean =
-    (xComponent == 0 && yComponent == 0) || magnitude == 0
+  def isZero(): Boolean = xComponent == 0 && yComponent == 0
 
   /** Returns a unit vector in the direction of this vector. */
   def normalize(): Vector2d = {
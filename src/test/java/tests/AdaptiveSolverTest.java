@@ -0,0 +1,57 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import structures.*;
+import editor.AdaptiveSolver;
+import editor.LevelSolver;
+
+/**
+ * Tests that <code>AdaptiveSolver</code> agrees with LevelSolver.
+ */
+public class AdaptiveSolverTest {
+
+	@Test
+	public void singlePixelCellsAreTheBruteForce() {
+		Level level = SolverLevels.cornerLevel();
+		List<Point> exact = new ArrayList<Point>(LevelSolver.getSolutionSet(
+				level, 0, 2));
+		AdaptiveSolver solver = new AdaptiveSolver(level, 1, 0);
+		assertFalse(exact.isEmpty());
+		assertEquals(exact, new ArrayList<Point>(solver.solve(2)));
+	}
+
+	@Test
+	public void refinementFindsTheRegions() {
+		Level level = SolverLevels.cornerLevel();
+		Set<Point> exact = new HashSet<Point>(LevelSolver.getSolutionSet(
+				level, 0, 2));
+		AdaptiveSolver solver = new AdaptiveSolver(level,
+				AdaptiveSolver.DefaultCellSize, AdaptiveSolver.DefaultMargin);
+		Set<Point> found = new HashSet<Point>(solver.solve(2));
+		int differences = 0;
+		for (Point p : exact) {
+			differences += found.contains(p) ? 0 : 1;
+		}
+		for (Point p : found) {
+			differences += exact.contains(p) ? 0 : 1;
+		}
+		assertTrue(differences <= exact.size() / 100);
+		// half of the quarter of the launch disc on screen
+		assertTrue(solver.getShotsFlown() < Math.PI * 300 * 300 / 8);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void cellsArePowersOfTwo() {
+		new AdaptiveSolver(SolverLevels.cornerLevel(), 6, 1);
+	}
+
+}
@@ -0,0 +1,67 @@
+package tests;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import structures.*;
+
+/**
+ * Benchmark for the per-tick cost of the collision queries as a level grows.
+ * Builds levels with an increasing number of small, massless bodies and
+ * blockages away from the ball's path and times updateLevel plus the
+ * timeToReset and inGoalPost checks the game makes every tick.
+ * <p>
+ * Usage: BroadPhaseBenchmark [ticks]
+ */
+public class BroadPhaseBenchmark {
+
+	private static final int Rounds = 3;
+
+	private static Level makeLevel(int objects) {
+		Random random = new Random(objects);
+		Ball ball = new Ball(100, 350, 3);
+		List<Body> bodies = new ArrayList<Body>();
+		List<Blockage> blockages = new ArrayList<Blockage>();
+		List<GoalPost> goals = new ArrayList<GoalPost>();
+		for (int i = 0; i < objects; i++) {
+			// keep the band the ball flies through clear
+			int x = random.nextInt(4000) - 1500;
+			int y = random.nextBoolean() ? random.nextInt(250) : 450 + random
+					.nextInt(250);
+			if (i % 2 == 0)
+				bodies.add(new Body(x, y, 5 + random.nextInt(10), Color.gray, 0));
+			else
+				blockages.add(new Blockage(x, y, 5, 5, Color.gray));
+		}
+		goals.add(new GoalPost(5000, 350, 15));
+		Level level = new Level(ball, bodies, null, goals, blockages, 5.0, 0);
+		ball.setVelocity(0.001, 0);
+		ball.setLaunched(true);
+		return level;
+	}
+
+	public static void main(String[] args) {
+		int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int[] sizes = { 10, 100, 1000, 10000 };
+		for (int round = 0; round < Rounds; round++) {
+			StringBuilder line = new StringBuilder("round " + round + ":");
+			for (int size : sizes) {
+				Level level = makeLevel(size);
+				long start = System.nanoTime();
+				int resets = 0;
+				for (int t = 0; t < ticks; t++) {
+					level.updateLevel();
+					if (level.timeToReset() || level.inGoalPost())
+						resets++;
+				}
+				double ns = (System.nanoTime() - start) / (double) ticks;
+				line.append(String.format(" %d objects %.1f ns/tick%s;", size,
+						ns, resets == 0 ? "" : " (" + resets + " resets)"));
+			}
+			System.out.println(line);
+		}
+	}
+
+}
@@ -5,8 +5,12 @@ import game.DataHandler;
 
 import java.awt.Color;
 import java.io.*;
+import java.util.List;
+
 import org.junit.*;
 
+import structures.Level;
+
 public class DataHandlerTests {
 	
 	static final String dir = "testFiles/";
@@ -89,6 +93,23 @@ public class DataHandlerTests {
 		assertEquals(true, same(new Color(1, 32, 35)));
 	}
 	
+	@Test
+	public void levelTickBudgetRead() throws IOException {
+		String fileName = dir + "budgetRead.txt";
+		PrintWriter pw = new PrintWriter(new File(fileName));
+		pw.println("ball(100, 100, 3, red)");
+		pw.println("goal(790, 200, 15)");
+		pw.println("level(4, 1)");
+		pw.println("ball(100, 100, 3, red)");
+		pw.println("goal(790, 200, 15)");
+		pw.println("level(4, 1, 1234)");
+		pw.close();
+		List<Level> levels = new DataHandler().getLevelData(fileName);
+		assertTrue(levels.get(0).getTickBudget() > 0);
+		assertEquals(1234, levels.get(1).getTickBudget());
+		assertTrue(levels.get(1).toString().contains("level(4.0, 1.0, 1234)"));
+	}
+
 	private boolean same(Color c) {
 		return DataHandler.readColor(DataHandler.getColorDisplay(c)).equals(c);
 	}
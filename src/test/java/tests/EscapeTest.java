@@ -0,0 +1,96 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import structures.*;
+
+/**
+ * Tests for Level.hasEscaped.
+ */
+public class EscapeTest {
+
+	private static Level makeLevel(double vx, double vy) {
+		Ball ball = new Ball(400, 350, 3);
+		List<Body> bodies = new ArrayList<Body>();
+		bodies.add(new Body(500, 350, 30, Color.blue));
+		List<GoalPost> goals = new ArrayList<GoalPost>();
+		goals.add(new GoalPost(700, 200, 15));
+		Level level = new Level(ball, bodies, null, goals, null, 1.2, 1.0);
+		ball.setVelocity(vx, vy);
+		ball.setLaunched(true);
+		return level;
+	}
+
+	@Test
+	public void fastBallEscapes() {
+		// heading for the body
+		assertFalse(makeLevel(3, 0).hasEscaped());
+		Level level = makeLevel(-3, 0);
+		level.updateLevel();
+		// 70 pixels past the body: v^2 / 2 = 4.5 > 30 / 100
+		assertTrue(level.hasEscaped());
+	}
+
+	@Test
+	public void slowBallIsPulledBack() {
+		Level level = makeLevel(-0.3, 0);
+		for (int i = 0; i < 200; i++) {
+			level.updateLevel();
+			assertFalse(level.hasEscaped());
+		}
+		assertTrue(level.getBall().getXVelocity() > 0);
+	}
+
+	@Test
+	public void escapeBoxDelaysEscape() {
+		Level level = makeLevel(-3, 0);
+		level.setEscapeBox(0, 0, 1000, 700);
+		for (int i = 0; i < 20; i++) {
+			level.updateLevel();
+		}
+		assertFalse(level.hasEscaped());
+		for (int i = 0; i < 120; i++) {
+			level.updateLevel();
+		}
+		assertTrue(level.hasEscaped());
+	}
+
+	@Test
+	public void otherForceFieldsNeverEscape() {
+		Level level = makeLevel(-3, 0);
+		level.setForceField(new ForceField.Repulsive(ForceField.DEFAULT));
+		for (int i = 0; i < 50; i++) {
+			level.updateLevel();
+			assertFalse(level.hasEscaped());
+		}
+	}
+
+	@Test
+	public void escapedShotsNeverWin() {
+		Random random = new Random(4);
+		for (int n = 0; n < 300; n++) {
+			double angle = random.nextDouble() * 2 * Math.PI;
+			double speed = random.nextDouble() * 2;
+			Level level = makeLevel(speed * Math.cos(angle), speed
+					* Math.sin(angle));
+			boolean escaped = false;
+			for (int t = 0; t < 3000; t++) {
+				TickOutcome outcome = level.updateLevel();
+				escaped |= level.hasEscaped();
+				if (escaped)
+					assertFalse(outcome == TickOutcome.GOAL_REACHED
+							|| outcome == TickOutcome.CRASHED);
+				if (outcome.endsShot())
+					break;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,171 @@
+package tests;
+
+import static org.junit.Assert.*;
+import game.DataHandler;
+
+import java.io.File;
+import java.net.URL;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import structures.*;
+
+/**
+ * Checks the fixed-point engine against the double one. Trajectories only
+ * agree to within rounding, which grows over a shot, so shots are compared
+ * over a limited number of ticks and whole levels by the share of launch
+ * points that give the same answer. The fixed-point engine itself must give
+ * the same bits everywhere, which the recorded shot checks.
+ */
+public class FixedPointConformanceTest {
+
+	// the end of the shot in recordedShotIsBitExact, as first recorded
+	static final TickOutcome RecordedOutcome = TickOutcome.FLYING;
+	static final long RecordedTick = 3120;
+	static final long[] RecordedState = { -5408481298634L, 2725639128904L,
+			-3253910063L, -405888714L };
+
+	private static void launch(Level level, double vx, double vy) {
+		level.getBall().setVelocity(vx, vy);
+		level.getBall().setLaunched(true);
+	}
+
+	@Test
+	public void trajectoriesTrackTheDoubleEngine() {
+		Random random = new Random(15);
+		int bounces = 0, warps = 0;
+		for (int n = 0; n < 100; n++) {
+			double angle = random.nextDouble() * 2 * Math.PI;
+			double speed = 0.5 + random.nextDouble();
+			Level doubles = SimulationLevels.obstacleCourse(true);
+			Level fixed = SimulationLevels.obstacleCourse(true);
+			fixed.setFixedPoint(true);
+			launch(doubles, speed * Math.cos(angle), speed * Math.sin(angle));
+			launch(fixed, speed * Math.cos(angle), speed * Math.sin(angle));
+			for (int t = 0; t < 400; t++) {
+				TickOutcome expected = doubles.updateLevel();
+				TickOutcome outcome = fixed.updateLevel();
+				assertEquals(expected, outcome);
+				Ball a = doubles.getBall();
+				Ball b = fixed.getBall();
+				assertEquals(a.getCenterX(), b.getCenterX(), 1e-4);
+				assertEquals(a.getCenterY(), b.getCenterY(), 1e-4);
+				assertEquals(a.getXVelocity(), b.getXVelocity(), 1e-6);
+				assertEquals(a.getYVelocity(), b.getYVelocity(), 1e-6);
+				bounces += (outcome == TickOutcome.BOUNCED) ? 1 : 0;
+				warps += (outcome == TickOutcome.WARPED) ? 1 : 0;
+				if (outcome.endsShot())
+					break;
+			}
+		}
+		assertTrue(bounces > 0);
+		assertTrue(warps > 0);
+	}
+
+	@Test
+	public void stockLevelsGiveTheSameAnswers() throws Exception {
+		URL url = getClass().getResource("/levels/levels.txt");
+		assertNotNull("levels/levels.txt is not on the classpath", url);
+		List<Level> levels = new DataHandler().getLevelData(new File(url
+				.toURI()).getPath());
+		int points = 0, same = 0, wins = 0;
+		for (int i = 0; i < levels.size(); i += 4) {
+			Level level = levels.get(i);
+			level.generateLevelData();
+			Ball ball = level.getBall();
+			for (int dx = -300; dx <= 300; dx += 60) {
+				for (int dy = -300; dy <= 300; dy += 60) {
+					Point2d p = new Point2d(ball.getCenterX() + dx,
+							ball.getCenterY() + dy);
+					level.setFixedPoint(false);
+					boolean expected = level.possibleWin(p, 300);
+					level.setFixedPoint(true);
+					boolean win = level.possibleWin(p, 300);
+					points++;
+					same += (win == expected) ? 1 : 0;
+					wins += win ? 1 : 0;
+				}
+			}
+			level.setFixedPoint(false);
+		}
+		assertTrue(wins > 0);
+		assertTrue(same >= 0.99 * points);
+	}
+
+	@Test
+	public void levelModeMatchesTheSimulation() {
+		Level level = SimulationLevels.obstacleCourse(true);
+		FixedPointSimulation simulation = new FixedPointSimulation(level);
+		level.setFixedPoint(true);
+		launch(level, 1.1, -0.4);
+		simulation.launch(1.1, -0.4);
+		long[] state = new long[4];
+		for (int t = 0; t < 500; t++) {
+			TickOutcome outcome = level.updateLevel();
+			assertEquals(simulation.step(), outcome);
+			simulation.getState(state);
+			assertEquals(FixedPoint.toDouble(state[0]), level.getBall()
+					.getCenterX(), 0);
+			assertEquals(FixedPoint.toDouble(state[3]), level.getBall()
+					.getYVelocity(), 0);
+			assertEquals(simulation.getTick(), level.getTick());
+			if (outcome.endsShot())
+				break;
+		}
+	}
+
+	@Test
+	public void possibleWinLaunchesWithoutAngles() {
+		Level level = SimulationLevels.obstacleCourse(true);
+		level.setFixedPoint(true);
+		FixedPointSimulation simulation = new FixedPointSimulation(level);
+		Ball ball = level.getBall();
+		int wins = 0;
+		for (int dx = -300; dx <= 300; dx += 50) {
+			for (int dy = -300; dy <= 300; dy += 50) {
+				Point2d p = new Point2d(ball.getCenterX() + dx,
+						ball.getCenterY() + dy);
+				if (!level.onScreen(p) || dx == 0 && dy == 0)
+					continue;
+				double distance = Math.sqrt(dx * dx + dy * dy);
+				double scale = Math.min(distance, 250) / distance;
+				boolean expected = simulation.play(dx * scale / 200, dy
+						* scale / 200, 0, level.getTickBudget()) == TickOutcome.GOAL_REACHED;
+				assertEquals(expected, level.possibleWin(p, 250, 0));
+				wins += expected ? 1 : 0;
+			}
+		}
+		assertTrue(wins > 0);
+	}
+
+	@Test
+	public void recordedShotIsBitExact() {
+		FixedPointSimulation simulation = new FixedPointSimulation(
+				SimulationLevels.obstacleCourse(true));
+		TickOutcome outcome = simulation.play(0.9, 0.35, 120, 3000);
+		long[] state = new long[4];
+		simulation.getState(state);
+		assertEquals(RecordedOutcome, outcome);
+		assertEquals(RecordedTick, simulation.getTick());
+		assertArrayEquals(RecordedState, state);
+		simulation.play(0.9, 0.35, 120, 3000);
+		long[] again = new long[4];
+		simulation.getState(again);
+		assertArrayEquals(state, again);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void otherLawsHaveNoFixedPointForm() {
+		Level level = SimulationLevels.obstacleCourse(true);
+		level.setForceField(new ForceField() {
+			@Override
+			public double scale(double distanceSquared, double strength) {
+				return strength / distanceSquared;
+			}
+		});
+		level.setFixedPoint(true);
+	}
+
+}
@@ -0,0 +1,82 @@
+package tests;
+
+import static org.junit.Assert.*;
+import static structures.FixedPoint.*;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for the arithmetic of <code>FixedPoint</code>.
+ */
+public class FixedPointTest {
+
+	@Test
+	public void conversions() {
+		assertEquals(One, fromInt(1));
+		assertEquals(-3 * One, fromDouble(-3.0));
+		assertEquals(One / 4, fromDouble(0.25));
+		Random random = new Random(15);
+		for (int i = 0; i < 1000; i++) {
+			double value = (random.nextDouble() - 0.5) * 4000;
+			long fixed = fromDouble(value);
+			assertEquals(value, toDouble(fixed), 1.0 / One);
+			assertEquals(fixed, fromDouble(toDouble(fixed)));
+		}
+	}
+
+	@Test
+	public void multiplyRoundsTheExactProduct() {
+		Random random = new Random(16);
+		for (int i = 0; i < 10000; i++) {
+			long a = random.nextLong() >> random.nextInt(40);
+			long b = random.nextLong() >> (24 + random.nextInt(40));
+			int shift = 32 + random.nextInt(33);
+			BigInteger exact = BigInteger.valueOf(a).multiply(
+					BigInteger.valueOf(b));
+			BigInteger size = exact.abs().add(BigInteger.ONE.shiftLeft(
+					shift - 1)).shiftRight(shift);
+			if (size.bitLength() > 62)
+				continue;
+			long expected = exact.signum() < 0 ? -size.longValue() : size
+					.longValue();
+			assertEquals(expected, multiply(a, b, shift));
+		}
+		assertEquals(6 * One, multiply(fromInt(2), fromInt(3)));
+		assertEquals(-One / 2, multiply(-One, One / 2));
+	}
+
+	@Test
+	public void divideAndSaturate() {
+		assertEquals(One / 4, divide(One, 4 * One));
+		assertEquals(-3 * One, divide(fromInt(9), fromInt(-3)));
+		assertEquals(Infinity, divide(One, 0));
+		assertEquals(-Infinity, divide(-One, 1));
+		Random random = new Random(17);
+		for (int i = 0; i < 1000; i++) {
+			double a = (random.nextDouble() - 0.5) * 1000;
+			double b = (random.nextDouble() - 0.5) * 1000;
+			if (Math.abs(a / b) >= 1 << 20)
+				continue;
+			assertEquals(a / b, toDouble(divide(fromDouble(a), fromDouble(b))),
+					1e-6);
+		}
+	}
+
+	@Test
+	public void sqrtIsRelativelyExact() {
+		assertEquals(3 * One, sqrt(fromInt(9)));
+		assertEquals(0, sqrt(0));
+		assertEquals(0, sqrt(-One));
+		Random random = new Random(18);
+		for (int i = 0; i < 10000; i++) {
+			long value = random.nextLong() >>> (1 + random.nextInt(62));
+			double exact = Math.sqrt(toDouble(value));
+			assertEquals(exact, toDouble(sqrt(value)), exact * 1e-9 + 1.0
+					/ One);
+		}
+	}
+
+}
@@ -0,0 +1,62 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import structures.CalcHelp;
+import structures.ForceField;
+import structures.Point2d;
+
+/**
+ * Tests for the <code>ForceField</code> laws.
+ */
+public class ForceFieldTest {
+
+	static final double epsilon = 1e-12;
+
+	@Test
+	public void newtonianMatchesAngleForm() {
+		Point2d ball = new Point2d(10, 20);
+		Point2d source = new Point2d(-35, 80);
+		double strength = 1.5 * 60;
+
+		// the old formulation: magnitude from getAcceleration, direction
+		// from getAngle
+		double angle = CalcHelp.getAngle(ball, source);
+		double force = CalcHelp.getAcceleration(ball, source, 60, 1.5);
+		double oldX = Math.cos(angle) * force;
+		double oldY = -Math.sin(angle) * force;
+
+		double[] out = new double[2];
+		ForceField.DEFAULT.accumulate(ball.x(), ball.y(),
+				new double[] { source.x() }, new double[] { source.y() },
+				new double[] { strength }, 1, out);
+		assertEquals(oldX, out[0], epsilon);
+		assertEquals(oldY, out[1], epsilon);
+	}
+
+	@Test
+	public void softenedIsFinite() {
+		ForceField softened = new ForceField.Softened(5);
+		assertFalse(Double.isInfinite(softened.scale(0, 100)));
+		// far from the source it approaches the Newtonian law
+		double d2 = 1e8;
+		assertEquals(ForceField.DEFAULT.scale(d2, 100),
+				softened.scale(d2, 100), 1e-15);
+	}
+
+	@Test
+	public void repulsiveReversesDirection() {
+		ForceField repulsive = new ForceField.Repulsive(ForceField.DEFAULT);
+		assertEquals(-ForceField.DEFAULT.scale(400, 50),
+				repulsive.scale(400, 50), epsilon);
+
+		double[] out = new double[2];
+		repulsive.accumulate(0, 0, new double[] { 10 }, new double[] { 0 },
+				new double[] { 100 }, 1, out);
+		assertTrue(out[0] < 0);
+		assertEquals(0, out[1], epsilon);
+	}
+
+}
@@ -0,0 +1,98 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import structures.ForceField;
+import structures.GravityGrid;
+import structures.Level;
+import editor.LevelSolver;
+
+/**
+ * Tests for the interpolated <code>GravityGrid</code>.
+ */
+public class GravityGridTest {
+
+	static final double[] sourceX = { 200, 520, 700 };
+	static final double[] sourceY = { 300, 180, 450 };
+	static final double[] radius = { 40, 25, 60 };
+	static final double[] strength = { 1.5 * 40, 1.5 * 25, 1.5 * 60 };
+
+	private static GravityGrid makeGrid(double maxError) {
+		return new GravityGrid(sourceX, sourceY, strength, ForceField.DEFAULT,
+				0, 0, 1000, 700, GravityGrid.DefaultSpacing, maxError);
+	}
+
+	private static boolean insideBody(double x, double y) {
+		for (int i = 0; i < sourceX.length; i++) {
+			double dx = x - sourceX[i];
+			double dy = y - sourceY[i];
+			if (dx * dx + dy * dy <= radius[i] * radius[i])
+				return true;
+		}
+		return false;
+	}
+
+	@Test
+	public void errorWithinBound() {
+		double maxError = 1e-5;
+		GravityGrid grid = makeGrid(maxError);
+		double[] exact = new double[2];
+		double[] approx = new double[2];
+		Random random = new Random(3);
+		for (int n = 0; n < 20000; n++) {
+			double x = random.nextDouble() * 1000;
+			double y = random.nextDouble() * 700;
+			if (insideBody(x, y))
+				continue;
+			ForceField.DEFAULT.accumulate(x, y, sourceX, sourceY, strength,
+					sourceX.length, exact);
+			grid.accelerationAt(x, y, approx);
+			// the bound is enforced at check points only, so allow a margin
+			assertEquals(exact[0], approx[0], 1.1 * maxError);
+			assertEquals(exact[1], approx[1], 1.1 * maxError);
+		}
+	}
+
+	@Test
+	public void exactOutsideGrid() {
+		GravityGrid grid = makeGrid(1e-4);
+		double[] exact = new double[2];
+		double[] approx = new double[2];
+		double[][] points = { { -50, 300 }, { 1200, 100 }, { 400, -1 },
+				{ 400, 710 } };
+		for (double[] p : points) {
+			ForceField.DEFAULT.accumulate(p[0], p[1], sourceX, sourceY,
+					strength, sourceX.length, exact);
+			grid.accelerationAt(p[0], p[1], approx);
+			assertEquals(exact[0], approx[0], 0);
+			assertEquals(exact[1], approx[1], 0);
+		}
+	}
+
+	@Test
+	public void refinesNearBodies() {
+		int[] counts = makeGrid(1e-6).getTileCounts();
+		int refined = 0;
+		for (int level = 1; level < counts.length; level++) {
+			refined += counts[level];
+		}
+		assertTrue(counts[0] > 0);
+		assertTrue(refined > 0);
+		assertTrue(makeGrid(1e-6).describes(sourceX, sourceY, strength,
+				ForceField.DEFAULT));
+		assertFalse(makeGrid(1e-6).describes(sourceX, sourceY, strength,
+				new ForceField.Softened(1)));
+	}
+
+	@Test
+	public void solvingWithAGridKeepsTheLevelExact() {
+		Level level = SolverLevels.cornerLevel();
+		assertFalse(LevelSolver.getSolutionSet(level, 1e-4, 2).isEmpty());
+		assertNull(level.getGravityGrid());
+	}
+
+}
@@ -0,0 +1,63 @@
+package tests;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import structures.*;
+
+/**
+ * Benchmark for the per-tick cost of the gravity sum as a level grows.
+ * Builds asteroid fields with an increasing number of small bodies and
+ * times updateLevel with direct summation and with the Barnes-Hut trees.
+ * <p>
+ * Usage: GravityTreeBenchmark [ticks]
+ */
+public class GravityTreeBenchmark {
+
+	private static final int Rounds = 3;
+
+	private static Level makeLevel(int bodies, double openingAngle) {
+		Random random = new Random(bodies);
+		List<Body> asteroids = new ArrayList<Body>();
+		for (int i = 0; i < bodies; i++) {
+			// keep the band the ball flies through clear
+			int x = random.nextInt(4000) - 1500;
+			int y = random.nextBoolean() ? random.nextInt(250) : 450 + random
+					.nextInt(250);
+			asteroids.add(new Body(x, y, 2 + random.nextInt(4), Color.gray));
+		}
+		Ball ball = new Ball(100, 350, 3);
+		Level level = new Level(ball, asteroids, null, null, null, 5.0, 1e-6);
+		level.setGravityTreeAngle(openingAngle);
+		ball.setVelocity(0.001, 0);
+		ball.setLaunched(true);
+		return level;
+	}
+
+	private static double time(Level level, int ticks) {
+		long start = System.nanoTime();
+		for (int t = 0; t < ticks; t++) {
+			level.updateLevel();
+		}
+		return (System.nanoTime() - start) / (double) ticks;
+	}
+
+	public static void main(String[] args) {
+		int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		int[] sizes = { 10, 100, 1000, 10000 };
+		for (int round = 0; round < Rounds; round++) {
+			StringBuilder line = new StringBuilder("round " + round + ":");
+			for (int size : sizes) {
+				double direct = time(makeLevel(size, 0), ticks);
+				double tree = time(makeLevel(size,
+						GravityTree.DefaultOpeningAngle), ticks);
+				line.append(String.format(
+						" %d bodies %.1f / %.1f ns/tick;", size, direct, tree));
+			}
+			System.out.println(line);
+		}
+	}
+
+}
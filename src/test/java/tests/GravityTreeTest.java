@@ -0,0 +1,138 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import structures.*;
+
+/**
+ * Tests for the Barnes-Hut <code>GravityTree</code>.
+ */
+public class GravityTreeTest {
+
+	static final int Sources = 2000;
+
+	static final double[] sourceX = new double[Sources];
+	static final double[] sourceY = new double[Sources];
+	static final double[] strength = new double[Sources];
+
+	static {
+		Random random = new Random(11);
+		for (int i = 0; i < Sources; i++) {
+			sourceX[i] = random.nextDouble() * 3000;
+			sourceY[i] = random.nextDouble() * 2000;
+			strength[i] = 0.5 + random.nextDouble() * 10;
+		}
+	}
+
+	/**
+	 * The mean error relative to the size of the exact acceleration. Single
+	 * points can do much worse where the pulls nearly cancel.
+	 */
+	private static double relativeError(GravityTree tree) {
+		Random random = new Random(5);
+		double[] exact = new double[2];
+		double[] approx = new double[2];
+		double sum = 0;
+		for (int n = 0; n < 2000; n++) {
+			double x = random.nextDouble() * 3000;
+			double y = random.nextDouble() * 2000;
+			ForceField.DEFAULT.accumulate(x, y, sourceX, sourceY, strength,
+					Sources, exact);
+			tree.accelerationAt(x, y, approx);
+			double error = Math.hypot(exact[0] - approx[0], exact[1]
+					- approx[1]);
+			sum += error / Math.hypot(exact[0], exact[1]);
+		}
+		return sum / 2000;
+	}
+
+	@Test
+	public void zeroAngleIsExact() {
+		GravityTree tree = new GravityTree(sourceX, sourceY, strength,
+				Sources, ForceField.DEFAULT, 0);
+		assertEquals(Sources, tree.size());
+		assertEquals(0, relativeError(tree), 1e-9);
+	}
+
+	@Test
+	public void errorShrinksWithAngle() {
+		double coarse = relativeError(new GravityTree(sourceX, sourceY,
+				strength, Sources, ForceField.DEFAULT, 1.0));
+		double fine = relativeError(new GravityTree(sourceX, sourceY,
+				strength, Sources, ForceField.DEFAULT, 0.3));
+		assertTrue(fine < coarse);
+		assertTrue(fine < 0.01);
+	}
+
+	@Test
+	public void rebuildReplacesSources() {
+		GravityTree tree = new GravityTree(ForceField.DEFAULT, 0.5);
+		double[] out = new double[2];
+		tree.accelerationAt(10, 10, out);
+		assertEquals(0, out[0], 0);
+		assertEquals(0, out[1], 0);
+		tree.build(sourceX, sourceY, strength, Sources);
+		double[] x = { 100 }, y = { 100 }, s = { 50 };
+		tree.build(x, y, s, 1);
+		assertEquals(1, tree.size());
+		tree.accelerationAt(100, 90, out);
+		assertEquals(0, out[0], 0);
+		assertEquals(50.0 / 100, out[1], 1e-12);
+	}
+
+	@Test
+	public void coincidentSourcesStopAtMaxDepth() {
+		double[] x = new double[100], y = new double[100], s = new double[100];
+		for (int i = 0; i < 100; i++) {
+			x[i] = (i == 0) ? 0 : 500;
+			y[i] = 500;
+			s[i] = 1;
+		}
+		GravityTree tree = new GravityTree(x, y, s, 100, ForceField.DEFAULT,
+				0.5);
+		double[] out = new double[2];
+		tree.accelerationAt(500, 400, out);
+		assertEquals(99.0 / 10000, out[1], 1e-6);
+	}
+
+	@Test
+	public void levelTracksDirectSum() {
+		Level direct = makeAsteroidLevel();
+		Level tree = makeAsteroidLevel();
+		tree.setGravityTreeAngle(GravityTree.DefaultOpeningAngle);
+		for (int i = 0; i < 200; i++) {
+			direct.updateLevel();
+			tree.updateLevel();
+		}
+		Ball a = direct.getBall();
+		Ball b = tree.getBall();
+		assertEquals(a.getCenterX(), b.getCenterX(), 1);
+		assertEquals(a.getCenterY(), b.getCenterY(), 1);
+		assertTrue(direct.getBall().getCenterX() != 100);
+	}
+
+	/** A field of small asteroids above and below the ball's path. */
+	private static Level makeAsteroidLevel() {
+		Random random = new Random(2);
+		List<Body> bodies = new ArrayList<Body>();
+		for (int i = 0; i < 500; i++) {
+			int x = random.nextInt(2000);
+			int y = random.nextBoolean() ? random.nextInt(250) : 450 + random
+					.nextInt(250);
+			bodies.add(new Body(x, y, 2 + random.nextInt(4), Color.gray));
+		}
+		Ball ball = new Ball(100, 350, 3);
+		Level level = new Level(ball, bodies, null, null, null, 5.0, 0.02);
+		ball.setVelocity(2, 0);
+		ball.setLaunched(true);
+		return level;
+	}
+
+}
@@ -0,0 +1,123 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import structures.*;
+import editor.IncrementalSolver;
+import editor.LevelSolver;
+import editor.SolutionSet;
+import editor.SolveHandle;
+
+/**
+ * Tests that <code>IncrementalSolver</code> agrees with LevelSolver after
+ * edits.
+ */
+public class IncrementalSolverTest {
+
+	@Test
+	public void movingAGoalFliesOnlyTheShotsNearIt() {
+		IncrementalSolver solver = new IncrementalSolver();
+		solver.solve(SolverLevels.cornerLevel(), 2);
+		int all = solver.getShotsFlown();
+		Level edited = SolverLevels.cornerLevel(380, 150, 1.0);
+		SolutionSet found = solver.solve(edited, 2);
+		SolutionSet exact = LevelSolver.getSolutionSet(edited, 0, 2);
+		assertFalse(exact.isEmpty());
+		assertEquals(exact, found);
+		assertTrue(solver.getShotsFlown() > 0);
+		assertTrue(solver.getShotsFlown() < all);
+	}
+
+	@Test
+	public void unchangedLevelFliesNothing() {
+		IncrementalSolver solver = new IncrementalSolver();
+		SolutionSet first = solver.solve(SolverLevels.cornerLevel(), 2);
+		assertEquals(first, solver.solve(SolverLevels.cornerLevel(), 2));
+		assertEquals(0, solver.getShotsFlown());
+	}
+
+	@Test
+	public void changedConstantsSolveAgain() {
+		IncrementalSolver solver = new IncrementalSolver();
+		solver.solve(SolverLevels.cornerLevel(), 2);
+		int all = solver.getShotsFlown();
+		Level edited = SolverLevels.cornerLevel(400, 120, 1.5);
+		assertEquals(LevelSolver.getSolutionSet(edited, 0, 2), solver.solve(
+				edited, 2));
+		assertEquals(all, solver.getShotsFlown());
+	}
+
+	@Test
+	public void movingABodyFliesEveryShot() {
+		IncrementalSolver solver = new IncrementalSolver();
+		Level level = SolverLevels.cornerLevel();
+		solver.solve(level, 2);
+		int all = solver.getShotsFlown();
+		List<Body> bodies = new ArrayList<Body>();
+		bodies.add(new Body(255, 195, 40, Color.blue));
+		Level edited = new Level(new Ball(40, 40, 3), bodies, null, level
+				.getGoalPosts(), null, 0, 1.0);
+		assertEquals(LevelSolver.getSolutionSet(edited, 0, 2), solver.solve(
+				edited, 2));
+		assertEquals(all, solver.getShotsFlown());
+	}
+
+	@Test
+	public void addingABlockageFliesTheShotsItBlocks() {
+		// straight shots at a goal, then a long wall whose end is in the way
+		List<GoalPost> goals = new ArrayList<GoalPost>();
+		goals.add(new GoalPost(330, 115, 20));
+		IncrementalSolver solver = new IncrementalSolver();
+		SolutionSet before = solver.solve(new Level(new Ball(40, 40, 3),
+				null, null, goals, null, 0, 1.0), 2);
+		List<Blockage> blockages = new ArrayList<Blockage>();
+		blockages.add(new Blockage(300, 200, 2, 100, Color.white));
+		Level edited = new Level(new Ball(40, 40, 3), null, null, goals,
+				blockages, 0, 1.0);
+		SolutionSet exact = LevelSolver.getSolutionSet(edited, 0, 2);
+		assertTrue(exact.size() < before.size());
+		assertEquals(exact, solver.solve(edited, 2));
+	}
+
+	@Test
+	public void backgroundSolvesAgree() throws InterruptedException {
+		IncrementalSolver solver = new IncrementalSolver();
+		assertEquals(LevelSolver.getSolutionSet(SolverLevels.cornerLevel(), 0,
+				2), solver.solveAsync(SolverLevels.cornerLevel(), 2, null)
+				.await());
+		int all = solver.getShotsFlown();
+		Level edited = SolverLevels.cornerLevel(380, 150, 1.0);
+		assertEquals(LevelSolver.getSolutionSet(edited, 0, 2), solver
+				.solveAsync(edited, 2, null).await());
+		assertTrue(solver.getShotsFlown() < all);
+	}
+
+	@Test
+	public void replacedSolvesAreNotKept() throws InterruptedException {
+		IncrementalSolver solver = new IncrementalSolver();
+		solver.solve(SolverLevels.cornerLevel(), 2);
+		SolveHandle stale = solver.solveAsync(SolverLevels.cornerLevel(380, 150, 1.0), 1,
+				null);
+		Level edited = SolverLevels.cornerLevel(360, 180, 1.0);
+		SolveHandle handle = solver.solveAsync(edited, 2, null);
+		assertTrue(stale.isCancelled());
+		stale.await();
+		assertEquals(LevelSolver.getSolutionSet(edited, 0, 2), handle.await());
+		// the next edit is compared with the version solved last
+		assertEquals(LevelSolver.getSolutionSet(edited, 0, 2), solver.solve(
+				edited, 2));
+		assertEquals(0, solver.getShotsFlown());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void thresholdIsNotNegative() {
+		new IncrementalSolver(-1);
+	}
+
+}
@@ -0,0 +1,117 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import structures.*;
+
+/**
+ * Tests for the ball <code>Integrator</code>s.
+ */
+public class IntegratorTest {
+
+	static final double Strength = 100;
+	static final double OrbitRadius = 100;
+
+	/** A single Newtonian source at the origin. */
+	static final Integrator.Field pointMass = new Integrator.Field() {
+		public void accelerationAt(double x, double y, double time,
+				double[] out) {
+			double k = ForceField.DEFAULT.scale(x * x + y * y, Strength);
+			out[0] = -k * x;
+			out[1] = -k * y;
+		}
+	};
+
+	/**
+	 * Flies one circular orbit and returns how far the ball ends up from its
+	 * starting point.
+	 */
+	private static double orbitError(Integrator integrator, double dt) {
+		double speed = Math.sqrt(Strength / OrbitRadius);
+		double period = 2 * Math.PI * OrbitRadius / speed;
+		double[] state = { OrbitRadius, 0, 0, speed };
+		double[] out = new double[2];
+		int steps = (int) Math.round(period / dt);
+		double h = period / steps;
+		double t = 0;
+		for (int i = 0; i < steps; i++) {
+			pointMass.accelerationAt(state[0], state[1], t, out);
+			integrator.step(state, t, h, out[0], out[1], pointMass, out);
+			t += h;
+		}
+		return Math.hypot(state[0] - OrbitRadius, state[1]);
+	}
+
+	@Test
+	public void higherOrderIsMoreAccurate() {
+		double euler = orbitError(Integrator.EULER, 1.0);
+		double verlet = orbitError(Integrator.VERLET, 1.0);
+		double rk4 = orbitError(Integrator.RK4, 1.0);
+		assertTrue(verlet < euler);
+		assertTrue(rk4 < verlet);
+		// halving the step: second and fourth order convergence
+		assertEquals(4, verlet / orbitError(Integrator.VERLET, 0.5), 1);
+		assertEquals(16, rk4 / orbitError(Integrator.RK4, 0.5), 4);
+	}
+
+	@Test
+	public void adaptiveStepBounds() {
+		assertEquals(8, Integrator.adaptiveStep(0, 0, 0.1, 0.25, 8), 0);
+		assertEquals(0.25, Integrator.adaptiveStep(1e6, 0, 0.1, 0.25, 8), 0);
+		// a * dt^2 / 2 == tolerance
+		double dt = Integrator.adaptiveStep(0.003, 0.004, 0.1, 0.25, 8);
+		assertEquals(0.1, 0.005 * dt * dt / 2, 1e-12);
+	}
+
+	private static Level makeLevel() {
+		List<Body> bodies = new ArrayList<Body>();
+		bodies.add(SimulationLevels.moonPlanet());
+		return SimulationLevels.launchedLevel(bodies, 1.5);
+	}
+
+	@Test
+	public void adaptiveLevelTracksFixedSteps() {
+		Level fixed = makeLevel();
+		Level adaptive = makeLevel();
+		adaptive.setIntegrator(Integrator.VERLET, 0.05, 4);
+		for (int i = 0; i < 300; i++) {
+			fixed.updateLevel();
+		}
+		int steps = 0;
+		while (adaptive.getTime() < 300) {
+			adaptive.advance();
+			steps++;
+		}
+		assertTrue(steps < 300);
+		// stop at the same time for the comparison
+		Level check = makeLevel();
+		check.setIntegrator(Integrator.VERLET, 0.05, 4);
+		for (int i = 0; i < 300; i++) {
+			check.updateLevel();
+		}
+		assertEquals(300, check.getTime(), 1e-9);
+		Ball a = fixed.getBall();
+		Ball b = check.getBall();
+		assertEquals(a.getCenterX(), b.getCenterX(), 5);
+		assertEquals(a.getCenterY(), b.getCenterY(), 5);
+	}
+
+	@Test
+	public void defaultAdvanceIsUpdateLevel() {
+		Level a = makeLevel();
+		Level b = makeLevel();
+		for (int i = 0; i < 500; i++) {
+			assertEquals(a.updateLevel(), b.advance());
+			assertEquals(i + 1, b.getTime(), 0);
+		}
+		assertEquals(a.getBall().getCenterX(), b.getBall().getCenterX(), 0);
+		assertEquals(a.getBall().getCenterY(), b.getBall().getCenterY(), 0);
+		assertEquals(500, a.getTick());
+	}
+
+}
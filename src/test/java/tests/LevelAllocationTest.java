@@ -0,0 +1,61 @@
+package tests;
+
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import structures.*;
+
+/**
+ * Verifies that stepping a level does not allocate once the JIT has warmed
+ * up, using the per-thread allocation counter of the HotSpot ThreadMXBean.
+ */
+public class LevelAllocationTest {
+
+	static final int WarmupTicks = 200000;
+	static final int MeasuredTicks = 100000;
+
+	private static long allocatedBytes() {
+		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private static Level makeLevel() {
+		List<Body> bodies = new ArrayList<Body>();
+		Body planet = SimulationLevels.moonPlanet();
+		planet.addMoon(new Moon(200, 220, 15, Color.gray, planet));
+		bodies.add(planet);
+		bodies.add(new Body(850, 150, 40, Color.green, 80));
+		return SimulationLevels.launchedLevel(bodies, 1.0);
+	}
+
+	private static void run(Level level, int ticks) {
+		for (int i = 0; i < ticks; i++) {
+			level.updateLevel();
+			level.timeToReset();
+			level.inGoalPost();
+		}
+	}
+
+	@Test
+	public void updateLevelDoesNotAllocate() {
+		Level level = makeLevel();
+		run(level, WarmupTicks);
+
+		// the counter query itself may allocate a little, so measure it
+		long overhead = -(allocatedBytes() - allocatedBytes());
+		long before = allocatedBytes();
+		run(level, MeasuredTicks);
+		long allocated = allocatedBytes() - before - overhead;
+
+		assertTrue("updateLevel allocated " + allocated + " bytes over "
+				+ MeasuredTicks + " ticks", allocated < MeasuredTicks / 10);
+	}
+
+}
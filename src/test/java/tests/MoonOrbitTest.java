@@ -0,0 +1,105 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import structures.*;
+
+/**
+ * Tests for the tabulated moon orbits and the level tick.
+ */
+public class MoonOrbitTest {
+
+	static final double g = 1.5;
+
+	@Test
+	public void orbitIsPeriodic() {
+		Body planet = new Body(500, 350, 60, Color.blue);
+		Moon moon = new Moon(45, 150, 10, Color.gray, planet);
+		Moon.Orbit orbit = moon.getOrbit(g);
+		int period = orbit.getPeriod();
+		assertEquals(2 * Math.PI / moon.getAngularStep(g), period, 0.5);
+
+		// tick 0 is the starting position
+		assertEquals(moon.getCenterX(), orbit.getX(0), 1e-9);
+		assertEquals(moon.getCenterY(), orbit.getY(0), 1e-9);
+		for (long t = 0; t < period; t += 37) {
+			assertEquals(orbit.getX(t), orbit.getX(t + 5L * period), 0);
+			assertEquals(orbit.getY(t), orbit.getY(t + 5L * period), 0);
+			double dx = orbit.getX(t) - 500;
+			double dy = orbit.getY(t) - 350;
+			assertEquals(150, Math.hypot(dx, dy), 1e-9);
+		}
+		assertSame(orbit, moon.getOrbit(g));
+	}
+
+	@Test
+	public void orbitMatchesStepping() {
+		Body planet = new Body(500, 350, 60, Color.blue);
+		Moon moon = new Moon(100, 200, 15, Color.gray, planet);
+		Moon.Orbit orbit = moon.getOrbit(g);
+		double step = moon.getAngularStep(g);
+		double angle = Math.toRadians(100);
+		// the rounded step may drift by at most half a tick per revolution
+		double drift = 200 * Math.PI / orbit.getPeriod();
+		for (int t = 1; t <= orbit.getPeriod(); t++) {
+			angle -= step;
+			assertEquals(500 + Math.cos(angle) * 200, orbit.getX(t), drift);
+			assertEquals(350 - Math.sin(angle) * 200, orbit.getY(t), drift);
+		}
+	}
+
+	@Test
+	public void slowOrbitsKeepTheirSpeed() {
+		Body planet = new Body(500, 350, 60, Color.blue);
+		Moon moon = new Moon(100, 200, 15, Color.gray, planet);
+		double slow = 1e-9;
+		Moon.Orbit orbit = moon.getOrbit(slow);
+		double step = moon.getAngularStep(slow);
+		assertTrue(2 * Math.PI / step > Moon.MaxPeriod);
+		assertEquals(0, orbit.getPeriod());
+
+		double[] position = new double[2];
+		for (long t = 0; t < 5L * Moon.MaxPeriod; t += 123457) {
+			double angle = Math.toRadians(100) - t * step;
+			assertEquals(500 + Math.cos(angle) * 200, orbit.getX(t), 1e-9);
+			assertEquals(350 - Math.sin(angle) * 200, orbit.getY(t), 1e-9);
+			orbit.positionAt(t + 0.5, position);
+			angle -= step / 2;
+			assertEquals(500 + Math.cos(angle) * 200, position[0], 1e-9);
+			assertEquals(350 - Math.sin(angle) * 200, position[1], 1e-9);
+		}
+	}
+
+	@Test
+	public void simulationDoesNotMoveSharedMoons() {
+		Ball ball = new Ball(100, 100, 3);
+		List<Body> bodies = new ArrayList<Body>();
+		Body planet = new Body(500, 350, 60, Color.blue);
+		Moon moon = new Moon(45, 150, 10, Color.gray, planet);
+		planet.addMoon(moon);
+		bodies.add(planet);
+		Level level = new Level(ball, bodies, null, null, null, 5.0, g);
+		double x = moon.getCenterX();
+		double y = moon.getCenterY();
+
+		level.possibleWin(new Point2d(300, 200), 300, 1000);
+		for (int i = 0; i < 50; i++) {
+			level.updateLevel();
+		}
+		assertEquals(50, level.getTick());
+		assertEquals(x, moon.getCenterX(), 0);
+		assertEquals(y, moon.getCenterY(), 0);
+
+		level.placeMoons();
+		Moon.Orbit orbit = moon.getOrbit(g);
+		assertEquals(orbit.getX(50), moon.getCenterX(), 0);
+		assertEquals(orbit.getY(50), moon.getCenterY(), 0);
+	}
+
+}
@@ -0,0 +1,51 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import structures.*;
+import editor.LevelSolver;
+import editor.PolarSolver;
+
+/**
+ * Tests that <code>PolarSolver</code> agrees with LevelSolver.
+ */
+public class PolarSolverTest {
+
+	@Test
+	public void samplesFindTheRegions() {
+		Level level = SolverLevels.cornerLevel();
+		Set<Point> exact = new HashSet<Point>(LevelSolver.getSolutionSet(
+				level, 0, 2));
+		PolarSolver solver = new PolarSolver(level,
+				PolarSolver.DefaultAngles, PolarSolver.DefaultMagnitudes,
+				PolarSolver.DefaultMargin);
+		List<Point> solutions = new ArrayList<Point>(solver.solve(2));
+		Set<Point> found = new HashSet<Point>(solutions);
+		assertEquals(found.size(), solutions.size());
+		int differences = 0;
+		for (Point p : exact) {
+			differences += found.contains(p) ? 0 : 1;
+		}
+		for (Point p : found) {
+			differences += exact.contains(p) ? 0 : 1;
+		}
+		assertFalse(exact.isEmpty());
+		assertTrue(differences <= exact.size() / 100);
+		// the quarter of the launch disc on screen
+		assertTrue(solver.getShotsFlown() < Math.PI * 300 * 300 / 4);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void needsTwoMagnitudes() {
+		new PolarSolver(SolverLevels.cornerLevel(), 16, 1, 0);
+	}
+
+}
@@ -0,0 +1,82 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import structures.*;
+import editor.LevelSolver;
+import editor.ShardedSolver;
+import editor.SolutionSet;
+
+/**
+ * Tests that <code>ShardedSolver</code> agrees with LevelSolver and resumes
+ * from its finished tiles.
+ */
+public class ShardedSolverTest {
+
+	static final String dir = "testFiles/shards/";
+
+	@Before
+	public void setup() {
+		delete(new File(dir));
+		new File(dir).mkdirs();
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	@Test
+	public void resumesFromFinishedTiles() throws IOException {
+		Level level = SolverLevels.cornerLevel();
+		List<Level> levels = Arrays.asList(level);
+		List<Integer> numbers = Arrays.asList(1);
+		File out = new File(dir + "resume");
+		out.mkdirs();
+		int tiles = ShardedSolver.tileCount(level);
+		assertTrue(tiles > 1);
+		assertEquals(tiles, ShardedSolver.work(levels, numbers, out, 2));
+		assertEquals(0, ShardedSolver.work(levels, numbers, out, 2));
+
+		// a crash lost a tile
+		assertTrue(new File(out, "level1.tiles/tile1.bin").delete());
+		assertNull(ShardedSolver.merge(level, 1, out));
+		assertEquals(1, ShardedSolver.work(levels, numbers, out, 2));
+
+		SolutionSet exact = LevelSolver.getSolutionSet(level, 0, 2);
+		assertEquals(exact, ShardedSolver.merge(level, 1, out));
+		List<java.awt.Point> loaded = new ArrayList<java.awt.Point>(
+				LevelSolver.loadSolutionSet(new File(out, "level1.bin")
+						.getPath()));
+		assertEquals(new ArrayList<java.awt.Point>(exact), loaded);
+	}
+
+	@Test
+	public void skipsClaimedTiles() throws IOException {
+		Level level = SolverLevels.cornerLevel();
+		File out = new File(dir + "claimed");
+		new File(out, "level1.tiles").mkdirs();
+		File lock = new File(out, "level1.tiles/tile0.lock");
+		lock.createNewFile();
+		lock.setLastModified(System.currentTimeMillis());
+		int tiles = ShardedSolver.tileCount(level);
+		assertEquals(tiles - 1, ShardedSolver.work(Arrays.asList(level),
+				Arrays.asList(1), out, 2));
+		assertNull(ShardedSolver.merge(level, 1, out));
+	}
+
+}
@@ -0,0 +1,190 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import structures.*;
+
+/**
+ * Tests that <code>ShotBatch</code> agrees with Level.possibleWin.
+ */
+public class ShotBatchTest {
+
+	static final double Max = 300;
+
+	/** A level with a moon, a blockage, a pair of warps and two goals. */
+	private static Level makeLevel() {
+		List<Body> bodies = new ArrayList<Body>();
+		Body planet = new Body(500, 350, 50, Color.blue);
+		planet.addMoon(new Moon(30, 120, 10, Color.gray, planet));
+		bodies.add(planet);
+		bodies.add(new Body(250, 550, 25, Color.red));
+		List<Blockage> blockages = new ArrayList<Blockage>();
+		blockages.add(new Blockage(700, 450, 20, 150, Color.white));
+		List<WarpPoint> warps = new ArrayList<WarpPoint>();
+		warps.add(new WarpPoint(300, 150));
+		warps.add(new WarpPoint(850, 600));
+		List<GoalPost> goals = new ArrayList<GoalPost>();
+		goals.add(new GoalPost(800, 250, 15));
+		goals.add(new GoalPost(650, 600, 15));
+		return new Level(new Ball(150, 350, 3), bodies, warps, goals,
+				blockages, 1.0, 1.0);
+	}
+
+	private static List<Point2d> launchPoints(int n) {
+		Random random = new Random(14);
+		List<Point2d> points = new ArrayList<Point2d>();
+		for (int i = 0; i < n; i++) {
+			points.add(new Point2d(random.nextDouble() * 400 - 50, random
+					.nextDouble() * 700));
+		}
+		return points;
+	}
+
+	private static void assertMatches(Level level, ShotBatch batch,
+			List<Point2d> points) {
+		BitSet wins = batch.possibleWins(points);
+		for (int i = 0; i < points.size(); i++) {
+			assertEquals("point " + i, level.possibleWin(points.get(i), Max),
+					wins.get(i));
+		}
+	}
+
+	@Test
+	public void matchesPossibleWin() {
+		Level level = makeLevel();
+		level.setTickBudget(3000);
+		List<Point2d> points = launchPoints(1500);
+		BitSet wins = new ShotBatch(level, Max).possibleWins(points);
+		assertTrue(wins.cardinality() > 0);
+		assertMatches(level, new ShotBatch(level, Max), points);
+	}
+
+	@Test
+	public void laneCountDoesNotMatter() {
+		Level level = makeLevel();
+		level.setTickBudget(3000);
+		List<Point2d> points = launchPoints(300);
+		BitSet wide = new ShotBatch(level, Max).possibleWins(points);
+		BitSet narrow = new ShotBatch(level, Max, level.getTick(), 7)
+				.possibleWins(points);
+		assertEquals(wide, narrow);
+	}
+
+	@Test
+	public void laterStartTickMovesTheMoon() {
+		Level level = makeLevel();
+		level.setTickBudget(3000);
+		List<Point2d> points = launchPoints(300);
+		BitSet wins = new ShotBatch(level, Max, 400, 64).possibleWins(points);
+		for (int i = 0; i < points.size(); i++) {
+			assertEquals(level.possibleWin(points.get(i), Max, 400),
+					wins.get(i));
+		}
+	}
+
+	@Test
+	public void endingsTellHowShotsMissed() {
+		Level level = makeLevel();
+		level.setTickBudget(3000);
+		List<Point2d> points = launchPoints(600);
+		ShotEnding[] endings = new ShotEnding[points.size()];
+		int[] crashed = new int[points.size()];
+		new ShotBatch(level, Max).shotEndings(points, endings, crashed, null);
+		BitSet wins = new ShotBatch(level, Max).possibleWins(points);
+		BitSet kinds = new BitSet();
+		for (int i = 0; i < points.size(); i++) {
+			assertEquals(wins.get(i), endings[i] == ShotEnding.WON);
+			assertTrue(endings[i] != ShotEnding.MISSED);
+			if (endings[i] == ShotEnding.CRASHED) {
+				// the planet, its moon and the second body
+				assertTrue(crashed[i] >= 0 && crashed[i] < 3);
+				kinds.set(ShotEnding.values().length + crashed[i]);
+			} else {
+				assertEquals(-1, crashed[i]);
+				kinds.set(endings[i].ordinal());
+			}
+		}
+		assertTrue(kinds.cardinality() >= 4);
+	}
+
+	@Test
+	public void boundsHoldThePaths() {
+		Level level = makeLevel();
+		level.setTickBudget(3000);
+		List<Point2d> points = launchPoints(300);
+		ShotEnding[] endings = new ShotEnding[points.size()];
+		float[] bounds = new float[4 * points.size()];
+		new ShotBatch(level, Max).shotEndings(points, endings, null, bounds);
+		ShotEnding[] plain = new ShotEnding[points.size()];
+		new ShotBatch(level, Max).shotEndings(points, plain);
+		assertArrayEquals(plain, endings);
+		double x = level.getBall().getCenterX();
+		double y = level.getBall().getCenterY();
+		for (int i = 0; i < points.size(); i++) {
+			if (endings[i] == ShotEnding.OFF_SCREEN) {
+				assertTrue(bounds[4 * i] > bounds[4 * i + 2]);
+				continue;
+			}
+			// every path starts at the ball
+			assertTrue(bounds[4 * i] <= x && x <= bounds[4 * i + 2]);
+			assertTrue(bounds[4 * i + 1] <= y && y <= bounds[4 * i + 3]);
+			if (endings[i] == ShotEnding.WON) {
+				GoalPost goal = level.getGoalPosts().get(0);
+				GoalPost other = level.getGoalPosts().get(1);
+				assertTrue(reaches(bounds, i, goal) || reaches(bounds, i, other));
+			}
+		}
+	}
+
+	@Test
+	public void boundsHoldTheBounces() {
+		// shots straight at a wall, bouncing off it between two ticks
+		List<Blockage> blockages = new ArrayList<Blockage>();
+		blockages.add(new Blockage(300, 350, 10, 100, Color.white));
+		Level level = new Level(new Ball(100, 350, 3), null, null, null,
+				blockages, 1.0, 1.0);
+		level.setTickBudget(400);
+		List<Point2d> points = new ArrayList<Point2d>();
+		for (int i = 0; i < 50; i++) {
+			points.add(new Point2d(201.3 + 4 * i, 340 + 0.4 * i));
+		}
+		ShotEnding[] endings = new ShotEnding[points.size()];
+		float[] bounds = new float[4 * points.size()];
+		new ShotBatch(level, Max).shotEndings(points, endings, null, bounds);
+		// the center of the ball bounces off the face of the box
+		double face = blockages.get(0).getDrawX();
+		for (int i = 0; i < points.size(); i++) {
+			assertTrue("point " + i, bounds[4 * i + 2] >= face);
+		}
+	}
+
+	private static boolean reaches(float[] bounds, int i, GoalPost goal) {
+		double r = goal.getRadius() + 3;
+		return bounds[4 * i] <= goal.getCenterX() + r
+				&& bounds[4 * i + 2] >= goal.getCenterX() - r
+				&& bounds[4 * i + 1] <= goal.getCenterY() + r
+				&& bounds[4 * i + 3] >= goal.getCenterY() - r;
+	}
+
+	@Test
+	public void adaptiveStepsFallBack() {
+		Level level = makeLevel();
+		level.setTickBudget(2000);
+		level.setIntegrator(Integrator.RK4, 0.5, 4);
+		assertMatches(level, new ShotBatch(level, Max), launchPoints(100));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void needsALane() {
+		new ShotBatch(makeLevel(), Max, 0, 0);
+	}
+
+}
@@ -0,0 +1,75 @@
+package tests;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+
+import structures.Ball;
+import structures.Blockage;
+import structures.Body;
+import structures.GoalPost;
+import structures.Level;
+import structures.Moon;
+import structures.Vector2d;
+import structures.WarpPoint;
+
+/**
+ * The levels the simulation tests fly balls through.
+ */
+class SimulationLevels {
+
+	/**
+	 * Returns a level with a planet and its moon, a blockage, a pair of warps
+	 * and a goal, with the ball resting at (120, 350).
+	 */
+	static Level obstacleCourse() {
+		return obstacleCourse(false);
+	}
+
+	/**
+	 * Returns the obstacle course, with a reflector after the planet if asked
+	 * for.
+	 */
+	static Level obstacleCourse(boolean reflector) {
+		List<Body> bodies = new ArrayList<Body>();
+		Body planet = new Body(500, 350, 40, Color.blue);
+		planet.addMoon(new Moon(60, 110, 8, Color.gray, planet));
+		bodies.add(planet);
+		if (reflector) {
+			Body r = new Body(300, 550, 30, Color.white);
+			r.setReflector(true);
+			bodies.add(r);
+		}
+		List<Blockage> blockages = new ArrayList<Blockage>();
+		blockages.add(new Blockage(750, 350, 20, 300, Color.orange));
+		List<WarpPoint> warps = new ArrayList<WarpPoint>();
+		warps.add(new WarpPoint(250, 150));
+		warps.add(new WarpPoint(850, 600));
+		List<GoalPost> goals = new ArrayList<GoalPost>();
+		goals.add(new GoalPost(650, 150, 15));
+		return new Level(new Ball(120, 350, 3), bodies, warps, goals,
+				blockages, 1.0, 1.0);
+	}
+
+	/**
+	 * Returns a large planet at (500, 350) with a moon.
+	 */
+	static Body moonPlanet() {
+		Body planet = new Body(500, 350, 60, Color.blue);
+		planet.addMoon(new Moon(45, 150, 10, Color.gray, planet));
+		return planet;
+	}
+
+	/**
+	 * Returns a level of the given bodies whose ball is launched from
+	 * (100, 100) with a velocity of (1.5, 0.3).
+	 */
+	static Level launchedLevel(List<Body> bodies, double gravity) {
+		Ball ball = new Ball(100, 100, 3);
+		Level level = new Level(ball, bodies, null, null, null, 5.0, gravity);
+		ball.setVelocity(new Vector2d(1.5, 0.3));
+		ball.setLaunched(true);
+		return level;
+	}
+
+}
@@ -0,0 +1,107 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import structures.*;
+
+/**
+ * Tests for <code>SimulationState</code> and the levels made by
+ * Level.newSimulation.
+ */
+public class SimulationStateTest {
+
+	@Test
+	public void restoringRepeatsTheShot() {
+		Level level = SimulationLevels.obstacleCourse();
+		level.getBall().setVelocity(1.1, -0.2);
+		level.getBall().setLaunched(true);
+		for (int t = 0; t < 150; t++) {
+			level.updateLevel();
+		}
+		SimulationState saved = level.saveState();
+		double[] x = new double[300], y = new double[300];
+		TickOutcome[] outcomes = new TickOutcome[300];
+		for (int t = 0; t < 300; t++) {
+			outcomes[t] = level.updateLevel();
+			x[t] = level.getBall().getCenterX();
+			y[t] = level.getBall().getCenterY();
+		}
+		level.restoreState(saved);
+		assertEquals(saved.getTick(), level.getTick());
+		for (int t = 0; t < 300; t++) {
+			assertEquals(outcomes[t], level.updateLevel());
+			assertEquals(x[t], level.getBall().getCenterX(), 0);
+			assertEquals(y[t], level.getBall().getCenterY(), 0);
+		}
+	}
+
+	@Test
+	public void savingCopiesTheState() {
+		Level level = SimulationLevels.obstacleCourse();
+		level.setTick(40);
+		SimulationState state = new SimulationState();
+		level.saveState(state);
+		SimulationState copy = new SimulationState(state);
+		level.updateLevel();
+		level.saveState(state);
+		assertEquals(40, copy.getTick());
+		assertEquals(41, state.getTick());
+		assertEquals(120, copy.getX(), 0);
+		assertFalse(copy.isLaunched());
+	}
+
+	@Test
+	public void simulationsShareTheGeometry() {
+		Level level = SimulationLevels.obstacleCourse();
+		Level copy = level.newSimulation(25);
+		assertSame(level.getGeometry(), copy.getGeometry());
+		assertNotSame(level.getBall(), copy.getBall());
+		assertEquals(25, copy.getTick());
+		assertEquals(0, level.getTick());
+	}
+
+	@Test
+	public void simulationsRunInParallel() throws InterruptedException {
+		final Level level = SimulationLevels.obstacleCourse();
+		final List<Point2d> points = new ArrayList<Point2d>();
+		Random random = new Random(16);
+		for (int i = 0; i < 400; i++) {
+			points.add(new Point2d(random.nextDouble() * 400 - 100, random
+					.nextDouble() * 700));
+		}
+		final boolean[] expected = new boolean[points.size()];
+		for (int i = 0; i < points.size(); i++) {
+			expected[i] = level.possibleWin(points.get(i), 300, i % 50);
+		}
+		final boolean[] found = new boolean[points.size()];
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final int first = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = first; i < points.size(); i += 4) {
+						found[i] = level.possibleWin(points.get(i), 300, i % 50);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		int wins = 0;
+		for (int i = 0; i < points.size(); i++) {
+			assertEquals("point " + i, expected[i], found[i]);
+			wins += found[i] ? 1 : 0;
+		}
+		assertTrue(wins > 0);
+	}
+
+}
@@ -0,0 +1,100 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Test;
+
+import structures.*;
+
+/**
+ * Tests for <code>SnapshotBuffer</code>.
+ */
+public class SnapshotBufferTest {
+
+	/** A ball launched through the obstacle course. */
+	private static Level launchedCourse() {
+		Level level = SimulationLevels.obstacleCourse();
+		level.getBall().setVelocity(0.9, -0.6);
+		level.getBall().setLaunched(true);
+		return level;
+	}
+
+	private static long allocatedBytes() {
+		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	@Test
+	public void keepsTheNewestSnapshots() {
+		SnapshotBuffer buffer = new SnapshotBuffer(8);
+		Level level = launchedCourse();
+		for (int t = 0; t < 20; t++) {
+			level.updateLevel();
+			buffer.record(level);
+		}
+		assertEquals(8, buffer.size());
+		for (int back = 0; back < 8; back++) {
+			assertEquals(20 - back, buffer.getTick(back));
+		}
+		buffer.discardNewest(3);
+		assertEquals(5, buffer.size());
+		assertEquals(17, buffer.getTick(0));
+		level.updateLevel();
+		buffer.record(level);
+		assertEquals(21, buffer.getTick(0));
+		assertEquals(17, buffer.getTick(1));
+		buffer.clear();
+		assertEquals(0, buffer.size());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void onlyStoredSnapshotsCanBeRead() {
+		SnapshotBuffer buffer = new SnapshotBuffer(8);
+		buffer.record(launchedCourse());
+		buffer.getTick(1);
+	}
+
+	@Test
+	public void restoringReplaysTheShot() {
+		SnapshotBuffer buffer = new SnapshotBuffer(1000);
+		Level level = launchedCourse();
+		double[] x = new double[600];
+		for (int t = 0; t < 600; t++) {
+			level.updateLevel();
+			buffer.record(level);
+			x[t] = level.getBall().getCenterX();
+		}
+		for (int back = 599; back >= 0; back -= 97) {
+			buffer.restore(level, back);
+			int t = 599 - back;
+			assertEquals(t + 1, level.getTick());
+			assertEquals(x[t], level.getBall().getCenterX(), 0);
+			for (t++; t < 600; t++) {
+				level.updateLevel();
+				assertEquals(x[t], level.getBall().getCenterX(), 0);
+			}
+		}
+	}
+
+	@Test
+	public void recordingAndRestoringDoNotAllocate() {
+		SnapshotBuffer buffer = new SnapshotBuffer(256);
+		Level level = launchedCourse();
+		for (int t = 0; t < 100000; t++) {
+			buffer.record(level);
+			buffer.restore(level, t % buffer.size());
+		}
+		long overhead = -(allocatedBytes() - allocatedBytes());
+		long before = allocatedBytes();
+		for (int t = 0; t < 100000; t++) {
+			buffer.record(level);
+			buffer.restore(level, t % buffer.size());
+		}
+		long allocated = allocatedBytes() - before - overhead;
+		assertTrue("allocated " + allocated + " bytes", allocated < 10000);
+	}
+
+}
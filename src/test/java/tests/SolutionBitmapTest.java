@@ -0,0 +1,123 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.awt.Point;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import editor.LevelSolver;
+import editor.SolutionBitmap;
+import editor.SolutionSet;
+
+/**
+ * Tests that <code>SolutionBitmap</code> reads back what it writes.
+ */
+public class SolutionBitmapTest {
+
+	static final String dir = "testFiles/";
+
+	@Before
+	public void setup() {
+		new File(dir).mkdir();
+	}
+
+	/** Points in column order, with columns taller than a long. */
+	private static List<Point> makeSolutions() {
+		List<Point> solutions = new ArrayList<Point>();
+		for (int x = -5; x < 40; x += 3) {
+			for (int y = 100; y < 100 + 2 * x + 140; y += (x % 2 == 0) ? 1 : 7) {
+				solutions.add(new Point(x, y));
+			}
+		}
+		return solutions;
+	}
+
+	@Test
+	public void readsBackInOrder() throws IOException {
+		List<Point> solutions = makeSolutions();
+		File file = new File(dir + "bitmap.bin");
+		SolutionBitmap.write(solutions, file);
+		SolutionBitmap bitmap = SolutionBitmap.map(file);
+		assertEquals(solutions.size(), bitmap.size());
+		assertEquals(solutions, new ArrayList<Point>(bitmap));
+		assertTrue(bitmap.contains(new Point(-5, 100)));
+		assertFalse(bitmap.contains(new Point(-4, 100)));
+		assertFalse(bitmap.contains(new Point(-5, 99)));
+		assertFalse(bitmap.contains(new Point(1000, 100)));
+	}
+
+	@Test
+	public void emptySet() throws IOException {
+		File file = new File(dir + "empty.bin");
+		SolutionBitmap.write(Collections.<Point> emptyList(), file);
+		SolutionBitmap bitmap = SolutionBitmap.map(file);
+		assertTrue(bitmap.isEmpty());
+		assertFalse(bitmap.iterator().hasNext());
+		assertFalse(bitmap.contains(new Point(0, 0)));
+	}
+
+	@Test
+	public void convertsText() throws IOException {
+		List<Point> solutions = makeSolutions();
+		String fileName = dir + "level.txt";
+		LevelSolver.printSolutionSet(solutions, new PrintWriter(new File(
+				fileName)));
+		Collection<Point> text = LevelSolver.loadSolutionSet(fileName);
+		assertEquals(solutions, new ArrayList<Point>(text));
+		SolutionBitmap.main(new String[] { fileName });
+		Collection<Point> bitmap = LevelSolver.loadSolutionSet(dir
+				+ "level.bin");
+		assertEquals(solutions, new ArrayList<Point>(bitmap));
+	}
+
+	@Test
+	public void walksColumnsByRuns() throws IOException {
+		List<Point> solutions = makeSolutions();
+		File file = new File(dir + "runs.bin");
+		SolutionBitmap.write(solutions, file);
+		SolutionBitmap bitmap = SolutionBitmap.map(file);
+		SolutionSet set = new SolutionSet(solutions);
+		int end = set.getTopY() + set.getHeight();
+		assertEquals(set.getLeftX(), bitmap.getLeftX());
+		assertEquals(end, bitmap.getTopY() + bitmap.getHeight());
+		for (int x = set.getLeftX() - 1; x <= set.getLeftX()
+				+ set.getWidth(); x++) {
+			for (int y = set.getTopY() - 2; y <= end + 1; y++) {
+				assertEquals(set.contains(x, y), bitmap.contains(x, y));
+				assertEquals(set.nextInColumn(x, y), bitmap.nextInColumn(x, y));
+				assertEquals(set.nextGapInColumn(x, y), bitmap
+						.nextGapInColumn(x, y));
+			}
+		}
+	}
+
+	@Test
+	public void smallerThanText() throws IOException {
+		List<Point> solutions = makeSolutions();
+		File text = new File(dir + "size.txt");
+		LevelSolver.printSolutionSet(solutions, new PrintWriter(text));
+		File file = new File(dir + "size.bin");
+		SolutionBitmap.write(solutions, file);
+		assertTrue(file.length() < text.length() / 2);
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsText() throws IOException {
+		String fileName = dir + "notABitmap.bin";
+		PrintWriter pw = new PrintWriter(new File(fileName));
+		pw.println("12 189");
+		pw.println("13 189");
+		pw.close();
+		SolutionBitmap.map(new File(fileName));
+	}
+
+}
@@ -0,0 +1,125 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.awt.Point;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import editor.LevelSolver;
+import editor.SolutionBitmap;
+import editor.SolutionSet;
+
+/**
+ * Tests that <code>SolutionSet</code> behaves as a set of points.
+ */
+public class SolutionSetTest {
+
+	/** A disc of points, in column order. */
+	private static List<Point> disc(int cx, int cy, int r) {
+		List<Point> points = new ArrayList<Point>();
+		for (int x = cx - r; x <= cx + r; x++) {
+			for (int y = cy - r; y <= cy + r; y++) {
+				if ((x - cx) * (x - cx) + (y - cy) * (y - cy) <= r * r)
+					points.add(new Point(x, y));
+			}
+		}
+		return points;
+	}
+
+	@Test
+	public void holdsItsPointsInOrder() {
+		List<Point> points = disc(10, -20, 70);
+		SolutionSet set = new SolutionSet(points);
+		assertEquals(points.size(), set.size());
+		assertEquals(points, new ArrayList<Point>(set));
+		assertEquals(new HashSet<Point>(points), set);
+		assertTrue(set.contains(10, -20));
+		assertFalse(set.contains(10 + 70, -20 + 1));
+		assertFalse(set.contains(new Point(1000, 0)));
+		assertFalse(set.add(new Point(10, -20)));
+		assertTrue(set.remove(new Point(10, -20)));
+		assertFalse(set.contains(10, -20));
+	}
+
+	@Test
+	public void algebraMatchesHashSets() {
+		List<Point> a = disc(0, 0, 50);
+		List<Point> b = disc(40, 30, 45);
+		SolutionSet setA = new SolutionSet(a);
+		SolutionSet setB = new SolutionSet(b);
+
+		Set<Point> union = new HashSet<Point>(a);
+		union.addAll(b);
+		Set<Point> intersection = new HashSet<Point>(a);
+		intersection.retainAll(b);
+		Set<Point> difference = new HashSet<Point>(a);
+		difference.removeAll(b);
+
+		assertEquals(union, setA.union(setB));
+		assertEquals(union, setB.union(setA));
+		assertEquals(intersection, setA.intersection(setB));
+		assertEquals(difference, setA.difference(setB));
+		assertEquals(difference.size(), setA.difference(setB).size());
+		assertTrue(setA.difference(setA).isEmpty());
+		SolutionSet empty = new SolutionSet(new ArrayList<Point>());
+		assertEquals(setA, setA.union(empty));
+		assertEquals(setA, empty.union(setA));
+	}
+
+	@Test
+	public void columnsWalkByRuns() {
+		SolutionSet set = new SolutionSet(0, 0, 3, 200);
+		for (int y = 10; y < 80; y++) {
+			set.add(1, y);
+		}
+		set.add(1, 150);
+		assertEquals(10, set.nextInColumn(1, 0));
+		assertEquals(80, set.nextGapInColumn(1, 10));
+		assertEquals(150, set.nextInColumn(1, 80));
+		assertEquals(151, set.nextGapInColumn(1, 150));
+		assertEquals(200, set.nextInColumn(1, 151));
+		assertEquals(200, set.nextInColumn(0, 0));
+		assertEquals(200, set.nextInColumn(5, 0));
+	}
+
+	@Test
+	public void loadedSetsReadTheFileUntilChanged() throws IOException {
+		new File("testFiles/").mkdir();
+		List<Point> points = disc(300, 200, 60);
+		String fileName = "testFiles/mapped.bin";
+		SolutionBitmap.write(points, new File(fileName));
+		long length = new File(fileName).length();
+		SolutionSet loaded = LevelSolver.loadSolutionSet(fileName);
+		SolutionSet expected = new SolutionSet(points);
+		assertEquals(points.size(), loaded.size());
+		assertEquals(points, new ArrayList<Point>(loaded));
+		assertEquals(expected, loaded);
+		assertEquals(expected, loaded.union(expected));
+		assertEquals(expected, expected.intersection(loaded));
+		assertTrue(loaded.difference(expected).isEmpty());
+		assertEquals(expected.nextGapInColumn(300, 150), loaded
+				.nextGapInColumn(300, 150));
+
+		SolutionSet copy = loaded.copy();
+		assertTrue(loaded.remove(new Point(300, 200)));
+		assertFalse(loaded.contains(300, 200));
+		assertEquals(points.size() - 1, loaded.size());
+		assertTrue(copy.contains(300, 200));
+		assertEquals(length, new File(fileName).length());
+		assertEquals(points, new ArrayList<Point>(LevelSolver
+				.loadSolutionSet(fileName)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void pointsStayInTheBox() {
+		new SolutionSet(0, 0, 10, 10).add(10, 0);
+	}
+
+}
@@ -0,0 +1,92 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import structures.*;
+import editor.LevelSolver;
+import editor.SolutionSet;
+import editor.SolveHandle;
+import editor.SolveListener;
+
+/**
+ * Tests that background solves through <code>SolveHandle</code> agree with
+ * LevelSolver.getSolutionSet and can be cancelled.
+ */
+public class SolveHandleTest {
+
+	/** Keeps every point it is told about and counts the calls. */
+	private static class Recorder implements SolveListener {
+		final List<Point> wins = new ArrayList<Point>();
+		int pieces, finishes;
+		boolean cancelAtOnce;
+		Error failWith;
+
+		public void solved(List<Point> found, SolveHandle handle) {
+			wins.addAll(found);
+			pieces++;
+			if (cancelAtOnce)
+				handle.cancel();
+			if (failWith != null)
+				throw failWith;
+		}
+
+		public void finished(SolveHandle handle) {
+			finishes++;
+		}
+	}
+
+	@Test
+	public void streamsTheSolutions() throws InterruptedException {
+		Level level = SolverLevels.cornerLevel();
+		SolutionSet exact = LevelSolver.getSolutionSet(level, 0, 2);
+		Recorder recorder = new Recorder();
+		SolveHandle handle = LevelSolver.solveAsync(level, 2, recorder);
+		assertEquals(exact, handle.await());
+		assertTrue(handle.isDone());
+		assertFalse(handle.isCancelled());
+		assertEquals(1.0, handle.getProgress(), 0);
+		assertTrue(handle.getLaunchesPerSecond() > 0);
+		assertTrue(recorder.pieces > 1);
+		assertEquals(1, recorder.finishes);
+		assertEquals(exact, new SolutionSet(recorder.wins));
+		assertEquals(exact.size(), recorder.wins.size());
+	}
+
+	@Test
+	public void stopsWhenCancelled() throws InterruptedException {
+		Level level = SolverLevels.cornerLevel();
+		SolutionSet exact = LevelSolver.getSolutionSet(level, 0, 1);
+		Recorder recorder = new Recorder();
+		recorder.cancelAtOnce = true;
+		SolveHandle handle = LevelSolver.solveAsync(level, 1, recorder);
+		SolutionSet found = handle.await();
+		assertTrue(handle.isCancelled());
+		assertEquals(1, recorder.pieces);
+		assertEquals(1, recorder.finishes);
+		assertTrue(handle.getProgress() < 1);
+		assertTrue(exact.containsAll(found));
+	}
+
+	@Test
+	public void reportsErrors() throws InterruptedException {
+		Recorder recorder = new Recorder();
+		recorder.failWith = new OutOfMemoryError("test");
+		SolveHandle handle = LevelSolver.solveAsync(SolverLevels
+				.cornerLevel(), 1, recorder);
+		try {
+			handle.await();
+			fail("The solve did not fail.");
+		} catch (OutOfMemoryError e) {
+			// the pool may rethrow a copy
+		}
+		assertTrue(handle.isDone());
+		assertEquals(1, recorder.finishes);
+	}
+
+}
@@ -0,0 +1,38 @@
+package tests;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+
+import structures.Ball;
+import structures.Body;
+import structures.GoalPost;
+import structures.Level;
+
+/**
+ * The level the solver tests solve: a ball in the corner of a fixed screen,
+ * so only a quarter of the launch disc is on screen, with a planet to curve
+ * around to the goal.
+ */
+class SolverLevels {
+
+	/**
+	 * Returns the level with its goal at (400, 120) and normal gravity.
+	 */
+	static Level cornerLevel() {
+		return cornerLevel(400, 120, 1.0);
+	}
+
+	/**
+	 * Returns the level with its goal and gravity strength moved.
+	 */
+	static Level cornerLevel(int goalX, int goalY, double gravity) {
+		List<Body> bodies = new ArrayList<Body>();
+		bodies.add(new Body(250, 200, 40, Color.blue));
+		List<GoalPost> goals = new ArrayList<GoalPost>();
+		goals.add(new GoalPost(goalX, goalY, 20));
+		return new Level(new Ball(40, 40, 3), bodies, null, goals, null, 0,
+				gravity);
+	}
+
+}
@@ -0,0 +1,68 @@
+package tests;
+
+import editor.LevelSolver;
+import game.DataHandler;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import structures.Level;
+
+/**
+ * Benchmark for how LevelSolver scales with the number of threads. Solves
+ * the same stock levels with 1, 2, 4, ... threads up to the number of
+ * processors and prints the time taken and the speedup over one thread.
+ * <p>
+ * Usage: SolverScalingBenchmark [levels...] (1 based, default 1 6 13)
+ */
+public class SolverScalingBenchmark {
+
+	private static final int Rounds = 2;
+
+	private static double time(List<Level> levels, int threads) {
+		long start = System.nanoTime();
+		int solutions = 0;
+		for (Level level : levels) {
+			Collection<java.awt.Point> set = LevelSolver.getSolutionSet(
+					level, 0, threads);
+			solutions += set.size();
+		}
+		if (solutions == 0)
+			System.out.println("no solutions found");
+		return (System.nanoTime() - start) / 1e9;
+	}
+
+	public static void main(String[] args) throws IOException {
+		List<Level> stock = new DataHandler()
+				.getLevelData("src/resources/levels/levels.txt");
+		int[] numbers = { 1, 6, 13 };
+		if (args.length > 0) {
+			numbers = new int[args.length];
+			for (int i = 0; i < args.length; i++) {
+				numbers[i] = Integer.parseInt(args[i]);
+			}
+		}
+		List<Level> levels = new ArrayList<Level>();
+		for (int n : numbers) {
+			levels.add(stock.get(n - 1));
+		}
+		int processors = Runtime.getRuntime().availableProcessors();
+		for (int round = 0; round < Rounds; round++) {
+			double single = 0;
+			for (int threads = 1;; threads = Math.min(2 * threads,
+					processors)) {
+				double seconds = time(levels, threads);
+				if (threads == 1)
+					single = seconds;
+				System.out.println(String.format(
+						"round %d: %d threads %.2f s, speedup %.2f", round,
+						threads, seconds, single / seconds));
+				if (threads == processors)
+					break;
+			}
+		}
+	}
+
+}
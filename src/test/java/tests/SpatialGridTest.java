@@ -0,0 +1,60 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import structures.SpatialGrid;
+
+/**
+ * Tests for the <code>SpatialGrid</code> broad phase.
+ */
+public class SpatialGridTest {
+
+	@Test
+	public void reportsEveryOverlapOnce() {
+		Random random = new Random(9);
+		int n = 300;
+		double[] left = new double[n], top = new double[n];
+		double[] right = new double[n], bottom = new double[n];
+		for (int i = 0; i < n; i++) {
+			left[i] = random.nextDouble() * 2000 - 500;
+			top[i] = random.nextDouble() * 1500 - 500;
+			right[i] = left[i] + random.nextDouble() * 150;
+			bottom[i] = top[i] + random.nextDouble() * 150;
+		}
+		SpatialGrid grid = new SpatialGrid(left, top, right, bottom,
+				SpatialGrid.DefaultCellSize);
+		int[] out = new int[n];
+		for (int q = 0; q < 2000; q++) {
+			double qx = random.nextDouble() * 2600 - 800;
+			double qy = random.nextDouble() * 2000 - 800;
+			double qw = random.nextDouble() * 200;
+			double qh = random.nextDouble() * 200;
+			int count = grid.query(qx, qy, qx + qw, qy + qh, out);
+			int[] seen = new int[n];
+			for (int k = 0; k < count; k++) {
+				seen[out[k]]++;
+			}
+			for (int i = 0; i < n; i++) {
+				boolean overlaps = left[i] <= qx + qw && right[i] >= qx
+						&& top[i] <= qy + qh && bottom[i] >= qy;
+				if (overlaps)
+					assertEquals(1, seen[i]);
+				else
+					assertTrue(seen[i] <= 1);
+			}
+		}
+	}
+
+	@Test
+	public void emptyGrid() {
+		SpatialGrid grid = new SpatialGrid(new double[0], new double[0],
+				new double[0], new double[0], SpatialGrid.DefaultCellSize);
+		assertEquals(0, grid.size());
+		assertEquals(0, grid.query(-10, -10, 10, 10, new int[0]));
+	}
+
+}
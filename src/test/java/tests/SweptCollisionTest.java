@@ -0,0 +1,150 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import structures.*;
+
+/**
+ * Tests for the continuous collision of the ball with bodies and reflectors.
+ * Gravity is turned off so the ball moves in straight lines.
+ */
+public class SweptCollisionTest {
+
+	static final double epsilon = 1e-9;
+
+	private static Level makeLevel(Ball ball, Body body, double vx, double vy) {
+		List<Body> bodies = new ArrayList<Body>();
+		bodies.add(body);
+		Level level = new Level(ball, bodies, null, null, null, 5.0, 0.0);
+		ball.setVelocity(vx, vy);
+		ball.setLaunched(true);
+		return level;
+	}
+
+	@Test
+	public void fastBallCannotTunnel() {
+		Ball ball = new Ball(100, 300, 3);
+		Body body = new Body(200, 300, 10, Color.blue, 0);
+		// 250 pixels in one tick would jump clean over the body
+		Level level = makeLevel(ball, body, 250, 0);
+		level.updateLevel();
+		assertSame(body, level.getIntersectingBody());
+		assertTrue(level.timeToReset());
+		// stopped where the surfaces touch
+		assertEquals(200 - 13, ball.getCenterX(), epsilon);
+		assertEquals(300, ball.getCenterY(), epsilon);
+	}
+
+	@Test
+	public void missingBallIsNotStopped() {
+		Ball ball = new Ball(100, 300, 3);
+		Body body = new Body(200, 330, 10, Color.blue, 0);
+		Level level = makeLevel(ball, body, 250, 0);
+		level.updateLevel();
+		assertNull(level.getIntersectingBody());
+		assertEquals(350, ball.getCenterX(), epsilon);
+	}
+
+	@Test
+	public void headOnReflection() {
+		Ball ball = new Ball(100, 300, 3);
+		Body reflector = new Body(200, 300, 20, Color.blue, 0);
+		reflector.setReflector(true);
+		Level level = makeLevel(ball, reflector, 100, 0);
+		level.updateLevel();
+		assertNull(level.getIntersectingBody());
+		// hits at x = 177 after 77 pixels, then travels 23 pixels back
+		assertEquals(154, ball.getCenterX(), epsilon);
+		assertEquals(-100, ball.getXVelocity(), epsilon);
+		assertEquals(0, ball.getYVelocity(), epsilon);
+	}
+
+	@Test
+	public void obliqueReflectionKeepsSpeed() {
+		Ball ball = new Ball(100, 280, 3);
+		Body reflector = new Body(200, 300, 20, Color.blue, 0);
+		reflector.setReflector(true);
+		Level level = makeLevel(ball, reflector, 3, 0.5);
+		double speed = Math.hypot(3, 0.5);
+		for (int i = 0; i < 100; i++) {
+			level.updateLevel();
+			assertFalse(ball.intersects(reflector));
+		}
+		assertEquals(speed, Math.hypot(ball.getXVelocity(),
+				ball.getYVelocity()), epsilon);
+		// bounced back up and to the left
+		assertTrue(ball.getXVelocity() < 0);
+		assertTrue(ball.getYVelocity() < 0);
+	}
+
+	private static Level makeBlockedLevel(Ball ball, Blockage blockage,
+			double vx, double vy) {
+		List<Blockage> blockages = new ArrayList<Blockage>();
+		blockages.add(blockage);
+		Level level = new Level(ball, new ArrayList<Body>(), null, null,
+				blockages, 5.0, 0.0);
+		ball.setVelocity(vx, vy);
+		ball.setLaunched(true);
+		return level;
+	}
+
+	@Test
+	public void fastBallBouncesOffThinBlockage() {
+		Ball ball = new Ball(100, 300, 3);
+		// two pixels wide, spanning x = 199..201
+		Blockage wall = new Blockage(200, 300, 1, 100, Color.gray);
+		Level level = makeBlockedLevel(ball, wall, 250, 10);
+		level.updateLevel();
+		// entered the left face after 99 of the 250 pixels, then came back
+		assertEquals(199 - 151, ball.getCenterX(), epsilon);
+		assertEquals(310, ball.getCenterY(), epsilon);
+		assertEquals(-250, ball.getXVelocity(), epsilon);
+		assertEquals(10, ball.getYVelocity(), epsilon);
+	}
+
+	@Test
+	public void topFaceFlipsVerticalSpeed() {
+		Ball ball = new Ball(300, 100, 3);
+		Blockage floor = new Blockage(300, 200, 100, 10, Color.gray);
+		Level level = makeBlockedLevel(ball, floor, 1, 4);
+		for (int i = 0; i < 40; i++) {
+			level.updateLevel();
+			assertNull(wall(level, floor));
+		}
+		assertEquals(1, ball.getXVelocity(), epsilon);
+		assertEquals(-4, ball.getYVelocity(), epsilon);
+	}
+
+	@Test
+	public void ballInsideBlockageLeavesIt() {
+		Ball ball = new Ball(300, 300, 3);
+		Blockage box = new Blockage(300, 300, 50, 50, Color.gray);
+		Level level = makeBlockedLevel(ball, box, 0.5, 2);
+		int ticks = 0;
+		while (wall(level, box) != null) {
+			level.updateLevel();
+			assertTrue(++ticks < 100);
+		}
+		// turned around once and left through the face it came in by
+		assertEquals(-2, ball.getYVelocity(), epsilon);
+		assertTrue(ball.getCenterY() <= 250);
+		assertEquals(25, ticks);
+	}
+
+	/** The blockage if the ball's center is strictly inside it. */
+	private static Blockage wall(Level level, Blockage b) {
+		Ball ball = level.getBall();
+		boolean inside = ball.getCenterX() > b.getDrawX()
+				&& ball.getCenterX() < b.getDrawX() + b.getDrawXSize()
+				&& ball.getCenterY() > b.getDrawY()
+				&& ball.getCenterY() < b.getDrawY() + b.getDrawYSize();
+		return inside ? b : null;
+	}
+
+}
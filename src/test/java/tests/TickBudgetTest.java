@@ -0,0 +1,48 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import structures.*;
+
+/**
+ * Tests for the tick budget of Level.possibleWin.
+ */
+public class TickBudgetTest {
+
+	/** A level without gravity where a slow shot reaches the goal. */
+	private static Level makeLevel() {
+		List<GoalPost> goals = new ArrayList<GoalPost>();
+		goals.add(new GoalPost(700, 300, 15));
+		return new Level(new Ball(100, 300, 3), new ArrayList<Body>(), null,
+				goals, null, 0, 0);
+	}
+
+	@Test
+	public void budgetLimitsTheShot() {
+		// half a pixel per tick: reaches the goal after about 1160 ticks
+		Point2d aim = new Point2d(200, 300);
+		Level level = makeLevel();
+		level.setTickBudget(1000);
+		assertFalse(level.possibleWin(aim, 300));
+		level.setTickBudget(2000);
+		assertTrue(level.possibleWin(aim, 300));
+	}
+
+	@Test
+	public void defaultBudgetFollowsTheReachableRegion() {
+		Level level = makeLevel();
+		// 1200 x 900 pixels can be reached without a follow factor
+		assertEquals(Level.BudgetTicksPerPixel * 2 * (1200 + 900),
+				level.getTickBudget());
+		assertTrue(level.possibleWin(new Point2d(200, 300), 300));
+		level.setTickBudget(0);
+		assertEquals(Level.BudgetTicksPerPixel * 2 * (1200 + 900),
+				level.getTickBudget());
+	}
+
+}
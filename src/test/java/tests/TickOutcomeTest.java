@@ -0,0 +1,112 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import structures.*;
+
+/**
+ * Tests for the <code>TickOutcome</code> returned by Level.updateLevel.
+ * Gravity is turned off so the ball moves in straight lines.
+ */
+public class TickOutcomeTest {
+
+	private static Level makeLevel(Ball ball, List<Body> bodies,
+			List<WarpPoint> warps, List<GoalPost> goals,
+			List<Blockage> blockages, double vx, double vy) {
+		Level level = new Level(ball, bodies, warps, goals, blockages, 5.0,
+				0.0);
+		ball.setVelocity(vx, vy);
+		ball.setLaunched(true);
+		return level;
+	}
+
+	/** Updates until something other than FLYING happens. */
+	private static TickOutcome firstEvent(Level level) {
+		for (int i = 0; i < 1000; i++) {
+			TickOutcome outcome = level.updateLevel();
+			assertSame(outcome, level.getLastOutcome());
+			if (outcome != TickOutcome.FLYING)
+				return outcome;
+		}
+		return TickOutcome.FLYING;
+	}
+
+	@Test
+	public void crashIsReportedUntilReset() {
+		Ball ball = new Ball(100, 300, 3);
+		List<Body> bodies = new ArrayList<Body>();
+		bodies.add(new Body(200, 300, 10, Color.blue, 0));
+		Level level = makeLevel(ball, bodies, null, null, null, 5, 0);
+		assertEquals(TickOutcome.CRASHED, firstEvent(level));
+		assertTrue(level.timeToReset());
+		assertEquals(TickOutcome.CRASHED, level.updateLevel());
+		level.reset();
+		assertEquals(TickOutcome.FLYING, level.getLastOutcome());
+	}
+
+	@Test
+	public void goalIsReached() {
+		Ball ball = new Ball(100, 300, 3);
+		List<GoalPost> goals = new ArrayList<GoalPost>();
+		goals.add(new GoalPost(200, 300, 10));
+		Level level = makeLevel(ball, new ArrayList<Body>(), null, goals,
+				null, 5, 0);
+		assertEquals(TickOutcome.GOAL_REACHED, firstEvent(level));
+		assertTrue(level.inGoalPost());
+		assertTrue(level.getLastOutcome().endsShot());
+		assertFalse(level.getLastOutcome().requiresReset());
+	}
+
+	@Test
+	public void reflectorBounce() {
+		Ball ball = new Ball(100, 300, 3);
+		List<Body> bodies = new ArrayList<Body>();
+		Body reflector = new Body(200, 300, 20, Color.blue, 0);
+		reflector.setReflector(true);
+		bodies.add(reflector);
+		Level level = makeLevel(ball, bodies, null, null, null, 5, 0);
+		assertEquals(TickOutcome.BOUNCED, firstEvent(level));
+		assertTrue(ball.getXVelocity() < 0);
+		assertEquals(TickOutcome.FLYING, level.updateLevel());
+	}
+
+	@Test
+	public void blockageBounce() {
+		Ball ball = new Ball(100, 300, 3);
+		List<Blockage> blockages = new ArrayList<Blockage>();
+		blockages.add(new Blockage(200, 300, 5, 50, Color.gray));
+		Level level = makeLevel(ball, new ArrayList<Body>(), null, null,
+				blockages, 5, 0);
+		assertEquals(TickOutcome.BOUNCED, firstEvent(level));
+		assertFalse(level.getLastOutcome().endsShot());
+	}
+
+	@Test
+	public void leavingTheScreen() {
+		Ball ball = new Ball(100, 300, 3);
+		Level level = makeLevel(ball, new ArrayList<Body>(), null, null,
+				null, -20, 0);
+		assertEquals(TickOutcome.OUT_OF_BOUNDS, firstEvent(level));
+		assertTrue(level.timeToReset());
+	}
+
+	@Test
+	public void warpMovesTheBall() {
+		Ball ball = new Ball(100, 300, 3);
+		List<WarpPoint> warps = new ArrayList<WarpPoint>();
+		warps.add(new WarpPoint(200, 300));
+		warps.add(new WarpPoint(600, 300));
+		Level level = makeLevel(ball, new ArrayList<Body>(), warps, null,
+				null, 5, 0);
+		assertEquals(TickOutcome.WARPED, firstEvent(level));
+		// moved to the second warp, then on by one tick
+		assertEquals(605, ball.getCenterX(), 0);
+	}
+
+}
@@ -49,4 +49,19 @@ public class Vector2dTest {
 		assertEquals(true, v1.proj(v2).equals(proj, epsilon));
 	}
 
-}
\ No newline at end of file
+	@Test
+	public void derivedValueTests() {
+		// <3,4> has length 5
+		assertEquals(5, new Vector2d(3, 4).magnitude(), epsilon);
+		assertEquals(25, new Vector2d(3, 4).magnitudeSquared(), epsilon);
+
+		// angles use the screen convention: negative y is up
+		assertEquals(Math.PI / 2, new Vector2d(0, -1).angle(), epsilon);
+		assertEquals(Math.PI, new Vector2d(-1, 0).angle(), epsilon);
+
+		// <1,2> - <3,5> = <-2,-3>
+		assertEquals(true, new Vector2d(1, 2).subtract(new Vector2d(3, 5))
+				.equals(new Vector2d(-2, -3), epsilon));
+	}
+
+}
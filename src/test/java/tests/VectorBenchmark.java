@@ -0,0 +1,143 @@
+package tests;
+
+import game.DataHandler;
+
+import java.util.List;
+
+import structures.*;
+
+/**
+ * Benchmark for the cost of the vector arithmetic in the ball integration on
+ * a standard level. Compares the old eager vectors (which computed a square
+ * root and an arctangent in every constructor), the lazy immutable Vector2d
+ * and a MutablePoint2d scratch position with primitive velocities, as in
+ * Level.
+ * <p>
+ * Usage: VectorBenchmark [levelNumber] [ticks]
+ */
+public class VectorBenchmark {
+
+	private static final int Rounds = 5;
+
+	/**
+	 * Copy of the old Vector2d constructor behavior: magnitude and angle are
+	 * computed eagerly whether or not anybody reads them.
+	 */
+	private static final class EagerVector2d {
+		final double xComponent, yComponent, magnitude, angle;
+
+		EagerVector2d(double x, double y) {
+			xComponent = x;
+			yComponent = y;
+			magnitude = Math.hypot(x, y);
+			angle = CalcHelp.getAngle(x, y);
+		}
+
+		EagerVector2d add(EagerVector2d v) {
+			return new EagerVector2d(xComponent + v.xComponent, yComponent
+					+ v.yComponent);
+		}
+
+		EagerVector2d multiply(double k) {
+			return new EagerVector2d(k * xComponent, k * yComponent);
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		int levelNumber = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+		int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 2000000;
+		List<Level> levels = new DataHandler()
+				.getLevelData("src/resources/levels/levels.txt");
+		Level level = levels.get(levelNumber - 1);
+
+		List<Body> bodies = level.getBodies();
+		int n = bodies.size();
+		double[] bx = new double[n];
+		double[] by = new double[n];
+		double[] gm = new double[n];
+		for (int i = 0; i < n; i++) {
+			bx[i] = bodies.get(i).getCenterX();
+			by[i] = bodies.get(i).getCenterY();
+			gm[i] = level.getGravityStrength() * bodies.get(i).getMass();
+		}
+		double startX = level.getBall().getCenterX();
+		double startY = level.getBall().getCenterY();
+
+		System.out.println("Level " + levelNumber + ", " + n + " bodies, "
+				+ ticks + " ticks per round");
+		for (int round = 0; round < Rounds; round++) {
+			long t0 = System.nanoTime();
+			double a = eager(bx, by, gm, startX, startY, ticks);
+			long t1 = System.nanoTime();
+			double b = lazy(bx, by, gm, startX, startY, ticks);
+			long t2 = System.nanoTime();
+			double c = scratch(bx, by, gm, startX, startY, ticks);
+			long t3 = System.nanoTime();
+			System.out.printf("round %d: eager %.1f ns/tick, "
+					+ "lazy %.1f ns/tick, scratch %.1f ns/tick "
+					+ "(checksum %s)%n", round, (t1 - t0) / (double) ticks,
+					(t2 - t1) / (double) ticks, (t3 - t2) / (double) ticks,
+					(a == b && b == c) ? "ok" : "MISMATCH");
+		}
+	}
+
+	private static double eager(double[] bx, double[] by, double[] gm,
+			double x, double y, int ticks) {
+		Point2d center = new Point2d(x, y);
+		EagerVector2d velocity = new EagerVector2d(0.5, 0.25);
+		for (int t = 0; t < ticks; t++) {
+			EagerVector2d acceleration = new EagerVector2d(0, 0);
+			for (int i = 0; i < bx.length; i++) {
+				double dx = bx[i] - center.x();
+				double dy = by[i] - center.y();
+				double k = gm[i] / Math.pow(dx * dx + dy * dy + 100, 1.5);
+				acceleration = acceleration.add(new EagerVector2d(k * dx, k
+						* dy));
+			}
+			velocity = velocity.add(acceleration.multiply(1.0));
+			center = center.translate(velocity.xComponent,
+					velocity.yComponent);
+		}
+		return center.x() + center.y();
+	}
+
+	private static double lazy(double[] bx, double[] by, double[] gm,
+			double x, double y, int ticks) {
+		Point2d center = new Point2d(x, y);
+		Vector2d velocity = new Vector2d(0.5, 0.25);
+		for (int t = 0; t < ticks; t++) {
+			Vector2d acceleration = new Vector2d(0, 0);
+			for (int i = 0; i < bx.length; i++) {
+				double dx = bx[i] - center.x();
+				double dy = by[i] - center.y();
+				double k = gm[i] / Math.pow(dx * dx + dy * dy + 100, 1.5);
+				acceleration = acceleration.add(new Vector2d(k * dx, k * dy));
+			}
+			velocity = velocity.add(acceleration.multiply(1.0));
+			center = center.translate(velocity.xComponent(),
+					velocity.yComponent());
+		}
+		return center.x() + center.y();
+	}
+
+	private static double scratch(double[] bx, double[] by, double[] gm,
+			double x, double y, int ticks) {
+		MutablePoint2d center = new MutablePoint2d(x, y);
+		double vx = 0.5, vy = 0.25;
+		for (int t = 0; t < ticks; t++) {
+			double ax = 0, ay = 0;
+			for (int i = 0; i < bx.length; i++) {
+				double dx = bx[i] - center.x();
+				double dy = by[i] - center.y();
+				double k = gm[i] / Math.pow(dx * dx + dy * dy + 100, 1.5);
+				ax += k * dx;
+				ay += k * dy;
+			}
+			vx += ax * 1.0;
+			vy += ay * 1.0;
+			center.translate(vx, vy);
+		}
+		return center.x() + center.y();
+	}
+
+}